@@ -0,0 +1,177 @@
+package com.example.securelogin.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.FileAppender;
+import ch.qos.logback.core.rolling.RollingFileAppender;
+import ch.qos.logback.core.rolling.SizeAndTimeBasedRollingPolicy;
+import ch.qos.logback.core.util.FileSize;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 比較兩種 log 設定下，單一 request 花在記錄 log 上的時間 (SampleTime，可看 p50 / p99)。
+ * <p>
+ * {@code current}: 原本的設定，root DEBUG、同步寫檔，4xx 記錄完整 stack trace。
+ * {@code prod}: logback-spring.xml 的 prod 區段，root INFO、{@link LockFreeAsyncAppender} +
+ * 輪替壓縮、GlobalExceptionHandler 的 WARN 經過 {@link SamplingTurboFilter}，且不帶 stack trace。
+ * <p>
+ * 每個 request 依 login / login-verify 實際的呼叫順序記錄 log；{@code failedLogin} 模擬錯誤密碼
+ * (service 的 WARN 加上 exception handler 的 401 WARN)。只量測 log 的成本，不包含 BCrypt 與資料庫。
+ * <p>
+ * 執行: {@code ./gradlew jmh -PjmhIncludes=LoggingBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 5)
+public class LoggingBenchmark {
+
+    // 與 Spring Boot 預設的 FILE_LOG_PATTERN 相同的欄位
+    private static final String PATTERN = "%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%15.15t] "
+            + "%-40.40logger{39} : %m%n%ex";
+
+    @Param({ "current", "prod" })
+    public String config;
+
+    private Path directory;
+    private LoggerContext context;
+    private Logger controller;
+    private Logger userService;
+    private Logger twoFactor;
+    private Logger exceptionHandler;
+    private boolean stackTraces;
+    private BadCredentialsException failure;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("logging-benchmark");
+        context = new LoggerContext();
+        context.setName(config);
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(PATTERN);
+        encoder.start();
+
+        if ("current".equals(config)) {
+            FileAppender<ILoggingEvent> file = new FileAppender<>();
+            file.setContext(context);
+            file.setName("FILE");
+            file.setFile(directory.resolve("app.log").toString());
+            file.setEncoder(encoder);
+            file.start();
+            root.addAppender(file);
+            root.setLevel(ch.qos.logback.classic.Level.DEBUG);
+            stackTraces = true;
+        } else {
+            RollingFileAppender<ILoggingEvent> file = new RollingFileAppender<>();
+            file.setContext(context);
+            file.setName("FILE");
+            file.setFile(directory.resolve("app.log").toString());
+            file.setEncoder(encoder);
+            SizeAndTimeBasedRollingPolicy<ILoggingEvent> policy = new SizeAndTimeBasedRollingPolicy<>();
+            policy.setContext(context);
+            policy.setParent(file);
+            policy.setFileNamePattern(directory.resolve("app.log.%d{yyyy-MM-dd}.%i.gz").toString());
+            policy.setMaxFileSize(FileSize.valueOf("50MB"));
+            policy.setMaxHistory(14);
+            policy.start();
+            file.setRollingPolicy(policy);
+            file.start();
+
+            LockFreeAsyncAppender async = new LockFreeAsyncAppender();
+            async.setContext(context);
+            async.setName("ASYNC");
+            async.addAppender(file);
+            async.start();
+            root.addAppender(async);
+            root.setLevel(ch.qos.logback.classic.Level.INFO);
+
+            SamplingTurboFilter sampling = new SamplingTurboFilter();
+            sampling.setContext(context);
+            sampling.setLoggerPrefix("com.example.securelogin.exception.GlobalExceptionHandler");
+            sampling.setPermitsPerSecond(20);
+            sampling.setBurst(50);
+            sampling.start();
+            context.addTurboFilter(sampling);
+            stackTraces = false;
+        }
+
+        controller = context.getLogger("com.example.securelogin.controller.UserController");
+        userService = context.getLogger("com.example.securelogin.service.UserServiceImpl");
+        twoFactor = context.getLogger("com.example.securelogin.service.TwoFactorAuthServiceImpl");
+        exceptionHandler = context.getLogger("com.example.securelogin.exception.GlobalExceptionHandler");
+        failure = new BadCredentialsException("Invalid email or password");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.stop();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void successfulLoginVerify() {
+        String email = "user@example.com";
+        // login
+        demoted(userService, "Attempting login for user: {}", email);
+        demoted(userService, "Two-factor authentication code generated for user: {}", "123456");
+        userService.info("User {} logged in successfully.", email);
+        // login-verify
+        demoted(twoFactor, "TwoFactorAuthServiceImpl: Verifying code for email: {}", email);
+        // 原本的設定下 root 為 DEBUG，Spring / Hibernate 每個 request 還會有更多 DEBUG log
+        for (int i = 0; i < 4; i++) {
+            controller.debug("Framework debug line {} for /api/login-verify", i);
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void failedLogin() {
+        String email = "user@example.com";
+        demoted(userService, "Attempting login for user: {}", email);
+        userService.warn("Login failed: Invalid password for user: {}", email);
+        if (stackTraces) {
+            exceptionHandler.warn("BadCredentialsException at URI {}: {}", "/api/login", failure.getMessage(),
+                    failure);
+        } else {
+            exceptionHandler.warn("BadCredentialsException at URI {}: {}", "/api/login", failure.getMessage());
+        }
+    }
+
+    // 原本是 INFO、現在改為 DEBUG 的 log
+    private void demoted(Logger logger, String format, Object argument) {
+        if (stackTraces) {
+            logger.info(format, argument);
+        } else {
+            logger.debug(format, argument);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.securelogin.security;
+
+import com.example.securelogin.entity.User;
+import io.jsonwebtoken.io.Encoders;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 量測 {@link JwtAuthenticationFilter#doFilterInternal} 處理一個帶 Bearer token 的 request 的成本。
+ * <p>
+ * {@code tokenCache} 切換 {@link VerifiedTokenCache} 是否啟用；{@code principal=database} 時每個 request
+ * 都呼叫 {@link UserDetailsService} (這裡以不做 I/O 的 stub 代替，實際還要加上一次查詢)，
+ * {@code stateless} 時直接從 claims 還原身分。
+ * <p>
+ * 執行: {@code ./gradlew jmh -PjmhIncludes=JwtAuthenticationFilterBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JwtAuthenticationFilterBenchmark {
+
+    @Param({"on", "off"})
+    private String tokenCache;
+
+    @Param({"stateless", "database"})
+    private String principal;
+
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private FilterChain chain;
+
+    @Setup
+    public void setUp() {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        JwtService jwtService = new JwtService(Encoders.BASE64.encode(secret), Duration.ofHours(1).toMillis(),
+                Duration.ofDays(7).toMillis(), meterRegistry);
+
+        User user = new User("bench@example.com", "unused");
+        user.setId(42L);
+        user.setEmailVerified(true);
+        UserDetailsService userDetailsService = username -> user;
+
+        VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache(tokenCache.equals("on") ? 10_000 : 0,
+                Duration.ofMinutes(15));
+        filter = new JwtAuthenticationFilter(jwtService, userDetailsService, verifiedTokenCache, meterRegistry);
+        ReflectionTestUtils.setField(filter, "statelessPrincipal", principal.equals("stateless"));
+
+        request = new MockHttpServletRequest("GET", "/api/user/last-login");
+        request.addHeader("Authorization", "Bearer " + jwtService.generateToken(user));
+        response = new MockHttpServletResponse();
+        chain = (req, res) -> { };
+    }
+
+    @Benchmark
+    public Authentication doFilterInternal() throws Exception {
+        try {
+            filter.doFilterInternal(request, response, chain);
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
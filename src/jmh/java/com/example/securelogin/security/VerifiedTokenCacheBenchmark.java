@@ -0,0 +1,66 @@
+package com.example.securelogin.security;
+
+import com.example.securelogin.entity.User;
+import io.jsonwebtoken.io.Encoders;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比較同一個 access token 在快取命中 (warm hit) 與完整驗證 (HMAC + 建立 principal) 的成本。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VerifiedTokenCacheBenchmark {
+
+    private JwtService jwtService;
+    private VerifiedTokenCache verifiedTokenCache;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        jwtService = new JwtService(Encoders.BASE64.encode(secret), Duration.ofHours(1).toMillis(),
+                Duration.ofDays(7).toMillis(), new SimpleMeterRegistry());
+        verifiedTokenCache = new VerifiedTokenCache(10_000, Duration.ofMinutes(15));
+
+        User user = new User("bench@example.com", "unused");
+        user.setId(42L);
+        user.setEmailVerified(true);
+        token = jwtService.generateToken(user);
+
+        VerifiedJwt verifiedJwt = jwtService.verify(token);
+        verifiedTokenCache.put(verifiedTokenCache.digest(token), authenticate(verifiedJwt),
+                verifiedJwt.getExpiresAt());
+    }
+
+    // 沒有快取時，filter 每個 request 的工作：驗證簽章 + 建立 principal 與 Authentication
+    @Benchmark
+    public Authentication fullVerification() {
+        return authenticate(jwtService.verify(token));
+    }
+
+    // 快取命中時，filter 每個 request 的工作：計算摘要 + 查表
+    @Benchmark
+    public Authentication warmCacheHit() {
+        return verifiedTokenCache.get(verifiedTokenCache.digest(token));
+    }
+
+    private static Authentication authenticate(VerifiedJwt verifiedJwt) {
+        AuthenticatedUser principal = AuthenticatedUser.fromClaims(verifiedJwt);
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+}
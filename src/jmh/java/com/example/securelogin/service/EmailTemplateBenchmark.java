@@ -0,0 +1,114 @@
+package com.example.securelogin.service;
+
+import com.example.securelogin.config.AppProperties;
+import com.example.securelogin.config.TwoFactorProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比較原本以 String.format 組郵件內容 (HTML + 純文字) 與預先編譯樣板的成本，
+ * 以及 {@link GmailServiceImpl} 把內容組成 MIME 郵件 (multipart/alternative) 並編碼的成本 (不連線 SMTP)。
+ * <p>
+ * 執行: {@code ./gradlew jmh -PjmhIncludes=EmailTemplateBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EmailTemplateBenchmark {
+
+    private static final String SENDER_NAME = "Our Secure Application";
+    private static final String BASE_URL = "https://secure-login.example.com";
+
+    private EmailTemplateEngine templateEngine;
+    private GmailServiceImpl gmailService;
+    private final String recipientName = "alice";
+    private final String token = "3f1c9a52-8e0b-4d6e-9a7c-1b2d3e4f5a6b";
+
+    @Setup
+    public void setUp() {
+        AppProperties app = new AppProperties();
+        app.setBaseUrl(BASE_URL);
+        app.setName(SENDER_NAME);
+        templateEngine = new EmailTemplateEngine(app, new TwoFactorProperties());
+        gmailService = new GmailServiceImpl(new EncodingOnlyMailSender(), app, templateEngine,
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(gmailService, "configuredFromEmail", "no-reply@example.com");
+    }
+
+    // MailjetEmailServiceImpl 改版前的寫法
+    @Benchmark
+    public void stringFormat(Blackhole blackhole) {
+        String emailSubject = "Verify Your Email Address for " + SENDER_NAME;
+        String emailHtmlContent = String.format(
+                "<h1>Welcome to %s!</h1>" +
+                        "<p>Hi %s,</p>" +
+                        "<p>Thank you for registering. Please click the link below to verify your email address:</p>"
+                        +
+                        "<p><a href=\"%s\">Verify Email</a></p>" +
+                        "<p>If you did not register, please ignore this email.</p>" +
+                        "<p>Thanks,<br/>The %s Team</p>",
+                SENDER_NAME, recipientName,
+                BASE_URL + "/api/verify-registration?token=" + token,
+                SENDER_NAME);
+        String emailTextContent = String.format(
+                "Welcome to %s!\n\n" +
+                        "Hi %s,\n\n" +
+                        "Thank you for registering. Please copy and paste the link below into your browser to verify your email address:\n"
+                        +
+                        "%s\n\n" +
+                        "If you did not register, please ignore this email.\n\n" +
+                        "Thanks,\nThe %s Team",
+                SENDER_NAME, recipientName,
+                BASE_URL + "/api/verify-registration?token=" + token,
+                SENDER_NAME);
+        blackhole.consume(emailSubject);
+        blackhole.consume(emailHtmlContent);
+        blackhole.consume(emailTextContent);
+    }
+
+    @Benchmark
+    public EmailTemplateEngine.RenderedEmail precompiledTemplate() {
+        return templateEngine.render(EmailTemplateEngine.REGISTRATION_VERIFICATION, Locale.ENGLISH,
+                Map.of("recipientName", recipientName, "token", token));
+    }
+
+    // 樣板 + MimeMessageHelper + 寫出完整的 MIME 內容
+    @Benchmark
+    public void gmailMimeMessage() {
+        gmailService.sendRegistrationVerificationEmail("alice@example.com", recipientName, token);
+    }
+
+    // 不連線 SMTP，只把郵件編碼後丟棄
+    private static final class EncodingOnlyMailSender extends JavaMailSenderImpl {
+
+        @Override
+        protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) {
+            for (MimeMessage message : mimeMessages) {
+                try {
+                    message.saveChanges();
+                    message.writeTo(OutputStream.nullOutputStream());
+                } catch (MessagingException | IOException e) {
+                    throw new MailSendException("Failed to encode message", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.securelogin.service;
+
+import jakarta.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 以很慢的 stub SMTP server 比較 platform thread pool 與 virtual thread 的寄信吞吐量。
+ * <p>
+ * 每個 SMTP 回應都延遲 {@code latencyMillis}，模擬對外部郵件伺服器的網路延遲；每封信約 6 次往返。
+ * 同時寄送數量由 {@code concurrency} 限制 (platform: pool 大小，virtual: semaphore)。
+ * Jakarta Mail 的 SMTPTransport 是 {@code synchronized}，JDK 21 上 virtual thread 會 pin 住
+ * carrier thread，因此 virtual 的吞吐量上限約為 CPU 核心數 / 每封信耗時，而不是 concurrency。
+ * <p>
+ * 執行: {@code ./gradlew jmh -PjmhIncludes=SmtpConcurrencyBenchmark}
+ * (加上 {@code -Djdk.tracePinnedThreads=short} 可看到 pin 住的 stack)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+public class SmtpConcurrencyBenchmark {
+
+    private static final int MESSAGES = 256;
+
+    @Param({ "platform", "virtual" })
+    public String threads;
+
+    @Param({ "16", "256" })
+    public int concurrency;
+
+    @Param({ "5" })
+    public int latencyMillis;
+
+    private SlowSmtpServer server;
+    private JavaMailSenderImpl mailSender;
+    private ExecutorService executor;
+    private Semaphore permits;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = new SlowSmtpServer(latencyMillis);
+
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost(InetAddress.getLoopbackAddress().getHostAddress());
+        mailSender.setPort(server.port());
+        Properties properties = new Properties();
+        properties.put("mail.smtp.localhost", "localhost"); // 避免每次連線都做 DNS 反查
+        properties.put("mail.smtp.connectiontimeout", "5000");
+        properties.put("mail.smtp.timeout", "5000");
+        mailSender.setJavaMailProperties(properties);
+
+        if ("virtual".equals(threads)) {
+            executor = Executors.newVirtualThreadPerTaskExecutor();
+        } else {
+            executor = Executors.newFixedThreadPool(concurrency);
+        }
+        permits = new Semaphore(concurrency);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        server.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void sendBatch() throws Exception {
+        List<Future<?>> sends = new ArrayList<>(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            int index = i;
+            sends.add(executor.submit(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    send(index);
+                } finally {
+                    permits.release();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> send : sends) {
+            send.get();
+        }
+    }
+
+    private void send(int index) throws Exception {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, false, StandardCharsets.UTF_8.name());
+        helper.setFrom("noreply@example.com");
+        helper.setTo("user" + index + "@example.com");
+        helper.setSubject("Your Login Verification Code: 123456");
+        helper.setText("Hi user" + index + ",\n\nYour verification code is: 123456\n");
+        mailSender.send(message);
+    }
+
+    /**
+     * 只實作寄信需要的最少 SMTP 指令，每個回應前都先 sleep。
+     */
+    static final class SlowSmtpServer implements AutoCloseable {
+
+        private final ServerSocket serverSocket;
+        private final long latencyMillis;
+        private final Thread acceptor;
+
+        SlowSmtpServer(long latencyMillis) throws IOException {
+            this.serverSocket = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+            this.latencyMillis = latencyMillis;
+            this.acceptor = new Thread(this::acceptLoop, "slow-smtp-acceptor");
+            this.acceptor.setDaemon(true);
+            this.acceptor.start();
+        }
+
+        int port() {
+            return serverSocket.getLocalPort();
+        }
+
+        private void acceptLoop() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    Thread.ofVirtual().name("slow-smtp-session").start(() -> handle(socket));
+                } catch (IOException e) {
+                    return; // close()
+                }
+            }
+        }
+
+        private void handle(Socket socket) {
+            try (socket;
+                    BufferedReader in = new BufferedReader(
+                            new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                    OutputStream out = socket.getOutputStream()) {
+                reply(out, "220 stub ESMTP");
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                    switch (command) {
+                        case "EHLO", "HELO" -> reply(out, "250 stub");
+                        case "DATA" -> {
+                            reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                            while ((line = in.readLine()) != null && !line.equals(".")) {
+                                // 丟棄郵件內容
+                            }
+                            reply(out, "250 OK queued");
+                        }
+                        case "QUIT" -> {
+                            reply(out, "221 Bye");
+                            return;
+                        }
+                        default -> reply(out, "250 OK"); // MAIL / RCPT / RSET / NOOP
+                    }
+                }
+            } catch (IOException | InterruptedException e) {
+                // client 中斷連線
+            }
+        }
+
+        private void reply(OutputStream out, String response) throws IOException, InterruptedException {
+            Thread.sleep(latencyMillis);
+            out.write((response + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.securelogin.service;
+
+import com.example.securelogin.audit.AuditLog;
+import com.example.securelogin.config.AuditProperties;
+import com.example.securelogin.config.LastLoginProperties;
+import com.example.securelogin.config.ReadReplicaProperties;
+import com.example.securelogin.config.TwoFactorProperties;
+import com.example.securelogin.config.UserCacheProperties;
+import com.example.securelogin.entity.User;
+import com.example.securelogin.repository.ReadYourWritesGuard;
+import com.example.securelogin.repository.UserRepository;
+import com.example.securelogin.security.AuthenticatedUser;
+import com.example.securelogin.security.UserSnapshot;
+import com.example.securelogin.security.HmacCodeHasher;
+import io.jsonwebtoken.io.Encoders;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.lang.reflect.Proxy;
+import java.security.SecureRandom;
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 量測 {@link TwoFactorAuthServiceImpl} 產生、雜湊與驗證 2FA 驗證碼的成本。
+ * <p>
+ * 使用 memory store 與 write-behind 登入時間，驗證過程不碰資料庫；使用者由
+ * {@link UserLookupCache} 取得 (只有第一次會呼叫 stub repository)。稽核紀錄關閉。
+ * <p>
+ * 執行: {@code ./gradlew jmh -PjmhIncludes=TwoFactorAuthBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TwoFactorAuthBenchmark {
+
+    private HmacCodeHasher codeHasher;
+    private InMemoryTwoFactorCodeStore codeStore;
+    private TwoFactorAuthServiceImpl twoFactorAuthService;
+    private UserSnapshot user;
+
+    @Setup
+    public void setUp() throws Exception {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        codeHasher = new HmacCodeHasher("", Encoders.BASE64.encode(secret));
+
+        User entity = new User("bench@example.com", "unused");
+        entity.setId(42L);
+        entity.setEmailVerified(true);
+        user = UserSnapshot.of(entity);
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UserLookupCache userLookupCache = new UserLookupCache(stubRepository(entity), new UserCacheProperties(),
+                new ReadYourWritesGuard(new ReadReplicaProperties()));
+        codeStore = new InMemoryTwoFactorCodeStore(new TwoFactorProperties(), meterRegistry, null,
+                userLookupCache);
+        LastLoginProperties lastLoginProperties = new LastLoginProperties();
+        lastLoginProperties.setWriteBehind(true);
+        AuditProperties auditProperties = new AuditProperties();
+        auditProperties.setEnabled(false);
+        twoFactorAuthService = new TwoFactorAuthServiceImpl(codeStore, codeHasher, new TwoFactorProperties(),
+                new LastLoginRecorder(null, userLookupCache, lastLoginProperties),
+                new AuditLog(auditProperties, Encoders.BASE64.encode(secret), meterRegistry), meterRegistry);
+    }
+
+    @TearDown
+    public void tearDown() {
+        codeStore.shutdown();
+    }
+
+    @Benchmark
+    public String hash() {
+        return codeHasher.hash("123456");
+    }
+
+    // 登入第一階段產生驗證碼 + 第二階段以正確驗證碼登入
+    @Benchmark
+    public Optional<AuthenticatedUser> createAndVerify() {
+        String code = twoFactorAuthService.createNewCode(user);
+        return twoFactorAuthService.verifyCodeAndRecordLogin(user.getEmail(), code, OffsetDateTime.now());
+    }
+
+    // 輸入錯誤的驗證碼 (驗證碼不會被消耗，下一次 createNewCode 取代)
+    @Benchmark
+    public Optional<AuthenticatedUser> createAndReject() {
+        twoFactorAuthService.createNewCode(user);
+        return twoFactorAuthService.verifyCodeAndRecordLogin(user.getEmail(), "not-a-code", OffsetDateTime.now());
+    }
+
+    // 只實作 findByEmail 的 repository
+    private static UserRepository stubRepository(User user) {
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[] {UserRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findByEmail")) {
+                        return Optional.of(user);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
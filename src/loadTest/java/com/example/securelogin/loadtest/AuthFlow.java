@@ -0,0 +1,124 @@
+package com.example.securelogin.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 一個虛擬使用者走完整個流程：register → verify-registration → login → login-verify → last-login。
+ * <p>
+ * 每個 endpoint 的延遲分別記錄；等待 outbox 寄出驗證信的時間不計入任何 endpoint。
+ * 任一步驟失敗即結束這一輪 (記一次錯誤)。
+ */
+class AuthFlow {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration EMAIL_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final URI baseUri;
+    private final CapturingEmailService mailbox;
+    private final String password;
+
+    final EndpointStats register = new EndpointStats("POST /api/register");
+    final EndpointStats verifyRegistration = new EndpointStats("GET  /api/verify-registration");
+    final EndpointStats login = new EndpointStats("POST /api/login");
+    final EndpointStats loginVerify = new EndpointStats("POST /api/login-verify");
+    final EndpointStats lastLogin = new EndpointStats("GET  /api/user/last-login");
+    final EndpointStats flow = new EndpointStats("full flow (incl. email wait)");
+
+    AuthFlow(HttpClient client, ObjectMapper objectMapper, URI baseUri, CapturingEmailService mailbox,
+            String password) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.baseUri = baseUri;
+        this.mailbox = mailbox;
+        this.password = password;
+    }
+
+    EndpointStats[] endpoints() {
+        return new EndpointStats[] {register, verifyRegistration, login, loginVerify, lastLogin, flow};
+    }
+
+    /**
+     * 以一個新的 email 跑一輪完整流程。
+     *
+     * @return 全部步驟都成功時為 true
+     */
+    boolean run(String email) throws InterruptedException {
+        long flowStart = System.nanoTime();
+        try {
+            if (send(register, post("/api/register", Map.of("email", email, "password", password))) == null) {
+                return false;
+            }
+            String token = mailbox.awaitToken(email, EMAIL_TIMEOUT);
+            if (send(verifyRegistration, get("/api/verify-registration?token="
+                    + URLEncoder.encode(token, StandardCharsets.UTF_8), null)) == null) {
+                return false;
+            }
+            if (send(login, post("/api/login", Map.of("email", email, "password", password))) == null) {
+                return false;
+            }
+            String code = mailbox.awaitCode(email, EMAIL_TIMEOUT);
+            String body = send(loginVerify, post("/api/login-verify", Map.of("email", email, "code", code)));
+            if (body == null) {
+                return false;
+            }
+            JsonNode tokens = objectMapper.readTree(body);
+            if (send(lastLogin, get("/api/user/last-login", tokens.path("accessToken").asText())) == null) {
+                return false;
+            }
+            flow.success(flowStart);
+            return true;
+        } catch (TimeoutException | IOException e) {
+            flow.error(); // 驗證信沒有寄出或回應格式錯誤
+            return false;
+        }
+    }
+
+    // 送出 request，2xx 時記錄延遲並回傳 body；其他狀態或連線錯誤記為錯誤並回傳 null
+    private String send(EndpointStats stats, HttpRequest request) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() / 100 == 2) {
+                stats.success(start);
+                return response.body();
+            }
+        } catch (IOException e) {
+            // 連線錯誤與非 2xx 一樣計為錯誤
+        }
+        stats.error();
+        flow.error();
+        return null;
+    }
+
+    private HttpRequest post(String path, Map<String, String> json) throws IOException {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(json)))
+                .build();
+    }
+
+    private HttpRequest get(String path, String bearerToken) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(REQUEST_TIMEOUT)
+                .GET();
+        if (bearerToken != null) {
+            builder.header("Authorization", "Bearer " + bearerToken);
+        }
+        return builder.build();
+    }
+}
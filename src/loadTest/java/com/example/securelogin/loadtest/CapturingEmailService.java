@@ -0,0 +1,60 @@
+package com.example.securelogin.loadtest;
+
+import com.example.securelogin.service.EmailService;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 不寄信的 {@link EmailService}：把驗證權杖與 2FA 驗證碼依收件人保存，讓虛擬使用者讀回。
+ * 以 bean 名稱 {@value #BEAN_NAME} 註冊，並設定 {@code email.outbox.provider} 指向它。
+ */
+class CapturingEmailService implements EmailService {
+
+    static final String BEAN_NAME = "capturingEmailService";
+
+    private final ConcurrentMap<String, BlockingQueue<String>> tokens = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, BlockingQueue<String>> codes = new ConcurrentHashMap<>();
+
+    @Override
+    public void sendRegistrationVerificationEmail(String recipientEmail, String recipientName,
+            String verificationToken) {
+        mailbox(tokens, recipientEmail).add(verificationToken);
+    }
+
+    @Override
+    public void sendLoginVerificationCodeEmail(String recipientEmail, String recipientName,
+            String verificationCode) {
+        mailbox(codes, recipientEmail).add(verificationCode);
+    }
+
+    // 等待 outbox dispatcher 寄出註冊驗證信
+    String awaitToken(String email, Duration timeout) throws InterruptedException, TimeoutException {
+        return take(tokens, email, timeout);
+    }
+
+    // 等待 outbox dispatcher 寄出登入驗證碼
+    String awaitCode(String email, Duration timeout) throws InterruptedException, TimeoutException {
+        return take(codes, email, timeout);
+    }
+
+    private static String take(ConcurrentMap<String, BlockingQueue<String>> mailboxes, String email,
+            Duration timeout) throws InterruptedException, TimeoutException {
+        String value = mailbox(mailboxes, email).poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        if (value == null) {
+            throw new TimeoutException("No email for " + email + " within " + timeout);
+        }
+        mailboxes.remove(email); // 每個虛擬使用者的 email 只收一封
+        return value;
+    }
+
+    private static BlockingQueue<String> mailbox(ConcurrentMap<String, BlockingQueue<String>> mailboxes,
+            String email) {
+        return mailboxes.computeIfAbsent(email, key -> new LinkedBlockingQueue<>());
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.securelogin.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 單一 endpoint 的延遲分布 (HdrHistogram，微秒) 與錯誤數。
+ * 成功的 request 才記錄延遲；{@link #reset()} 丟棄暖機期間的資料。
+ */
+class EndpointStats {
+
+    // 最長可記錄 60 秒，3 位有效數字
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.SECONDS.toMicros(60);
+
+    private final String name;
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final LongAdder errors = new LongAdder();
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    String name() {
+        return name;
+    }
+
+    void success(long startNanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        recorder.recordValue(Math.min(Math.max(micros, 1), HIGHEST_TRACKABLE_MICROS));
+    }
+
+    void error() {
+        errors.increment();
+    }
+
+    void reset() {
+        recorder.getIntervalHistogram();
+        errors.reset();
+    }
+
+    // 取出上次 reset 之後的結果
+    Snapshot snapshot() {
+        return new Snapshot(name, recorder.getIntervalHistogram(), errors.sumThenReset());
+    }
+
+    record Snapshot(String name, Histogram histogram, long errors) {
+    }
+}
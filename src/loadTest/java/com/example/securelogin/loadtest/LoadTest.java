@@ -0,0 +1,192 @@
+package com.example.securelogin.loadtest;
+
+import com.example.securelogin.SecureLoginApiApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 離線的端對端負載測試：啟動 embedded PostgreSQL 與整個應用程式 (寄信改為 {@link CapturingEmailService})，
+ * 由多個虛擬使用者 (virtual thread) 反覆執行 {@link AuthFlow}，最後輸出各 endpoint 的吞吐量與延遲百分位數。
+ * <p>
+ * 執行: {@code ./gradlew loadTest --args="--users 50 --duration 60s"}
+ * <ul>
+ * <li>{@code --users}: 同時執行的虛擬使用者數 (預設 20)</li>
+ * <li>{@code --duration}: 量測時間 (預設 60s)；{@code --warmup}: 暖機時間，不計入結果 (預設 10s)</li>
+ * <li>其他 {@code --key=value} 參數直接傳給應用程式，例如 {@code --two-factor.store=memory}</li>
+ * </ul>
+ * 各 endpoint 完整的延遲分布 (HdrHistogram .hgrm) 寫入 {@code build/loadtest/}。
+ */
+public final class LoadTest {
+
+    private static final Path OUTPUT_DIRECTORY = Path.of("build", "loadtest");
+
+    private int users = 20;
+    private Duration duration = Duration.ofSeconds(60);
+    private Duration warmup = Duration.ofSeconds(10);
+    private String password = "load-test-password";
+    private final List<String> applicationArgs = new ArrayList<>();
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTest loadTest = parse(args);
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            CapturingEmailService mailbox = new CapturingEmailService();
+            SpringApplication application = new SpringApplication(SecureLoginApiApplication.class);
+            application.addInitializers(context -> context.getBeanFactory()
+                    .registerSingleton(CapturingEmailService.BEAN_NAME, mailbox));
+            try (ConfigurableApplicationContext context = application.run(loadTest.applicationArgs(postgres))) {
+                int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+                loadTest.run(URI.create("http://localhost:" + port), mailbox);
+            }
+        }
+        System.exit(0);
+    }
+
+    private static LoadTest parse(String[] args) {
+        LoadTest loadTest = new LoadTest();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            String name = arg.contains("=") ? arg.substring(0, arg.indexOf('=')) : arg;
+            boolean own = switch (name) {
+                case "--users", "--duration", "--warmup", "--password" -> true;
+                default -> false;
+            };
+            if (!own) {
+                loadTest.applicationArgs.add(arg);
+                continue;
+            }
+            String value = arg.contains("=") ? arg.substring(arg.indexOf('=') + 1) : args[++i];
+            switch (name) {
+                case "--users" -> loadTest.users = Integer.parseInt(value);
+                case "--duration" -> loadTest.duration = DurationStyle.detectAndParse(value);
+                case "--warmup" -> loadTest.warmup = DurationStyle.detectAndParse(value);
+                default -> loadTest.password = value;
+            }
+        }
+        return loadTest;
+    }
+
+    // 以測試用的值取代 application.yaml 中需要環境變數的設定；使用者傳入的參數放在最後，可覆寫這些預設值
+    private String[] applicationArgs(EmbeddedPostgres postgres) {
+        byte[] jwtSecret = new byte[32];
+        new SecureRandom().nextBytes(jwtSecret);
+        List<String> args = new ArrayList<>(List.of(
+                "--DB_URL=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--DB_USERNAME=postgres",
+                "--DB_PASSWORD=postgres",
+                "--PORT=0",
+                "--MANAGEMENT_PORT=0",
+                "--BASE_URL=http://localhost",
+                "--JWT_SECRET=" + Base64.getEncoder().encodeToString(jwtSecret),
+                "--JWT_EXPIRATION=3600000",
+                "--JWT_REFRESH_EXPIRATION=604800000",
+                "--GMAIL_USERNAME=load-test@example.com",
+                "--GMAIL_PASSWORD=unused",
+                "--MAILJET_API_KEY=unused",
+                "--MAILJET_SECRET_KEY=unused",
+                "--MAILJET_SENDER_EMAIL=load-test@example.com",
+                "--MAILJET_SENDER_NAME=Load Test",
+                "--EMAIL_PROVIDER=" + CapturingEmailService.BEAN_NAME,
+                "--email.outbox.poll-interval=50ms",
+                "--RATE_LIMIT_ENABLED=false", // 所有虛擬使用者都來自同一個 IP
+                "--AUDIT_DIRECTORY=" + OUTPUT_DIRECTORY.resolve("audit"),
+                "--logging.level.root=WARN",
+                "--logging.file.name=" + OUTPUT_DIRECTORY.resolve("app.log")));
+        args.addAll(applicationArgs);
+        return args.toArray(String[]::new);
+    }
+
+    private void run(URI baseUri, CapturingEmailService mailbox) throws InterruptedException, IOException {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        AuthFlow flow = new AuthFlow(client, new ObjectMapper(), baseUri, mailbox, password);
+        AtomicLong sequence = new AtomicLong();
+        LongAdder completed = new LongAdder();
+        long stopAt = System.nanoTime() + warmup.toNanos() + duration.toNanos();
+
+        System.out.printf("Running %d virtual users for %s (warm-up %s) against %s%n", users, duration, warmup,
+                baseUri);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        for (int i = 0; i < users; i++) {
+            executor.submit(() -> {
+                while (System.nanoTime() - stopAt < 0) {
+                    if (flow.run("load-" + sequence.incrementAndGet() + "@example.com")) {
+                        completed.increment();
+                    }
+                }
+                return null;
+            });
+        }
+
+        Thread.sleep(warmup.toMillis());
+        for (EndpointStats endpoint : flow.endpoints()) {
+            endpoint.reset();
+        }
+        completed.reset();
+        long measureStart = System.nanoTime();
+        Thread.sleep(duration.toMillis());
+        List<EndpointStats.Snapshot> snapshots = new ArrayList<>();
+        for (EndpointStats endpoint : flow.endpoints()) {
+            snapshots.add(endpoint.snapshot());
+        }
+        double seconds = (System.nanoTime() - measureStart) / 1e9;
+        long flows = completed.sum();
+
+        executor.shutdown();
+        if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+            executor.shutdownNow();
+        }
+        report(snapshots, flows, seconds);
+    }
+
+    private void report(List<EndpointStats.Snapshot> snapshots, long flows, double seconds) throws IOException {
+        PrintStream out = System.out;
+        out.printf(Locale.ROOT, "%n%d virtual users, %.1f s: %d flows completed (%.1f flows/s)%n%n", users,
+                seconds, flows, flows / seconds);
+        out.printf(Locale.ROOT, "%-32s %8s %7s %9s %9s %9s %9s %9s %9s%n", "endpoint", "ok", "errors",
+                "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        Files.createDirectories(OUTPUT_DIRECTORY);
+        for (EndpointStats.Snapshot snapshot : snapshots) {
+            Histogram histogram = snapshot.histogram();
+            out.printf(Locale.ROOT, "%-32s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", snapshot.name(),
+                    histogram.getTotalCount(), snapshot.errors(), histogram.getTotalCount() / seconds,
+                    millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                    histogram.getMaxValue() / 1000.0);
+            String fileName = snapshot.name().replaceAll("[^A-Za-z0-9]+", "-").replaceAll("^-|-$", "") + ".hgrm";
+            try (PrintStream file = new PrintStream(Files.newOutputStream(OUTPUT_DIRECTORY.resolve(fileName)))) {
+                histogram.outputPercentileDistribution(file, 1000.0); // 以毫秒輸出
+            }
+        }
+        out.printf("%nLatency distributions written to %s%n", OUTPUT_DIRECTORY.toAbsolutePath());
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.securelogin.audit;
+
+/**
+ * 稽核事件的種類。{@code code} 會寫進檔案，既有的值不可變更或重複使用，只能新增。
+ */
+public enum AuditEventType {
+    REGISTERED(1),
+    REGISTRATION_DUPLICATE(2),
+    EMAIL_VERIFIED(3),
+    EMAIL_VERIFICATION_FAILED(4),
+    LOGIN_PASSWORD_ACCEPTED(5),
+    LOGIN_UNKNOWN_EMAIL(6),
+    LOGIN_EMAIL_NOT_VERIFIED(7),
+    LOGIN_BAD_PASSWORD(8),
+    TWO_FACTOR_CODE_ISSUED(9),
+    TWO_FACTOR_SUCCEEDED(10),
+    TWO_FACTOR_FAILED(11);
+
+    private static final AuditEventType[] BY_CODE = new AuditEventType[16];
+
+    static {
+        for (AuditEventType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final short code;
+
+    AuditEventType(int code) {
+        this.code = (short) code;
+    }
+
+    public short code() {
+        return code;
+    }
+
+    // 未知的 code (較新版本寫入的事件) 回傳 null
+    public static AuditEventType fromCode(short code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.securelogin.audit;
+
+import com.example.securelogin.config.AuditProperties;
+import com.example.securelogin.util.MpscRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 註冊、登入、2FA 與 email 驗證結果的稽核紀錄。
+ * <p>
+ * {@link #record} 只在呼叫端取得時間並放進 lock-free 的 {@link MpscRingBuffer}，不做任何 I/O；
+ * 單一的 {@code audit-writer} 執行緒依序以 {@link AuditWriter} 附加到 memory-mapped segment 檔案，
+ * 每隔 force-interval 強制落地一次。佇列滿時丟棄並計入 {@code audit.dropped}，不會阻塞 request。
+ * 讀取方式見 {@link AuditLogCli}。
+ */
+@Component
+public class AuditLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLog.class);
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final MpscRingBuffer<Event> queue;
+    private final long forceIntervalNanos;
+    private final Counter written;
+    private final Counter dropped;
+    private final AuditWriter writer;
+    private final EmailFingerprint fingerprint;
+    private final Thread worker;
+    private volatile boolean running;
+
+    public AuditLog(AuditProperties properties, @Value("${jwt.secret:}") String jwtSecret,
+            MeterRegistry meterRegistry) throws IOException {
+        this.enabled = properties.isEnabled();
+        this.queue = new MpscRingBuffer<>(properties.getBufferCapacity());
+        this.forceIntervalNanos = properties.getForceInterval().toNanos();
+        this.written = Counter.builder("audit.records")
+                .description("Audit records written")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("audit.dropped")
+                .description("Audit records dropped because the queue was full or the write failed")
+                .register(meterRegistry);
+        Gauge.builder("audit.queue.size", queue, MpscRingBuffer::size)
+                .description("Audit records waiting to be written")
+                .register(meterRegistry);
+
+        if (!enabled) {
+            this.writer = null;
+            this.fingerprint = null;
+            this.worker = null;
+            return;
+        }
+        this.fingerprint = EmailFingerprint.of(properties.getFingerprintKey(), jwtSecret);
+        Path directory = Path.of(properties.getDirectory());
+        this.writer = new AuditWriter(directory, properties.getSegmentSize().toBytes(),
+                AuditRecord.toMicros(Instant.now()));
+        this.running = true;
+        this.worker = new Thread(this::drain, "audit-writer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+        logger.info("Audit log writing to {} ({} per segment)", writer.currentSegment(),
+                properties.getSegmentSize());
+    }
+
+    /**
+     * 記錄一筆事件。{@code userId} 未知時傳 null；{@code email} 只會以指紋形式儲存。
+     */
+    public void record(AuditEventType type, Long userId, String email) {
+        if (!enabled) {
+            return;
+        }
+        if (!queue.offer(new Event(AuditRecord.toMicros(Instant.now()), userId, email, type))) {
+            dropped.increment();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (worker == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        long lastForce = System.nanoTime();
+        while (running || queue.size() > 0) {
+            // 持續有事件時也要定期落地
+            if (System.nanoTime() - lastForce >= forceIntervalNanos) {
+                writer.force();
+                lastForce = System.nanoTime();
+            }
+            Event event = queue.poll();
+            if (event == null) {
+                if (running) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                continue;
+            }
+            try {
+                // 指紋在寫入執行緒計算，request 執行緒不做 HMAC
+                writer.append(new AuditRecord(event.timestampMicros(),
+                        event.userId() != null ? event.userId() : AuditRecord.UNKNOWN_USER,
+                        fingerprint.fingerprint(event.email()), event.type()));
+                written.increment();
+            } catch (IOException | RuntimeException e) {
+                dropped.increment();
+                logger.error("Failed to write audit record {}: {}", event.type(), e.getMessage(), e);
+            }
+        }
+        writer.close();
+    }
+
+    private record Event(long timestampMicros, Long userId, String email, AuditEventType type) {
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.securelogin.audit;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 稽核紀錄的命令列讀取工具，以 tab 分隔輸出：時間、事件、user id、email 指紋 (16 進位)。
+ * <p>
+ * 以 email 查詢時需要與伺服器相同的指紋金鑰：{@code --key}，或與伺服器相同的環境變數
+ * {@code AUDIT_FINGERPRINT_KEY} / {@code JWT_SECRET} (見 {@link EmailFingerprint})。
+ * <p>
+ * 執行: {@code ./gradlew auditLog --args="--user 42 --from 2026-10-01T00:00:00Z"}
+ */
+public final class AuditLogCli {
+
+    private static final String USAGE = """
+            Usage: AuditLogCli [--dir logs/audit] [--user <id>] [--email <address>] [--key <base64>]
+                               [--from <ISO-8601 instant>] [--to <ISO-8601 instant>]
+                               [--type <EVENT>[,<EVENT>...]] [--limit <n>]
+            --key defaults to $AUDIT_FINGERPRINT_KEY, or is derived from $JWT_SECRET like the server does.
+            Events: %s
+            """;
+
+    private AuditLogCli() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.exit(run(args, System.getenv(), System.out, System.err));
+    }
+
+    static int run(String[] args, Map<String, String> env, PrintStream out, PrintStream err) throws IOException {
+        Path directory = Path.of("logs/audit");
+        Long userId = null;
+        String email = null;
+        String key = env.get("AUDIT_FINGERPRINT_KEY");
+        EmailFingerprint fingerprint = null;
+        Instant from = null;
+        Instant to = null;
+        Set<AuditEventType> types = EnumSet.noneOf(AuditEventType.class);
+        long limit = Long.MAX_VALUE;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if ("--help".equals(option) || "-h".equals(option)) {
+                    out.printf(USAGE, EnumSet.allOf(AuditEventType.class));
+                    return 0;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--dir" -> directory = Path.of(value);
+                    case "--user" -> userId = Long.parseLong(value);
+                    case "--email" -> email = value;
+                    case "--key" -> key = value;
+                    case "--from" -> from = Instant.parse(value);
+                    case "--to" -> to = Instant.parse(value);
+                    case "--type" -> {
+                        for (String type : value.split(",")) {
+                            types.add(AuditEventType.valueOf(type.trim().toUpperCase(Locale.ROOT)));
+                        }
+                    }
+                    case "--limit" -> limit = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("Unknown option " + option);
+                }
+            }
+            if (email != null) {
+                fingerprint = EmailFingerprint.of(key, env.get("JWT_SECRET"));
+            }
+        } catch (RuntimeException e) {
+            err.println(e.getMessage());
+            err.printf(USAGE, EnumSet.allOf(AuditEventType.class));
+            return 2;
+        }
+
+        long max = limit;
+        long[] printed = { 0 };
+        AuditLogReader.Query query = new AuditLogReader.Query(userId, email, from, to, types);
+        new AuditLogReader(directory, fingerprint).read(query, record -> {
+            out.printf("%s\t%s\t%s\t%016x%n", record.timestamp(), record.type(),
+                    record.userId() == AuditRecord.UNKNOWN_USER ? "-" : record.userId(), record.emailFingerprint());
+            return ++printed[0] < max;
+        });
+        return 0;
+    }
+}
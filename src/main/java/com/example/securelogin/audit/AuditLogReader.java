@@ -0,0 +1,134 @@
+package com.example.securelogin.audit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * 依條件串流讀取稽核紀錄，每次只讀入固定大小的區塊，不會把整個 segment 載入記憶體。
+ * <p>
+ * segment 依建立時間排序，時間範圍以外的 segment 直接略過 (紀錄時間在進入佇列時取得，
+ * 寫入順序可能有些微差異，因此邊界保留 {@link #BOUNDARY_SLACK} 的誤差)。
+ */
+public final class AuditLogReader {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final long BOUNDARY_SLACK = Duration.ofSeconds(5).toNanos() / 1_000;
+
+    private final Path directory;
+    private final EmailFingerprint fingerprint;
+
+    /**
+     * @param fingerprint 與寫入時相同金鑰的 email 指紋；null 表示不能以 email 查詢
+     */
+    public AuditLogReader(Path directory, EmailFingerprint fingerprint) {
+        this.directory = directory;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * 依序把符合條件的紀錄交給 {@code consumer}；{@code consumer} 回傳 false 時停止。
+     *
+     * @return 讀到的符合條件的紀錄數
+     */
+    public long read(Query query, Predicate<AuditRecord> consumer) throws IOException {
+        List<Path> segments = AuditSegments.list(directory);
+        Filter filter = new Filter(query, fingerprint);
+        long fromMicros = filter.fromMicros();
+        long toMicros = filter.toMicros();
+        long matched = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            long created = AuditSegments.createdMicros(segments.get(i));
+            long nextCreated = i + 1 < segments.size() ? AuditSegments.createdMicros(segments.get(i + 1))
+                    : Long.MAX_VALUE;
+            if (created - BOUNDARY_SLACK >= toMicros
+                    || (nextCreated != Long.MAX_VALUE && nextCreated + BOUNDARY_SLACK < fromMicros)) {
+                continue;
+            }
+            long result = readSegment(segments.get(i), filter, consumer);
+            if (result < 0) {
+                return matched - result - 1;
+            }
+            matched += result;
+        }
+        return matched;
+    }
+
+    // 回傳符合的筆數；consumer 要求停止時回傳 -(筆數 + 1)
+    private long readSegment(Path path, Filter filter, Predicate<AuditRecord> consumer) throws IOException {
+        long matched = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(AuditSegments.HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // 讀滿檔頭
+            }
+            header.flip();
+            AuditSegments.checkHeader(header, path);
+
+            ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_SIZE / AuditRecord.SIZE * AuditRecord.SIZE);
+            while (channel.read(chunk) > 0 || chunk.position() > 0) {
+                chunk.flip();
+                while (chunk.remaining() >= AuditRecord.SIZE) {
+                    AuditRecord record = AuditRecord.readFrom(chunk);
+                    if (record == null) {
+                        return matched; // 資料結尾
+                    }
+                    if (filter.matches(record)) {
+                        matched++;
+                        if (!consumer.test(record)) {
+                            return -matched - 1;
+                        }
+                    }
+                }
+                chunk.compact();
+                if (chunk.position() > 0 && channel.position() >= channel.size()) {
+                    return matched; // 檔尾不完整的紀錄
+                }
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * 讀取條件，null 表示不限制。時間範圍為 [from, to)。
+     */
+    public record Query(Long userId, String email, Instant from, Instant to, Set<AuditEventType> types) {
+    }
+
+    // 事先換算好的條件 (email 指紋只計算一次)
+    private record Filter(boolean anyUser, long userId, boolean anyEmail, long emailFingerprint,
+            long fromMicros, long toMicros, Set<AuditEventType> types) {
+
+        Filter(Query query, EmailFingerprint fingerprint) {
+            this(query.userId() == null, query.userId() != null ? query.userId() : 0,
+                    query.email() == null, emailFingerprint(query.email(), fingerprint),
+                    query.from() != null ? AuditRecord.toMicros(query.from()) : Long.MIN_VALUE,
+                    query.to() != null ? AuditRecord.toMicros(query.to()) : Long.MAX_VALUE,
+                    query.types() == null || query.types().isEmpty() ? null : query.types());
+        }
+
+        private static long emailFingerprint(String email, EmailFingerprint fingerprint) {
+            if (email == null) {
+                return 0;
+            }
+            if (fingerprint == null) {
+                throw new IllegalArgumentException("Querying by email requires the audit fingerprint key");
+            }
+            return fingerprint.fingerprint(email);
+        }
+
+        boolean matches(AuditRecord record) {
+            return record.timestampMicros() >= fromMicros && record.timestampMicros() < toMicros
+                    && (anyUser || record.userId() == userId)
+                    && (anyEmail || record.emailFingerprint() == emailFingerprint)
+                    && (types == null || types.contains(record.type()));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.securelogin.audit;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.zip.CRC32C;
+
+/**
+ * 一筆稽核紀錄，固定 {@value #SIZE} bytes (big-endian)：
+ * <pre>
+ *  0  long  timestampMicros   事件時間 (epoch 微秒)
+ *  8  long  userId            未知時為 -1
+ * 16  long  emailFingerprint  {@link EmailFingerprint}，不儲存 email 本身；沒有時為 0
+ * 24  short type              {@link AuditEventType#code()}
+ * 26  short reserved
+ * 28  int   crc               前 28 bytes 的 CRC32C
+ * </pre>
+ * CRC 不符的紀錄 (包含預先配置、尚未寫入的全 0 區域) 視為資料結尾。
+ */
+public record AuditRecord(long timestampMicros, long userId, long emailFingerprint, AuditEventType type) {
+
+    public static final int SIZE = 32;
+    public static final long UNKNOWN_USER = -1;
+
+    private static final int CRC_OFFSET = 28;
+
+    public Instant timestamp() {
+        return Instant.ofEpochSecond(Math.floorDiv(timestampMicros, 1_000_000),
+                Math.floorMod(timestampMicros, 1_000_000) * 1_000L);
+    }
+
+    public static long toMicros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+
+    /**
+     * 寫入 {@code buffer} 目前的位置，{@code buffer} 的 position 前進 {@value #SIZE}。
+     */
+    public void writeTo(ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.putLong(timestampMicros)
+                .putLong(userId)
+                .putLong(emailFingerprint)
+                .putShort(type.code())
+                .putShort((short) 0);
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(start).limit(start + CRC_OFFSET));
+        buffer.putInt((int) crc.getValue());
+    }
+
+    /**
+     * 從 {@code buffer} 目前的位置讀取一筆；不完整或損毀時回傳 null 且不移動 position。
+     */
+    public static AuditRecord readFrom(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < SIZE) {
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(start).limit(start + CRC_OFFSET));
+        if ((int) crc.getValue() != buffer.getInt(start + CRC_OFFSET)) {
+            return null;
+        }
+        long timestampMicros = buffer.getLong();
+        long userId = buffer.getLong();
+        long emailFingerprint = buffer.getLong();
+        short code = buffer.getShort();
+        buffer.position(start + SIZE);
+        return new AuditRecord(timestampMicros, userId, emailFingerprint, AuditEventType.fromCode(code));
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.securelogin.audit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 稽核 segment 檔案的命名與檔頭格式。
+ * <p>
+ * 檔名為 {@code audit-<建立時間 epoch 微秒, 20 位數>.seg}，依檔名排序即為時間順序。
+ * 檔頭固定 {@value #HEADER_SIZE} bytes：magic {@code AUDT}、版本、紀錄長度與建立時間，其後是連續的
+ * {@link AuditRecord}。檔案在建立時就配置成 segment-size 大小，未寫入的部分為 0。
+ */
+final class AuditSegments {
+
+    static final int HEADER_SIZE = 64;
+    static final int MAGIC = 0x41554454; // "AUDT"
+    static final short VERSION = 1;
+
+    private static final String PREFIX = "audit-";
+    private static final String SUFFIX = ".seg";
+
+    private AuditSegments() {
+    }
+
+    static Path path(Path directory, long createdMicros) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, createdMicros, SUFFIX));
+    }
+
+    // 目錄中所有 segment，依建立時間排序
+    static List<Path> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>(files
+                    .filter(path -> createdMicros(path) != Long.MIN_VALUE)
+                    .toList());
+            segments.sort(null);
+            return segments;
+        }
+    }
+
+    // 由檔名取得建立時間；不是 segment 檔時回傳 Long.MIN_VALUE
+    static long createdMicros(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+            return Long.MIN_VALUE;
+        }
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    static void writeHeader(ByteBuffer buffer, long createdMicros) {
+        buffer.putInt(0, MAGIC)
+                .putShort(4, VERSION)
+                .putShort(6, (short) AuditRecord.SIZE)
+                .putLong(8, createdMicros);
+    }
+
+    static void checkHeader(ByteBuffer buffer, Path path) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an audit segment: " + path);
+        }
+        if (buffer.getShort(4) != VERSION || buffer.getShort(6) != AuditRecord.SIZE) {
+            throw new IOException("Unsupported audit segment version " + buffer.getShort(4) + ": " + path);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.securelogin.audit;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 把 {@link AuditRecord} 附加到 memory-mapped 的 segment 檔案 (格式見 {@link AuditSegments})。
+ * <p>
+ * 寫入只是記憶體複製，由作業系統在背景寫回磁碟；{@link #force()} 才保證已寫入的紀錄落地。
+ * segment 寫滿時自動換新檔。啟動時會接續最後一個 segment 中最後一筆有效紀錄之後寫入。
+ * <p>
+ * 不是 thread-safe，只能由單一執行緒使用 (見 {@link AuditLog})。
+ */
+public final class AuditWriter implements AutoCloseable {
+
+    private final Path directory;
+    private final long segmentSize;
+
+    private Path segment;
+    private MappedByteBuffer buffer;
+    private boolean dirty;
+
+    public AuditWriter(Path directory, long segmentSize, long nowMicros) throws IOException {
+        if (segmentSize < AuditSegments.HEADER_SIZE + AuditRecord.SIZE || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("segmentSize must be between "
+                    + (AuditSegments.HEADER_SIZE + AuditRecord.SIZE) + " and " + Integer.MAX_VALUE);
+        }
+        this.directory = directory;
+        // 對齊紀錄長度，檔尾不會留下半筆的空間
+        this.segmentSize = AuditSegments.HEADER_SIZE
+                + (segmentSize - AuditSegments.HEADER_SIZE) / AuditRecord.SIZE * AuditRecord.SIZE;
+        Files.createDirectories(directory);
+
+        List<Path> segments = AuditSegments.list(directory);
+        if (segments.isEmpty() || !resume(segments.get(segments.size() - 1))) {
+            open(nowMicros);
+        }
+    }
+
+    public void append(AuditRecord record) throws IOException {
+        if (buffer.remaining() < AuditRecord.SIZE) {
+            roll(record.timestampMicros());
+        }
+        record.writeTo(buffer);
+        dirty = true;
+    }
+
+    // 把尚未落地的紀錄寫回磁碟
+    public void force() {
+        if (dirty) {
+            buffer.force();
+            dirty = false;
+        }
+    }
+
+    public Path currentSegment() {
+        return segment;
+    }
+
+    @Override
+    public void close() {
+        force();
+    }
+
+    private void roll(long nowMicros) throws IOException {
+        force();
+        // 同一微秒內換檔時避免檔名重複
+        long created = Math.max(nowMicros, AuditSegments.createdMicros(segment) + 1);
+        open(created);
+    }
+
+    private void open(long createdMicros) throws IOException {
+        segment = AuditSegments.path(directory, createdMicros);
+        buffer = map(segment);
+        AuditSegments.writeHeader(buffer, createdMicros);
+        buffer.position(AuditSegments.HEADER_SIZE);
+        buffer.force();
+    }
+
+    // 接續既有 segment；檔案大小與目前設定不同時改開新檔
+    private boolean resume(Path path) throws IOException {
+        if (Files.size(path) != segmentSize) {
+            return false;
+        }
+        MappedByteBuffer mapped = map(path);
+        AuditSegments.checkHeader(mapped, path);
+        mapped.position(AuditSegments.HEADER_SIZE);
+        while (AuditRecord.readFrom(mapped) != null) {
+            // 找到最後一筆有效紀錄
+        }
+        segment = path;
+        buffer = mapped;
+        return true;
+    }
+
+    private MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // mapping 在 channel 關閉後仍然有效
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.securelogin.audit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * email 的指紋：去除空白、轉小寫後以伺服器端金鑰做 HMAC-SHA256，取前 8 bytes。
+ * <p>
+ * 沒有金鑰就無法拿 email 清單逐一計算來反查紀錄。金鑰為 {@code audit.fingerprint-key} (Base64)，
+ * 未設定時由 jwt.secret 衍生；讀取工具 ({@link AuditLogCli}) 必須使用相同的金鑰，
+ * 更換金鑰後舊紀錄無法再以 email 查詢。不是 thread-safe。
+ */
+public final class EmailFingerprint {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    // 未設定金鑰時，用此標籤從 jwt.secret 衍生出獨立的金鑰 (避免同一把金鑰用在不同用途)
+    private static final String DERIVATION_LABEL = "secure-login-api/audit-email-fingerprint";
+
+    private final Mac mac;
+
+    public EmailFingerprint(byte[] key) {
+        try {
+            this.mac = Mac.getInstance(ALGORITHM);
+            this.mac.init(new SecretKeySpec(key, ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to initialise audit email fingerprint", e);
+        }
+    }
+
+    /**
+     * 使用 {@code fingerprintKey} (Base64)，空白時由 {@code jwtSecret} (Base64) 衍生。
+     */
+    public static EmailFingerprint of(String fingerprintKey, String jwtSecret) {
+        if (fingerprintKey != null && !fingerprintKey.isBlank()) {
+            return new EmailFingerprint(Base64.getDecoder().decode(fingerprintKey.trim()));
+        }
+        if (jwtSecret == null || jwtSecret.isBlank()) {
+            throw new IllegalStateException("audit.fingerprint-key or jwt.secret is required");
+        }
+        try {
+            Mac derivation = Mac.getInstance(ALGORITHM);
+            derivation.init(new SecretKeySpec(Base64.getDecoder().decode(jwtSecret.trim()), ALGORITHM));
+            return new EmailFingerprint(derivation.doFinal(DERIVATION_LABEL.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to derive audit email fingerprint key", e);
+        }
+    }
+
+    /**
+     * 沒有 email 時回傳 0。
+     */
+    public long fingerprint(String email) {
+        if (email == null || email.isBlank()) {
+            return 0;
+        }
+        byte[] digest = mac.doFinal(email.trim().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+        return ByteBuffer.wrap(digest).getLong();
+    }
+}
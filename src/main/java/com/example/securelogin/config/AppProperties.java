@@ -4,9 +4,18 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 import lombok.Data;
 
+import java.time.ZoneId;
+import java.util.Locale;
+
 @Data
 @Component
 @ConfigurationProperties(prefix = "app")
 public class AppProperties {
     private String baseUrl;
+    // 郵件樣板中的應用程式名稱
+    private String name = "Our Secure Application";
+    // 郵件樣板語系 (例如 zh_TW)，找不到對應樣板時使用預設英文版
+    private Locale mailLocale = Locale.ENGLISH;
+    // 回應中顯示時間所用的時區
+    private ZoneId timeZone = ZoneId.of("Asia/Taipei");
 }
\ No newline at end of file
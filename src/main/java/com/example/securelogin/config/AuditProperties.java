@@ -0,0 +1,25 @@
+package com.example.securelogin.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "audit")
+public class AuditProperties {
+    private boolean enabled = true;
+    // segment 檔案所在目錄
+    private String directory = "logs/audit";
+    // 每個 segment 檔案的大小，寫滿後換新檔 (每筆 32 bytes)
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+    // request 執行緒與寫入執行緒之間的佇列容量，滿了丟棄並計入 audit.dropped
+    private int bufferCapacity = 65_536;
+    // 多久把寫入的紀錄強制落地一次
+    private Duration forceInterval = Duration.ofSeconds(1);
+    // email 指紋的 HMAC 金鑰 (Base64)，空白表示由 jwt.secret 衍生；讀取工具需要同一把金鑰
+    private String fingerprintKey = "";
+}
@@ -0,0 +1,38 @@
+package com.example.securelogin.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "email.outbox")
+public class EmailOutboxProperties {
+    // 實際寄信的 EmailService bean 名稱 (gmailService / mailjetEmailService)
+    private String provider = "gmailService";
+    // 每次取出的郵件數量；Mailjet 會把整批合併成一次 API 呼叫 (上限 mailjet.max-batch-size)
+    private int batchSize = 50;
+    // 同一批郵件同時寄送的數量 (只用於逐封寄送的 provider，例如 Gmail SMTP)
+    private int sendConcurrency = 4;
+    // 以 virtual thread 寄信 (同時寄送數量仍受 send-concurrency 限制)
+    private boolean virtualThreads = false;
+    // 佇列為空時的輪詢間隔
+    private Duration pollInterval = Duration.ofSeconds(1);
+    // 取走後的租約時間，逾時未完成會被重新寄送
+    private Duration lease = Duration.ofMinutes(2);
+    // 最多嘗試次數，超過後標記為 FAILED
+    private int maxAttempts = 8;
+    // 重試間隔 (指數退避)
+    private Duration initialBackoff = Duration.ofSeconds(5);
+    private Duration maxBackoff = Duration.ofMinutes(10);
+    // 關機時等待進行中批次完成的時間
+    private Duration drainTimeout = Duration.ofSeconds(30);
+    // 已寄出 / 已放棄的郵件保留多久後刪除 (payload 在完成時就已清除)
+    private Duration retention = Duration.ofDays(7);
+    // 刪除過期郵件的間隔
+    private Duration purgeInterval = Duration.ofHours(1);
+    // email.outbox.depth gauge 的更新間隔 (每次都要 count 整個佇列，不在每次 poll 時執行)
+    private Duration depthRefreshInterval = Duration.ofSeconds(30);
+}
@@ -0,0 +1,22 @@
+package com.example.securelogin.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "last-login")
+public class LastLoginProperties {
+    // true: 登入時間先記在記憶體，定期批次寫入 users.last_login_at
+    private boolean writeBehind = false;
+    // 批次寫入的間隔
+    private Duration flushInterval = Duration.ofSeconds(1);
+    // 單一 UPDATE 最多更新幾位使用者
+    private int batchSize = 500;
+    // /api/user/last-login 回應快取的數量上限與保留時間 (見 LastLoginProjection)
+    private long projectionMaxSize = 10_000;
+    private Duration projectionTtl = Duration.ofMinutes(1);
+}
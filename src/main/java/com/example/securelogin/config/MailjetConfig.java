@@ -5,6 +5,8 @@ import org.springframework.context.annotation.Configuration;
 
 import lombok.Data;
 
+import java.time.Duration;
+
 @Data
 @Configuration
 @ConfigurationProperties(prefix = "mailjet")
@@ -14,4 +16,12 @@ public class MailjetConfig {
     private String secretKey;
     private String senderEmail;
     private String senderName;
+    // 未設定時使用 Mailjet 預設的 https://api.mailjet.com
+    private String baseUrl;
+    // 逐封送出的郵件收集成一批的時間窗，以及每次 API 呼叫的數量上限 (Send API v3.1 最多 50 封)
+    // outbox dispatcher 直接交出整批郵件，不經過時間窗
+    private Duration batchWindow = Duration.ofMillis(50);
+    private int maxBatchSize = 50;
+    // 呼叫端等待單封郵件結果的上限
+    private Duration sendTimeout = Duration.ofSeconds(30);
 }
@@ -0,0 +1,23 @@
+package com.example.securelogin.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "partition-maintenance")
+public class PartitionMaintenanceProperties {
+    // 是否 DROP 過期分區；預先建立分區不受影響 (沒有 DEFAULT 分區，缺少分區時 INSERT 會失敗)
+    private boolean enabled = true;
+    // 預先建立未來幾天的分區
+    private int premakeDays = 7;
+    // 分區的上界 (expires_at) 超過多久後才刪除，保留期間內的過期權杖仍可回報「已過期」
+    private Duration retention = Duration.ofDays(1);
+    // 執行間隔
+    private Duration interval = Duration.ofHours(1);
+    // 取得 partition 相關 lock 的最長等待時間，避免卡住一般查詢
+    private Duration lockTimeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,41 @@
+package com.example.securelogin.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "password-hashing")
+public class PasswordHashingProperties {
+    // 專用執行緒數量，0 表示使用 CPU 核心數
+    private int threads = 0;
+    // 等待佇列長度，滿了直接回 503
+    private int queueCapacity = 64;
+    // 在佇列中最多等待多久，超過就放棄並回 503
+    private Duration maxWait = Duration.ofSeconds(2);
+    // 回 503 時 Retry-After 的秒數
+    private long retryAfterSeconds = 1;
+
+    // 新密碼使用的演算法: bcrypt / argon2 (argon2id)
+    private String algorithm = "bcrypt";
+    // 成本參數固定，所有主機相同
+    private int bcryptCost = 12;
+    // Argon2id 記憶體 (KiB)、平行度與 iterations
+    private int argon2MemoryKib = 19456;
+    private int argon2Parallelism = 1;
+    private int argon2Iterations = 2;
+
+    // 啟動時量測並回報建議的成本參數 (只回報，不套用)
+    private boolean calibrate = false;
+    // 單次雜湊的目標時間，校正時依此選出建議值
+    private Duration targetHashTime = Duration.ofMillis(250);
+    // 每個候選參數量測幾次 (取中位數)
+    private int calibrationSamples = 3;
+    // 校正範圍：BCrypt cost min ~ max，Argon2id iterations 2 ~ max
+    private int minBcryptCost = 10;
+    private int maxBcryptCost = 14;
+    private int maxArgon2Iterations = 10;
+}
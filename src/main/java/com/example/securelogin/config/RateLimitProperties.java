@@ -0,0 +1,41 @@
+package com.example.securelogin.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+    private boolean enabled = true;
+    // token bucket 總數上限 (所有 endpoint 與 key 合計)，滿了且沒有閒置的 bucket 可回收時淘汰最接近補滿的 bucket
+    private int maxBuckets = 100_000;
+    private int stripes = 16;
+    // 多久清除一次已經補滿 (閒置) 的 bucket
+    private Duration sweepInterval = Duration.ofSeconds(30);
+    // 為了取得 email 最多讀取的 request body 長度，超過的部分不解析
+    private int maxBodyBytes = 8192;
+    // key: request path，例如 /api/login
+    private Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+
+    @Data
+    public static class Endpoint {
+        // 以 client IP 計算，未設定表示不限制
+        private Limit perClient;
+        // 以正規化後的 email 計算，未設定表示不限制
+        private Limit perAccount;
+    }
+
+    @Data
+    public static class Limit {
+        // 最多可連續請求的次數 (bucket 容量)
+        private int capacity;
+        // 從空到補滿所需的時間
+        private Duration period;
+    }
+}
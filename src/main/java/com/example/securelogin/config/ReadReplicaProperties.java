@@ -0,0 +1,31 @@
+package com.example.securelogin.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "read-replicas")
+public class ReadReplicaProperties {
+    // true: @Transactional(readOnly = true) 的交易改用 replica 連線 (見 ReadReplicaDataSourceConfig)
+    private boolean enabled = false;
+    // replica 連線設定，username/password 未設定時沿用 spring.datasource
+    private List<Replica> replicas = new ArrayList<>();
+    // replica 落後超過此時間即不再使用，直到追上為止
+    private Duration maxLag = Duration.ofSeconds(1);
+    // 檢查 replica 落後程度的間隔
+    private Duration lagCheckInterval = Duration.ofSeconds(1);
+
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
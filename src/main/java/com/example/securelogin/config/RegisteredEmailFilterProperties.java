@@ -0,0 +1,22 @@
+package com.example.securelogin.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "registered-email-filter")
+public class RegisteredEmailFilterProperties {
+    // false: 每次註冊都直接查資料庫
+    private boolean enabled = true;
+    // 預期的使用者數量下限，實際大小取 max(此值, 目前使用者數 * 2)
+    private long expectedInsertions = 1_000_000;
+    private double falsePositiveRate = 0.01;
+    // 定期重建，反映刪除的使用者與其他 instance 的註冊，並依使用者數量調整大小
+    private Duration rebuildInterval = Duration.ofHours(6);
+    // 串流讀取 users 時每次取回的筆數
+    private int fetchSize = 10_000;
+}
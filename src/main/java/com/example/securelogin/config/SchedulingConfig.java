@@ -0,0 +1,10 @@
+package com.example.securelogin.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// 啟用 @Scheduled (例如 PartitionMaintenanceJob)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,25 @@
+package com.example.securelogin.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "two-factor")
+public class TwoFactorProperties {
+    // 驗證碼存放位置: jpa (two_factor_auth_codes 資料表) / memory (單機或 sticky session)
+    private String store = "jpa";
+    // 驗證碼有效時間
+    private Duration codeTtl = Duration.ofMinutes(5);
+    // 同一個驗證碼最多可錯誤幾次，達到即失效
+    private int maxAttempts = 5;
+    // memory store 最多同時保存的驗證碼數量，滿了回 503
+    private int maxEntries = 100_000;
+    // memory store 的 lock 分段數量
+    private int lockStripes = 64;
+    // memory store 過期檢查的間隔 (timer wheel 的 tick)
+    private Duration expiryTick = Duration.ofSeconds(1);
+}
@@ -0,0 +1,17 @@
+package com.example.securelogin.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "user-cache")
+public class UserCacheProperties {
+    // 每個索引 (email / id) 最多快取的使用者數量，設為 0 等於停用快取
+    private long maxSize = 10_000;
+    // 寫入後多久過期
+    private Duration ttl = Duration.ofSeconds(60);
+}
@@ -4,14 +4,16 @@ import com.example.securelogin.service.UserService;
 
 import com.example.securelogin.dto.RegisterRequest;
 import com.example.securelogin.dto.RegisterResponse;
-import com.example.securelogin.entity.User;
 import com.example.securelogin.dto.LoginRequest;
 import com.example.securelogin.dto.LoginVerifyRequest;
 import com.example.securelogin.dto.LoginVerifyResponse;
 import com.example.securelogin.dto.LastLoginResponse;
 import com.example.securelogin.dto.ErrorResponse;
 
+import com.example.securelogin.service.LastLoginProjection;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.HttpStatus;
@@ -19,6 +21,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import jakarta.validation.Valid;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -44,11 +47,11 @@ public class UserController {
     })
     @PostMapping("/register")
     public ResponseEntity<?> register(@Valid @RequestBody RegisterRequest request) {
-        logger.info("Controller: Received registration request for email: {}", request.getEmail());
+        logger.debug("Controller: Received registration request for email: {}", request.getEmail());
 
         userService.registerUser(request);
 
-        logger.info("Controller: UserService successfully processed registration for email: {}",
+        logger.debug("Controller: UserService successfully processed registration for email: {}",
                 request.getEmail());
         return ResponseEntity.status(HttpStatus.CREATED).body(RegisterResponse.builder()
                 .email(request.getEmail())
@@ -98,12 +101,19 @@ public class UserController {
     @Operation(summary = "查詢自己的最後登入時間", description = "只允許已登入的使用者查詢自己的最後登入時間，使用者需使用JWT access token當作身分驗證")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "查詢成功，返回最後登入時間", content = @Content(mediaType = "application/json", schema = @Schema(implementation = LastLoginResponse.class))),
+            @ApiResponse(responseCode = "304", description = "If-None-Match 與目前的 ETag 相同，最後登入時間沒有變化"),
             @ApiResponse(responseCode = "401", description = "未授權", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
             @ApiResponse(responseCode = "404", description = "找不到使用者，或使用者尚未有登入紀錄", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
             @ApiResponse(responseCode = "500", description = "伺服器錯誤", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
     })
     @GetMapping("/user/last-login")
-    public ResponseEntity<?> getLastLogin(@AuthenticationPrincipal User user) {
-        return ResponseEntity.ok().body(userService.getLastLoginInfo(user));
+    public ResponseEntity<?> getLastLogin(@AuthenticationPrincipal UserDetails principal) {
+        // principal 可能是資料庫載入的 UserSnapshot，或 stateless 模式下由 token claims 還原的 AuthenticatedUser
+        LastLoginProjection.View view = userService.getLastLoginInfo(principal);
+        // 帶 ETag 的 GET 回應由 Spring 比對 If-None-Match，相同時回 304 且不輸出 body
+        return ResponseEntity.ok()
+                .eTag(view.etag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(view.body());
     }
 }
\ No newline at end of file
@@ -12,10 +12,14 @@ import java.time.OffsetDateTime;
 public class EmailVerificationToken {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_verification_tokens_seq")
+    @SequenceGenerator(name = "email_verification_tokens_seq", sequenceName = "email_verification_tokens_seq",
+            allocationSize = 50)
     private Long id;
 
-    @Column(nullable = false, unique = true)
+    // 分區表只能保證 (token, expires_at) 唯一 (見 V2)，資料庫不再保證 token 本身唯一；
+    // token 為隨機 UUID，碰撞機率可忽略
+    @Column(nullable = false)
     private String token;
 
     @Column(name = "user_id", nullable = false)
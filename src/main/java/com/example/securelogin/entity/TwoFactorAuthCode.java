@@ -16,7 +16,9 @@ import java.time.OffsetDateTime;
 public class TwoFactorAuthCode {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "two_factor_auth_codes_seq")
+    @SequenceGenerator(name = "two_factor_auth_codes_seq", sequenceName = "two_factor_auth_codes_seq",
+            allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -35,6 +37,10 @@ public class TwoFactorAuthCode {
     @Column(name = "used", nullable = false)
     private boolean used;
 
+    // 嘗試次數 (含相符的那一次)，達到 two-factor.max-attempts 時 used 設為 true
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
     @PrePersist
     protected void onCreate() {
         createdAt = OffsetDateTime.now();
@@ -17,8 +17,13 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 @Table(name = "users")
 public class User implements UserDetails {
 
+    // 目前所有使用者都是同一個角色
+    public static final List<GrantedAuthority> AUTHORITIES = List.of(new SimpleGrantedAuthority("USER"));
+
+    // allocationSize 必須與 V3 migration 的 INCREMENT BY 相同
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -52,7 +57,7 @@ public class User implements UserDetails {
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return List.of(new SimpleGrantedAuthority("USER"));
+        return AUTHORITIES;
     }
 
     @Override
@@ -0,0 +1,11 @@
+package com.example.securelogin.exception;
+
+/**
+ * 註冊時 email 已存在，由 GlobalExceptionHandler 轉為 409 Conflict。
+ */
+public class EmailAlreadyRegisteredException extends RuntimeException {
+
+    public EmailAlreadyRegisteredException(String message) {
+        super(message);
+    }
+}
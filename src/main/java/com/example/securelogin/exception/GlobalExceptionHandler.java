@@ -5,8 +5,11 @@ import com.example.securelogin.dto.ErrorResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.postgresql.util.PSQLException;
 import java.util.NoSuchElementException;
@@ -31,11 +34,11 @@ public class GlobalExceptionHandler {
         @ExceptionHandler(MethodArgumentNotValidException.class)
         public ErrorResponse handleValidationExceptions(MethodArgumentNotValidException ex,
                         HttpServletRequest request) {
-                logger.warn("Validation failed for request URI {}: {} - Errors: {}", request.getRequestURI(),
-                                ex.getMessage(), ex);
                 String errors = ex.getBindingResult().getFieldErrors().stream()
                                 .map(error -> error.getField() + ": " + error.getDefaultMessage())
                                 .collect(Collectors.joining("; "));
+                // 4xx 是預期中的結果，不記錄 stack trace
+                logger.warn("Validation failed for request URI {}: {}", request.getRequestURI(), errors);
 
                 return new ErrorResponse(
                                 400,
@@ -72,6 +75,35 @@ public class GlobalExceptionHandler {
                                 "A database constraint was violated");
         }
 
+        /**
+         * 處理 EmailAlreadyRegisteredException 異常 (註冊前檢查到 email 已存在)。
+         * HTTP 狀態碼會是 409 Conflict，與資料庫 unique 約束違規的回應相同。
+         */
+        @ResponseStatus(HttpStatus.CONFLICT)
+        @ExceptionHandler(EmailAlreadyRegisteredException.class)
+        public ErrorResponse handleEmailAlreadyRegisteredException(EmailAlreadyRegisteredException ex,
+                        HttpServletRequest request) {
+                logger.warn("EmailAlreadyRegisteredException at URI {}: {}", request.getRequestURI(), ex.getMessage());
+                return new ErrorResponse(
+                                409,
+                                ex.getMessage());
+        }
+
+        /**
+         * 處理無法解析的 request body (不是 JSON、欄位重複等)。
+         * 回傳 400 Bad Request，不把解析器的訊息回給客戶端。
+         */
+        @ResponseStatus(HttpStatus.BAD_REQUEST)
+        @ExceptionHandler(HttpMessageNotReadableException.class)
+        public ErrorResponse handleHttpMessageNotReadableException(HttpMessageNotReadableException ex,
+                        HttpServletRequest request) {
+                logger.warn("Unreadable request body at URI {}: {}", request.getRequestURI(),
+                                ex.getMostSpecificCause().getMessage());
+                return new ErrorResponse(
+                                400,
+                                "Malformed request body");
+        }
+
         /**
          * 處理由 Service 層拋出的 IllegalArgumentException 和 IllegalStateException。
          * 這些異常已經包含了 HTTP 狀態碼和原因。
@@ -79,7 +111,7 @@ public class GlobalExceptionHandler {
         @ResponseStatus(HttpStatus.BAD_REQUEST)
         @ExceptionHandler({ IllegalArgumentException.class, IllegalStateException.class })
         public ErrorResponse handleIllegalArgumentException(Exception ex, HttpServletRequest request) {
-                logger.warn("IllegalArgumentException at URI {}: {}", request.getRequestURI(), ex.getMessage(), ex);
+                logger.warn("{} at URI {}: {}", ex.getClass().getSimpleName(), request.getRequestURI(), ex.getMessage());
                 return new ErrorResponse(
                                 400,
                                 ex.getMessage());
@@ -93,7 +125,7 @@ public class GlobalExceptionHandler {
         @ExceptionHandler(NoSuchElementException.class)
         public ErrorResponse handleNoSuchElementException(NoSuchElementException ex,
                         HttpServletRequest request) {
-                logger.warn("NoSuchElementException at URI {}: {}", request.getRequestURI(), ex.getMessage(), ex);
+                logger.warn("NoSuchElementException at URI {}: {}", request.getRequestURI(), ex.getMessage());
                 // Typically, "not found" maps to HTTP 404
                 ErrorResponse errorResponse = new ErrorResponse(
                                 HttpStatus.NOT_FOUND.value(),
@@ -109,7 +141,7 @@ public class GlobalExceptionHandler {
         @ExceptionHandler(BadCredentialsException.class)
         public ErrorResponse handleBadCredentialsException(BadCredentialsException ex,
                         HttpServletRequest request) {
-                logger.warn("BadCredentialsException at URI {}: {}", request.getRequestURI(), ex.getMessage(), ex);
+                logger.warn("BadCredentialsException at URI {}: {}", request.getRequestURI(), ex.getMessage());
                 return new ErrorResponse(
                                 401,
                                 ex.getMessage());
@@ -129,6 +161,37 @@ public class GlobalExceptionHandler {
                                 errorMessage + ex.getMessage());
         }
 
+        /**
+         * 處理 ServiceOverloadedException 異常 (例如密碼雜湊佇列已滿)。
+         * 回傳 503 Service Unavailable，並以 Retry-After header 告知客戶端多久後再試。
+         */
+        @ExceptionHandler(ServiceOverloadedException.class)
+        public ResponseEntity<ErrorResponse> handleServiceOverloadedException(ServiceOverloadedException ex,
+                        HttpServletRequest request) {
+                logger.warn("ServiceOverloadedException at URI {}: {}", request.getRequestURI(), ex.getMessage());
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                                .body(new ErrorResponse(
+                                                503,
+                                                ex.getMessage()));
+        }
+
+        /**
+         * 處理 RateLimitExceededException 異常 (由 RateLimitFilter 拋出)。
+         * 回傳 429 Too Many Requests，並以 Retry-After header 告知客戶端多久後再試。
+         */
+        @ExceptionHandler(RateLimitExceededException.class)
+        public ResponseEntity<ErrorResponse> handleRateLimitExceededException(RateLimitExceededException ex,
+                        HttpServletRequest request) {
+                logger.warn("RateLimitExceededException at URI {} from {}: {}", request.getRequestURI(),
+                                request.getRemoteAddr(), ex.getMessage());
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                                .body(new ErrorResponse(
+                                                429,
+                                                ex.getMessage()));
+        }
+
         /**
          * 處理其他未被特定處理器捕獲的通用異常。
          * 這是一個很好的兜底機制。
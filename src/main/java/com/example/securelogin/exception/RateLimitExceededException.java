@@ -0,0 +1,19 @@
+package com.example.securelogin.exception;
+
+/**
+ * 請求超過速率限制 (見 RateLimitFilter)，由 GlobalExceptionHandler 轉為
+ * 429 Too Many Requests，並以 Retry-After 告知客戶端多久後再試。
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.securelogin.exception;
+
+/**
+ * 伺服器暫時無法處理請求 (例如密碼雜湊佇列已滿)，由 GlobalExceptionHandler 轉為
+ * 503 Service Unavailable，並以 Retry-After 告知客戶端多久後再試。
+ */
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
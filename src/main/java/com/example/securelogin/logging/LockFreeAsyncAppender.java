@@ -0,0 +1,196 @@
+package com.example.securelogin.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+import com.example.securelogin.util.MpscRingBuffer;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 非同步 appender：記錄 log 的執行緒只把 event 放進固定大小的 lock-free ring buffer ({@link MpscRingBuffer})，
+ * 由單一背景執行緒寫到後面的 appender (設定方式與 logback 的 AsyncAppender 相同，以 appender-ref 指定)。
+ * <p>
+ * logback 內建的 AsyncAppender 使用 ArrayBlockingQueue，所有記錄 log 的執行緒共用一把 lock；
+ * 這裡改用 CAS，佇列滿了直接丟棄 (不阻塞 request)，並定期寫一筆 WARN 回報丟棄的數量，
+ * 累計數量也會以 {@code logging.async.dropped} 指標提供 (見 {@link LoggingMetrics})。
+ */
+public class LockFreeAsyncAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+        implements AppenderAttachable<ILoggingEvent> {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private int capacity = 8192;
+    private boolean includeCallerData = false;
+    private long maxFlushTime = 1000;
+    private long dropReportInterval = 10_000;
+
+    private volatile MpscRingBuffer<ILoggingEvent> queue;
+    private volatile boolean running;
+    private Thread worker;
+    private long reportedDropped;
+    private long lastDropReport;
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (!appenders.iteratorForAppenders().hasNext()) {
+            addError("No appender attached to " + getName());
+            return;
+        }
+        queue = new MpscRingBuffer<>(capacity);
+        running = true;
+        worker = new Thread(this::drain, "logback-async-" + getName());
+        worker.setDaemon(true);
+        worker.start();
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(maxFlushTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            addWarn("Stopped " + getName() + " with " + queue.size() + " events still queued");
+        }
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        // 在記錄的執行緒上先固定 thread name、MDC 與格式化後的訊息
+        event.prepareForDeferredProcessing();
+        if (includeCallerData) {
+            event.getCallerData();
+        }
+        if (!queue.offer(event)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void drain() {
+        MpscRingBuffer<ILoggingEvent> events = queue;
+        while (running || events.size() > 0) {
+            ILoggingEvent event = events.poll();
+            if (event == null) {
+                reportDrops(false);
+                if (running) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                continue;
+            }
+            appenders.appendLoopOnAppenders(event);
+        }
+        reportDrops(true);
+    }
+
+    // 由背景執行緒寫入一筆丟棄數量的 WARN
+    private void reportDrops(boolean force) {
+        long total = dropped.get();
+        long now = System.currentTimeMillis();
+        if (total == reportedDropped || (!force && now - lastDropReport < dropReportInterval)) {
+            return;
+        }
+        Logger logger = ((LoggerContext) getContext()).getLogger(LockFreeAsyncAppender.class);
+        LoggingEvent event = new LoggingEvent(LockFreeAsyncAppender.class.getName(), logger, Level.WARN,
+                "Dropped {} log events because the async queue of " + getName() + " (capacity {}) was full",
+                null, new Object[] { total - reportedDropped, capacity });
+        appenders.appendLoopOnAppenders(event);
+        reportedDropped = total;
+        lastDropReport = now;
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public int getQueueSize() {
+        MpscRingBuffer<ILoggingEvent> events = queue;
+        return events != null ? events.size() : 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // 會調整為 2 的次方
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public boolean isIncludeCallerData() {
+        return includeCallerData;
+    }
+
+    public void setIncludeCallerData(boolean includeCallerData) {
+        this.includeCallerData = includeCallerData;
+    }
+
+    // 關閉時最多等待寫完的毫秒數
+    public void setMaxFlushTime(long maxFlushTime) {
+        this.maxFlushTime = maxFlushTime;
+    }
+
+    // 回報丟棄數量的最短間隔 (毫秒)
+    public void setDropReportInterval(long dropReportInterval) {
+        this.dropReportInterval = dropReportInterval;
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> appender) {
+        appenders.addAppender(appender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+}
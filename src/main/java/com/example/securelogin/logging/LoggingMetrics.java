@@ -0,0 +1,53 @@
+package com.example.securelogin.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+
+/**
+ * 把 logback 設定中的 {@link LockFreeAsyncAppender} 與 {@link SamplingTurboFilter} 的計數註冊為指標。
+ * 沒有使用這些元件的 profile (例如開發環境) 不會註冊任何指標。
+ */
+@Component
+public class LoggingMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+            return;
+        }
+        Iterator<Appender<ILoggingEvent>> appenders = context.getLogger(Logger.ROOT_LOGGER_NAME)
+                .iteratorForAppenders();
+        while (appenders.hasNext()) {
+            if (appenders.next() instanceof LockFreeAsyncAppender async) {
+                FunctionCounter.builder("logging.async.dropped", async, LockFreeAsyncAppender::getDroppedCount)
+                        .description("Log events dropped because the async queue was full")
+                        .tag("appender", async.getName())
+                        .register(registry);
+                Gauge.builder("logging.async.queue.size", async, LockFreeAsyncAppender::getQueueSize)
+                        .description("Log events waiting to be written")
+                        .tag("appender", async.getName())
+                        .register(registry);
+            }
+        }
+        for (TurboFilter filter : context.getTurboFilterList()) {
+            if (filter instanceof SamplingTurboFilter sampling) {
+                FunctionCounter.builder("logging.sampled.suppressed", sampling,
+                        SamplingTurboFilter::getSuppressedCount)
+                        .description("Expected-failure log events suppressed by sampling")
+                        .tag("category", sampling.getLoggerPrefix())
+                        .register(registry);
+            }
+        }
+    }
+}
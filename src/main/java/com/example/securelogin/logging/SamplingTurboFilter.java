@@ -0,0 +1,88 @@
+package com.example.securelogin.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import com.example.securelogin.util.Gcra;
+import org.slf4j.Marker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 對某一類 (logger 名稱前綴) 預期中的失敗 log 做速率限制，例如大量錯誤密碼或無效 token 造成的 WARN。
+ * <p>
+ * 在 event 建立之前判斷，被丟棄的 log 不會格式化也不會進入 appender。
+ * {@code level} 以下 (含) 的 log 每秒最多 {@code permitsPerSecond} 筆 (可連續 {@code burst} 筆)，
+ * ERROR 一律保留。被丟棄的數量以 {@code logging.sampled.suppressed} 指標提供 (見 {@link LoggingMetrics})。
+ * 每個 filter 只處理一個前綴，多個類別就設定多個 filter。
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private final AtomicLong suppressed = new AtomicLong();
+    // 下一個 permit 的 TAT (見 Gcra)
+    private final AtomicLong nextPermitNanos = new AtomicLong(System.nanoTime());
+
+    private String loggerPrefix;
+    private Level level = Level.WARN;
+    private int permitsPerSecond = 10;
+    private int burst = 20;
+
+    private long intervalNanos;
+    private long toleranceNanos;
+
+    @Override
+    public void start() {
+        if (loggerPrefix == null || loggerPrefix.isEmpty()) {
+            addError("loggerPrefix is required for " + getName());
+            return;
+        }
+        if (level.isGreaterOrEqual(Level.ERROR)) {
+            addWarn("ERROR logs are never sampled; limiting " + loggerPrefix + " to WARN");
+            level = Level.WARN;
+        }
+        intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, permitsPerSecond);
+        toleranceNanos = Gcra.tolerance(intervalNanos, burst);
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level eventLevel, String format, Object[] params,
+            Throwable t) {
+        if (!isStarted() || eventLevel == null || eventLevel.isGreaterOrEqual(Level.ERROR)
+                || !level.isGreaterOrEqual(eventLevel) || !logger.getName().startsWith(loggerPrefix)
+                || !eventLevel.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        if (Gcra.tryAcquire(nextPermitNanos, intervalNanos, toleranceNanos, System.nanoTime()) > 0) {
+            suppressed.incrementAndGet();
+            return FilterReply.DENY;
+        }
+        return FilterReply.NEUTRAL;
+    }
+
+    public long getSuppressedCount() {
+        return suppressed.get();
+    }
+
+    public String getLoggerPrefix() {
+        return loggerPrefix;
+    }
+
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+
+    public void setLevel(String level) {
+        this.level = Level.toLevel(level, Level.WARN);
+    }
+
+    public void setPermitsPerSecond(int permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    public void setBurst(int burst) {
+        this.burst = burst;
+    }
+}
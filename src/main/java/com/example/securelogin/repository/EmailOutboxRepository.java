@@ -0,0 +1,59 @@
+package com.example.securelogin.repository;
+
+import com.example.securelogin.entity.EmailOutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+        // 取得一批可寄送的郵件並上鎖；SKIP LOCKED 讓多個 instance 的 dispatcher 不會搶同一筆
+        // PROCESSING 且租約已過期的郵件 (例如 instance 當機) 也會被重新取走
+        @Query(value = "SELECT * FROM email_outbox " +
+                        "WHERE status IN ('PENDING', 'PROCESSING') " +
+                        "AND next_attempt_at <= :now " +
+                        "ORDER BY id " +
+                        "LIMIT :limit " +
+                        "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+        List<EmailOutboxMessage> lockNextBatch(@Param("now") OffsetDateTime now, @Param("limit") int limit);
+
+        long countByStatusIn(Collection<EmailOutboxMessage.Status> statuses);
+
+        // 刪除一批 created_at 早於 :before 的已寄出 / 已放棄郵件，回傳刪除筆數 (小於 :limit 表示已刪完)
+        @Modifying
+        @Query(value = "DELETE FROM email_outbox WHERE id IN (" +
+                        "SELECT id FROM email_outbox " +
+                        "WHERE status IN ('SENT', 'FAILED') " +
+                        "AND created_at < :before " +
+                        "LIMIT :limit)", nativeQuery = true)
+        int deleteFinishedBefore(@Param("before") OffsetDateTime before, @Param("limit") int limit);
+
+        // 寄出或放棄：記錄結果並清除 payload (不保留驗證權杖與驗證碼)
+        @Modifying
+        @Query("UPDATE EmailOutboxMessage m SET m.status = :status, m.sentAt = :sentAt, m.payload = null, " +
+                        "m.attempts = m.attempts + 1, m.lastError = :error " +
+                        "WHERE m.id = :id")
+        int complete(@Param("id") Long id, @Param("status") EmailOutboxMessage.Status status,
+                        @Param("sentAt") OffsetDateTime sentAt, @Param("error") String error);
+
+        // 寄送失敗，稍後重試
+        @Modifying
+        @Query("UPDATE EmailOutboxMessage m SET m.status = :status, m.nextAttemptAt = :nextAttemptAt, " +
+                        "m.attempts = m.attempts + 1, m.lastError = :error " +
+                        "WHERE m.id = :id")
+        int reschedule(@Param("id") Long id, @Param("status") EmailOutboxMessage.Status status,
+                        @Param("nextAttemptAt") OffsetDateTime nextAttemptAt, @Param("error") String error);
+
+        // 關機時把已取走但尚未寄出的郵件還回佇列
+        @Modifying
+        @Query("UPDATE EmailOutboxMessage m SET m.status = :pending, m.nextAttemptAt = :now " +
+                        "WHERE m.id IN :ids AND m.status = :processing")
+        int release(@Param("ids") Collection<Long> ids, @Param("now") OffsetDateTime now,
+                        @Param("pending") EmailOutboxMessage.Status pending,
+                        @Param("processing") EmailOutboxMessage.Status processing);
+}
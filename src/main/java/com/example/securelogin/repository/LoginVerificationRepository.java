@@ -0,0 +1,129 @@
+package com.example.securelogin.repository;
+
+import com.example.securelogin.entity.User;
+import com.example.securelogin.security.AuthenticatedUser;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 登入驗證 (login-verify) 的單一 SQL 操作，不經過 JPA 實體。
+ */
+@Repository
+public class LoginVerificationRepository {
+
+    // 在同一個 statement 中檢查驗證碼並計入一次嘗試：使用者目前有效的驗證碼 attempts 加一，
+    // 雜湊相符或達到 max-attempts 時標記為已使用，相符時再記錄登入時間。
+    // 不論對錯都更新同一個 row，同時送出的嘗試會依序等待 row lock 並重新檢查 used 與 attempts，
+    // 因此驗證碼只能成功一次，錯誤嘗試也不會超過 max-attempts 次。
+    private static final String ATTEMPT_CODE_AND_RECORD_LOGIN = """
+            WITH attempt AS (
+                UPDATE two_factor_auth_codes c
+                SET attempts = c.attempts + 1,
+                    used = (c.code_hash = ? OR c.attempts + 1 >= ?)
+                FROM users u
+                WHERE u.email = ?
+                  AND c.user_id = u.id
+                  AND c.used = false
+                  AND c.attempts < ?
+                  AND c.expires_at > ?
+                RETURNING u.id, u.email, u.is_email_verified, c.code_hash = ? AS matched, c.used
+            ), login AS (
+                UPDATE users u
+                SET last_login_at = ?, updated_at = ?
+                FROM attempt
+                WHERE u.id = attempt.id
+                  AND attempt.matched
+            )
+            SELECT id, email, is_email_verified, matched, used FROM attempt
+            """;
+
+    // 同上，但不記錄登入時間 (last_login_at 由 LastLoginRecorder 延後寫入)
+    private static final String ATTEMPT_CODE = """
+            UPDATE two_factor_auth_codes c
+            SET attempts = c.attempts + 1,
+                used = (c.code_hash = ? OR c.attempts + 1 >= ?)
+            FROM users u
+            WHERE u.email = ?
+              AND c.user_id = u.id
+              AND c.used = false
+              AND c.attempts < ?
+              AND c.expires_at > ?
+            RETURNING u.id, u.email, u.is_email_verified, c.code_hash = ? AS matched, c.used
+            """;
+
+    private static final String RECORD_LOGIN = """
+            UPDATE users
+            SET last_login_at = ?, updated_at = ?
+            WHERE email = ?
+            RETURNING id, email, is_email_verified
+            """;
+
+    private static final RowMapper<AuthenticatedUser> AUTHENTICATED_USER = (rs, rowNum) -> new AuthenticatedUser(
+            rs.getLong("id"), rs.getString("email"), rs.getBoolean("is_email_verified"), User.AUTHORITIES);
+
+    private static final RowMapper<AttemptRow> ATTEMPT_ROW = (rs, rowNum) -> new AttemptRow(
+            AUTHENTICATED_USER.mapRow(rs, rowNum), rs.getBoolean("matched"), rs.getBoolean("used"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public LoginVerificationRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 以 {@code codeHash} 嘗試一次使用者目前有效的驗證碼：計入一次嘗試，相符時把驗證碼標記為已使用，
+     * 並把使用者的 last_login_at 設為 {@code loginAt}。
+     *
+     * @return 相符時包含使用者身分；驗證碼因這次錯誤嘗試達到 {@code maxAttempts} 而作廢時 invalidated 為 true
+     */
+    public CodeAttempt consumeCodeAndRecordLogin(String email, String codeHash, OffsetDateTime loginAt,
+            int maxAttempts) {
+        return attempt(jdbcTemplate.query(ATTEMPT_CODE_AND_RECORD_LOGIN, ATTEMPT_ROW,
+                codeHash, maxAttempts, email, maxAttempts, loginAt, codeHash, loginAt, loginAt));
+    }
+
+    // 同上，但不更新 users
+    public CodeAttempt consumeCode(String email, String codeHash, OffsetDateTime now, int maxAttempts) {
+        return attempt(jdbcTemplate.query(ATTEMPT_CODE, ATTEMPT_ROW,
+                codeHash, maxAttempts, email, maxAttempts, now, codeHash));
+    }
+
+    // 只記錄登入時間 (驗證碼存放在資料庫以外時使用)
+    public Optional<AuthenticatedUser> recordLogin(String email, OffsetDateTime loginAt) {
+        return single(jdbcTemplate.query(RECORD_LOGIN, AUTHENTICATED_USER, loginAt, loginAt, email));
+    }
+
+    private static Optional<AuthenticatedUser> single(List<AuthenticatedUser> rows) {
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
+    }
+
+    private static CodeAttempt attempt(List<AttemptRow> rows) {
+        AuthenticatedUser user = null;
+        boolean invalidated = false;
+        for (AttemptRow row : rows) {
+            if (row.matched()) {
+                user = row.user();
+            } else if (row.used()) {
+                invalidated = true;
+            }
+        }
+        return new CodeAttempt(Optional.ofNullable(user), invalidated);
+    }
+
+    /**
+     * 一次驗證碼嘗試的結果。
+     *
+     * @param user        驗證碼相符時的使用者身分
+     * @param invalidated 錯誤次數因這次嘗試達到上限，驗證碼已作廢
+     */
+    public record CodeAttempt(Optional<AuthenticatedUser> user, boolean invalidated) {
+    }
+
+    private record AttemptRow(AuthenticatedUser user, boolean matched, boolean used) {
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.securelogin.repository;
+
+import com.example.securelogin.config.ReadReplicaProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * 讓剛被修改過的使用者在一段時間內從 primary 讀取，避免讀到尚未同步到 replica 的舊資料
+ * (例如 login-verify 後立刻查詢 last-login)。
+ * <p>
+ * 保留時間為 {@code max-lag + lag-check-interval}：replica 在兩次檢查之間最多落後這麼久仍會被使用。
+ * 紀錄只存在於目前的 instance；未啟用 read replica 時不做任何事。
+ */
+@Component
+public class ReadYourWritesGuard {
+
+    private static final long MAX_TRACKED_KEYS = 100_000;
+
+    // key 為 user id (Long) 或 email (String)；未啟用時為 null
+    private final Cache<Object, Boolean> recentWrites;
+
+    public ReadYourWritesGuard(ReadReplicaProperties properties) {
+        if (!properties.isEnabled()) {
+            this.recentWrites = null;
+            return;
+        }
+        Duration window = properties.getMaxLag().plus(properties.getLagCheckInterval());
+        this.recentWrites = Caffeine.newBuilder()
+                .maximumSize(MAX_TRACKED_KEYS)
+                .expireAfterWrite(window)
+                .build();
+    }
+
+    // 記錄使用者資料剛被修改 (id 或 email 可為 null)
+    public void markWritten(Long userId, String email) {
+        if (recentWrites == null) {
+            return;
+        }
+        if (userId != null) {
+            recentWrites.put(userId, Boolean.TRUE);
+        }
+        if (email != null) {
+            recentWrites.put(email, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * 執行查詢；{@code key} (user id 或 email) 最近被修改過時改在 primary 上執行。
+     */
+    public <T> T read(Object key, Supplier<T> query) {
+        if (recentWrites != null && key != null && recentWrites.getIfPresent(key) != null) {
+            return ReplicaRoutingDataSource.onPrimary(query);
+        }
+        return query.get();
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.securelogin.repository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 定期量測每個 replica 落後 primary 的時間，只有落後不超過 {@code maxLag} 的 replica 會被
+ * {@link ReplicaRoutingDataSource} 使用；啟動後第一次檢查完成前、或檢查失敗時一律視為不健康。
+ * <p>
+ * 已重播到 primary 目前 WAL 位置的 replica 落後為 0 (primary 閒置時 replay timestamp 會一直變舊，
+ * 不能只看時間)。沒有在 recovery 中的 instance (已被 promote 的 standby、從 snapshot 還原的資料庫或
+ * 設定錯誤的 URL) 不會再收到 primary 的寫入，一律視為不健康；只有測試以 {@code acceptNonRecovery}
+ * 把獨立的資料庫當成 replica 使用。
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private static final String PRIMARY_LSN_SQL = "SELECT pg_current_wal_lsn()::text";
+    private static final String REPLICA_LAG_SQL = """
+            SELECT pg_is_in_recovery(),
+                   pg_last_wal_replay_lsn() >= ?::pg_lsn,
+                   EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())
+            """;
+
+    private final JdbcTemplate primary;
+    private final Map<String, DataSource> dataSources;
+    private final Replica[] replicas;
+    private final double maxLagSeconds;
+    private final boolean acceptNonRecovery;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaLagMonitor(DataSource primary, Map<String, DataSource> replicas, Duration maxLag,
+            MeterRegistry meterRegistry) {
+        this(primary, replicas, maxLag, false, meterRegistry);
+    }
+
+    /**
+     * @param acceptNonRecovery 把不在 recovery 中的資料庫當成落後 0 的 replica (只供測試使用)
+     */
+    public ReplicaLagMonitor(DataSource primary, Map<String, DataSource> replicas, Duration maxLag,
+            boolean acceptNonRecovery, MeterRegistry meterRegistry) {
+        this.acceptNonRecovery = acceptNonRecovery;
+        this.primary = new JdbcTemplate(primary);
+        this.dataSources = Collections.unmodifiableMap(new LinkedHashMap<>(replicas));
+        this.replicas = new Replica[replicas.size()];
+        this.maxLagSeconds = maxLag.toNanos() / 1e9;
+        int i = 0;
+        for (Map.Entry<String, DataSource> entry : this.dataSources.entrySet()) {
+            Replica replica = new Replica(entry.getKey(), new JdbcTemplate(entry.getValue()));
+            this.replicas[i++] = replica;
+            Gauge.builder("db.replica.lag", replica, r -> r.lagSeconds)
+                    .description("Replication lag of a read replica (NaN when unknown)")
+                    .baseUnit("seconds")
+                    .tag("replica", replica.name)
+                    .register(meterRegistry);
+        }
+    }
+
+    public Map<String, DataSource> replicas() {
+        return dataSources;
+    }
+
+    // 輪流選擇健康的 replica；全部不健康時回傳 null
+    public String nextHealthyReplica() {
+        int count = replicas.length;
+        if (count == 0) {
+            return null;
+        }
+        int start = (next.getAndIncrement() & Integer.MAX_VALUE) % count;
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas[(start + i) % count];
+            if (replica.healthy) {
+                return replica.name;
+            }
+        }
+        return null;
+    }
+
+    public boolean isHealthy(String name) {
+        for (Replica replica : replicas) {
+            if (replica.name.equals(name)) {
+                return replica.healthy;
+            }
+        }
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${read-replicas.lag-check-interval:1s}")
+    public void check() {
+        String primaryLsn;
+        try {
+            primaryLsn = primary.queryForObject(PRIMARY_LSN_SQL, String.class);
+        } catch (DataAccessException e) {
+            primaryLsn = null; // 只能依 replay timestamp 判斷
+            logger.warn("Failed to read the primary WAL position: {}", e.getMessage());
+        }
+        for (Replica replica : replicas) {
+            double lag;
+            try {
+                lag = replica.jdbcTemplate.queryForObject(REPLICA_LAG_SQL, (rs, rowNum) -> {
+                    boolean inRecovery = rs.getBoolean(1);
+                    boolean caughtUp = rs.getBoolean(2);
+                    double seconds = rs.getDouble(3);
+                    boolean nullSeconds = rs.wasNull();
+                    if (!inRecovery) {
+                        if (acceptNonRecovery) {
+                            return 0.0;
+                        }
+                        replica.warnNotInRecovery();
+                        return Double.NaN;
+                    }
+                    if (caughtUp) {
+                        return 0.0;
+                    }
+                    return nullSeconds ? Double.NaN : Math.max(0, seconds);
+                }, primaryLsn);
+            } catch (DataAccessException e) {
+                lag = Double.NaN;
+                logger.debug("Replica {} lag check failed: {}", replica.name, e.getMessage());
+            }
+            replica.update(lag, !Double.isNaN(lag) && lag <= maxLagSeconds);
+        }
+    }
+
+    // 關閉 replica 連線池 (由 Spring 在關機時呼叫)
+    public void close() {
+        for (DataSource dataSource : dataSources.values()) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    logger.warn("Failed to close read replica pool: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final JdbcTemplate jdbcTemplate;
+        private volatile double lagSeconds = Double.NaN;
+        private volatile boolean healthy;
+        private volatile boolean warnedNotInRecovery;
+
+        private Replica(String name, JdbcTemplate jdbcTemplate) {
+            this.name = name;
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        // 每次檢查都會遇到，只記錄一次
+        private void warnNotInRecovery() {
+            if (!warnedNotInRecovery) {
+                warnedNotInRecovery = true;
+                logger.warn("Read replica {} is not in recovery (promoted or not a standby); not using it", name);
+            }
+        }
+
+        private void update(double lag, boolean nowHealthy) {
+            lagSeconds = lag;
+            if (nowHealthy != healthy) {
+                if (nowHealthy) {
+                    logger.info("Read replica {} is in use (lag {} s)", name, lag);
+                } else {
+                    logger.warn("Read replica {} is out of rotation (lag {} s)", name, lag);
+                }
+            }
+            healthy = nowHealthy;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.securelogin.repository;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 依目前的交易決定連線來源：{@code @Transactional(readOnly = true)} 的交易使用健康的 replica
+ * (見 {@link ReplicaLagMonitor})，讀寫交易、沒有交易或 {@link #onPrimary(Supplier)} 期間一律使用 primary。
+ * <p>
+ * 交易開始取得連線時 read-only 旗標尚未設定，因此必須包在 {@link LazyConnectionDataSourceProxy}
+ * 裡，延到第一個 statement 才決定實際的連線。
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+        Map<Object, Object> targets = new HashMap<>(lagMonitor.replicas());
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * 在 read-only 交易中仍以 primary 執行 {@code action} (例如剛寫入的資料，replica 可能還沒有)。
+     * 只影響交易中尚未取得實際連線前的查詢。
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        if (FORCE_PRIMARY.get() != null) {
+            return action.get();
+        }
+        FORCE_PRIMARY.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            FORCE_PRIMARY.remove();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || FORCE_PRIMARY.get() != null) {
+            return PRIMARY;
+        }
+        String replica = lagMonitor.nextHealthyReplica();
+        return replica != null ? replica : PRIMARY; // 沒有健康的 replica 時退回 primary
+    }
+}
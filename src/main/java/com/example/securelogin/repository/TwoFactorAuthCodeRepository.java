@@ -3,25 +3,23 @@ package com.example.securelogin.repository;
 import com.example.securelogin.entity.TwoFactorAuthCode;
 import com.example.securelogin.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.OffsetDateTime;
-import java.util.Optional;
 import java.util.List;
 
 public interface TwoFactorAuthCodeRepository extends JpaRepository<TwoFactorAuthCode, Long> {
 
-        // 查找使用者所有未使用的驗證碼，以便在創建新的驗證碼時刪除
+        // 查找使用者所有未使用的驗證碼
         List<TwoFactorAuthCode> findByUserAndUsedFalse(
                         User user);
 
-        // 使用 JPQL 查詢來查找驗證碼
-        @Query("SELECT t FROM TwoFactorAuthCode t " +
-                        "JOIN FETCH t.user u " + // JOIN FETCH 同時加載 User，避免 N+1 問題
-                        "WHERE u.email = :email " +
-                        "AND t.used = false " +
-                        "AND t.expiresAt > :now")
-        Optional<TwoFactorAuthCode> findActiveCodeByEmail(@Param("email") String email,
-                        @Param("now") OffsetDateTime now);
+        // 建立新驗證碼前作廢使用者尚未過期的舊驗證碼；只標記為已使用，
+        // 過期資料由 PartitionMaintenanceJob 整個分區刪除。expiresAt 條件讓查詢只掃描未過期的分區
+        @Modifying
+        @Query("UPDATE TwoFactorAuthCode t SET t.used = true " +
+                        "WHERE t.user.id = :userId AND t.used = false AND t.expiresAt > :now")
+        int invalidateActiveCodes(@Param("userId") Long userId, @Param("now") OffsetDateTime now);
 }
\ No newline at end of file
@@ -2,13 +2,38 @@ package com.example.securelogin.repository;
 
 import com.example.securelogin.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.OffsetDateTime;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    // read-only：沒有外層交易時可由 read replica 執行 (findById 由 SimpleJpaRepository 設為 read-only)
+    @Transactional(readOnly = true)
     Optional<User> findByEmail(String email);
 
+    // 只檢查是否存在，走 email 的 unique index
+    boolean existsByEmail(String email);
+
+    // 以下 UPDATE 只寫入指定欄位，不會像 save(User) 把整列 (例如較舊的 last_login_at) 寫回去
+
+    // 標記 email 已驗證；已經驗證過時回傳 0
+    @Modifying
+    @Query("UPDATE User u SET u.emailVerified = true, u.updatedAt = :now " +
+            "WHERE u.id = :id AND u.emailVerified = false")
+    int markEmailVerified(@Param("id") Long id, @Param("now") OffsetDateTime now);
+
+    // 更換密碼雜湊；密碼在這之間已被修改 (與 currentPassword 不同) 時回傳 0
+    @Modifying
+    @Query("UPDATE User u SET u.password = :newPassword, u.updatedAt = :now " +
+            "WHERE u.id = :id AND u.password = :currentPassword")
+    int updatePassword(@Param("id") Long id, @Param("currentPassword") String currentPassword,
+            @Param("newPassword") String newPassword, @Param("now") OffsetDateTime now);
+
     // JpaRepository<User, Long> 中的：
     // - User: 是實體類型
     // - Long: 是主鍵的類型
@@ -5,20 +5,21 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import lombok.RequiredArgsConstructor;
-import com.example.securelogin.repository.UserRepository;
+import com.example.securelogin.service.UserLookupCache;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 @Configuration
 @RequiredArgsConstructor
 public class AuthConfig {
-    private final UserRepository userRepository;
+    private final UserLookupCache userLookupCache;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final PasswordHashCalibrator passwordHashCalibrator;
 
     @Bean
     public UserDetailsService userDetailsService() {
-        return username -> userRepository.findByEmail(username)
+        return username -> userLookupCache.findByEmail(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
 
@@ -30,8 +31,10 @@ public class AuthConfig {
         return authProvider;
     }
 
+    // 依啟動時校正的成本產生帶前綴的雜湊 ({bcrypt} / {argon2})；
+    // 雜湊運算一律在專用的有界執行緒池中執行，超載時回 503
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BoundedPasswordEncoder(passwordHashCalibrator.createEncoder(), passwordHashingExecutor);
     }
 }
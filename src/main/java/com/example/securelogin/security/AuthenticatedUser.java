@@ -0,0 +1,130 @@
+package com.example.securelogin.security;
+
+import com.example.securelogin.entity.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 從 JWT claims 還原的輕量使用者身分 (不可變)。
+ * 在 stateless principal 模式下取代 {@link User} 作為 SecurityContext 的 principal，
+ * 讓已驗證的 request 不必再查一次資料庫。
+ */
+public final class AuthenticatedUser implements UserDetails {
+
+    // JWT 中存放身分資訊的 claim 名稱
+    static final String CLAIM_USER_ID = "uid";
+    static final String CLAIM_EMAIL_VERIFIED = "email_verified";
+    static final String CLAIM_AUTHORITIES = "authorities";
+
+    private final Long id;
+    private final String email;
+    private final boolean emailVerified;
+    private final List<GrantedAuthority> authorities;
+
+    public AuthenticatedUser(Long id, String email, boolean emailVerified,
+            Collection<? extends GrantedAuthority> authorities) {
+        this.id = id;
+        this.email = email;
+        this.emailVerified = emailVerified;
+        this.authorities = List.copyOf(authorities);
+    }
+
+    public static AuthenticatedUser from(User user) {
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.isEmailVerified(), user.getAuthorities());
+    }
+
+    public static AuthenticatedUser from(UserSnapshot user) {
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.isEmailVerified(), user.getAuthorities());
+    }
+
+    /**
+     * 從已驗證的 token 還原身分；舊版 token 沒有 uid claim 時回傳 null，
+     * 呼叫端應退回以資料庫載入使用者。
+     */
+    static AuthenticatedUser fromClaims(VerifiedJwt jwt) {
+        Number userId = jwt.getClaim(CLAIM_USER_ID, Number.class);
+        if (userId == null || jwt.getSubject() == null) {
+            return null;
+        }
+        Boolean emailVerified = jwt.getClaim(CLAIM_EMAIL_VERIFIED, Boolean.class);
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        List<?> names = jwt.getClaim(CLAIM_AUTHORITIES, List.class);
+        if (names != null) {
+            for (Object name : names) {
+                authorities.add(new SimpleGrantedAuthority(String.valueOf(name)));
+            }
+        }
+        return new AuthenticatedUser(userId.longValue(), jwt.getSubject(), Boolean.TRUE.equals(emailVerified),
+                authorities);
+    }
+
+    // 將身分資訊寫入 JWT claims
+    void writeClaims(Map<String, Object> claims) {
+        claims.put(CLAIM_USER_ID, id);
+        claims.put(CLAIM_EMAIL_VERIFIED, emailVerified);
+        List<String> names = new ArrayList<>(authorities.size());
+        for (GrantedAuthority authority : authorities) {
+            names.add(authority.getAuthority());
+        }
+        claims.put(CLAIM_AUTHORITIES, names);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public boolean isEmailVerified() {
+        return emailVerified;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    // 密碼不會放進 token，principal 也不需要它
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email; // 使用 email 作為 username
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "AuthenticatedUser{id=" + id + ", email=" + email + ", emailVerified=" + emailVerified + "}";
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.securelogin.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * 將 encode / matches 交給 {@link PasswordHashingExecutor} 執行的 PasswordEncoder。
+ * 所有注入 PasswordEncoder 的地方 (註冊、登入、DaoAuthenticationProvider) 都自動受到
+ * 執行緒數量與佇列長度的限制。
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final PasswordHashingExecutor executor;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, PasswordHashingExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return executor.execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return executor.execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    // 只解析雜湊字串，不需要排隊
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.securelogin.security;
+
+/**
+ * 一次性驗證碼 (例如 2FA 登入碼) 的雜湊方式。
+ * <p>
+ * 驗證碼本身短效且有嘗試次數限制，安全性不依賴昂貴的雜湊成本，
+ * 因此與密碼使用不同的實作。
+ */
+public interface CodeHasher {
+
+    // 產生要儲存的雜湊值 (含演算法前綴)；同一個驗證碼必須得到相同的值，驗證時以雜湊值查詢
+    String hash(String code);
+}
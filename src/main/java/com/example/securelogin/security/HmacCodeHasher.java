@@ -0,0 +1,75 @@
+package com.example.securelogin.security;
+
+import io.jsonwebtoken.io.Decoders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+/**
+ * 以伺服器端 pepper 做 HMAC-SHA256 的驗證碼雜湊。
+ * <p>
+ * 儲存格式為 {@code {hmac-sha256}<base64url>}。同一個驗證碼永遠得到相同的雜湊值，
+ * 驗證時由 {@link com.example.securelogin.service.TwoFactorCodeStore} 以雜湊值直接查詢
+ * (SQL 或記憶體中的等值比較)，不另外比對。
+ */
+@Component
+public class HmacCodeHasher implements CodeHasher {
+
+    private static final Logger logger = LoggerFactory.getLogger(HmacCodeHasher.class);
+
+    static final String PREFIX = "{hmac-sha256}";
+    private static final String ALGORITHM = "HmacSHA256";
+    // 未設定 pepper 時，用此標籤從 jwt.secret 衍生出獨立的金鑰 (避免同一把金鑰用在不同用途)
+    private static final String DERIVATION_LABEL = "secure-login-api/two-factor-code-pepper";
+
+    private final Mac prototype;
+    private final ThreadLocal<Mac> mac;
+
+    @Autowired
+    public HmacCodeHasher(
+            @Value("${two-factor.pepper:}") String pepper,
+            @Value("${jwt.secret}") String jwtSecret) {
+        try {
+            byte[] key;
+            if (pepper != null && !pepper.isBlank()) {
+                key = Decoders.BASE64.decode(pepper);
+            } else {
+                logger.info("two-factor.pepper is not set; deriving the 2FA code pepper from jwt.secret");
+                Mac derivation = Mac.getInstance(ALGORITHM);
+                derivation.init(new SecretKeySpec(Decoders.BASE64.decode(jwtSecret), ALGORITHM));
+                key = derivation.doFinal(DERIVATION_LABEL.getBytes(StandardCharsets.UTF_8));
+            }
+            this.prototype = Mac.getInstance(ALGORITHM);
+            this.prototype.init(new SecretKeySpec(key, ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to initialise HMAC code hasher", e);
+        }
+        // Mac 不是 thread-safe，每個執行緒複製一份已初始化的實例
+        this.mac = ThreadLocal.withInitial(this::newMac);
+    }
+
+    @Override
+    public String hash(String code) {
+        return PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(digest(code));
+    }
+
+    private byte[] digest(String code) {
+        return mac.get().doFinal(code.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mac newMac() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("HmacSHA256 provider does not support clone()", e);
+        }
+    }
+}
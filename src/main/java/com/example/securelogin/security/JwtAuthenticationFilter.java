@@ -4,23 +4,46 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
+import com.example.securelogin.util.OutcomeTimers;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 import org.springframework.lang.NonNull;
 
 @Component
-@RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final OutcomeTimers<FilterOutcome> filterTimers;
+
+    // 帶 Bearer token 的 request 的驗證結果 (jwt.filter 的 outcome tag)
+    private enum FilterOutcome { CACHED, AUTHENTICATED, REJECTED, ERROR }
+
+    // true: 直接以 token claims 建立 principal，不查資料庫
+    @Value("${jwt.stateless-principal:false}")
+    private boolean statelessPrincipal;
+
+    public JwtAuthenticationFilter(JwtService jwtService, UserDetailsService userDetailsService,
+            VerifiedTokenCache verifiedTokenCache, MeterRegistry meterRegistry) {
+        this.jwtService = jwtService;
+        this.userDetailsService = userDetailsService;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.filterTimers = OutcomeTimers.register(meterRegistry, "jwt.filter",
+                "Time spent authenticating a bearer token", FilterOutcome.class);
+    }
 
     @Override
     protected void doFilterInternal(
@@ -29,26 +52,71 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             @NonNull FilterChain filterChain) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
 
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")
+                || SecurityContextHolder.getContext().getAuthentication() != null) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        final String jwt = authHeader.substring(7);
-        final String userEmail = jwtService.extractUsername(jwt);
+        // 只計算驗證 token 的時間，不包含後續的 filter 與 controller
+        long start = System.nanoTime();
+        FilterOutcome outcome = FilterOutcome.ERROR;
+        try {
+            outcome = authenticate(request, authHeader.substring(7));
+        } finally {
+            filterTimers.record(outcome, start);
+        }
+        filterChain.doFilter(request, response);
+    }
 
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail);
+    // 驗證 token，成功時把 Authentication 放進 SecurityContext
+    private FilterOutcome authenticate(HttpServletRequest request, String jwt) {
+        // 同一個 token 已驗證過時，直接沿用快取的 Authentication
+        final String tokenDigest = verifiedTokenCache.isEnabled() ? verifiedTokenCache.digest(jwt) : null;
+        if (tokenDigest != null) {
+            Authentication cached = verifiedTokenCache.get(tokenDigest);
+            if (cached != null) {
+                SecurityContextHolder.getContext().setAuthentication(cached);
+                return FilterOutcome.CACHED;
+            }
+        }
 
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+        // 只解析、驗證一次 token，後續都使用同一份 claims
+        final VerifiedJwt verifiedJwt;
+        try {
+            verifiedJwt = jwtService.verify(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.debug("Rejected JWT for request URI {}: {}", request.getRequestURI(), e.getMessage());
+            return FilterOutcome.REJECTED;
+        }
+
+        if (verifiedJwt.getSubject() != null) {
+            UserDetails userDetails = resolvePrincipal(verifiedJwt);
+
+            if (jwtService.isTokenValid(verifiedJwt, userDetails)) {
+                // Authentication 會被快取並跨 request 共用，因此不附帶每個 request 各自的 details
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
                         userDetails.getAuthorities());
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
+                if (tokenDigest != null) {
+                    verifiedTokenCache.put(tokenDigest, authToken, verifiedJwt.getExpiresAt());
+                }
+                return FilterOutcome.AUTHENTICATED;
             }
         }
-        filterChain.doFilter(request, response);
+        return FilterOutcome.REJECTED;
+    }
+
+    // stateless 模式下從 claims 還原身分；舊版 token 沒有身分 claims 時才回資料庫載入
+    private UserDetails resolvePrincipal(VerifiedJwt verifiedJwt) {
+        if (statelessPrincipal) {
+            AuthenticatedUser authenticatedUser = AuthenticatedUser.fromClaims(verifiedJwt);
+            if (authenticatedUser != null) {
+                return authenticatedUser;
+            }
+        }
+        return userDetailsService.loadUserByUsername(verifiedJwt.getSubject());
     }
 }
@@ -1,10 +1,17 @@
 package com.example.securelogin.security;
 
+import com.example.securelogin.entity.User;
+import com.example.securelogin.util.OutcomeTimers;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -13,68 +20,123 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
 
-    @Value("${jwt.secret}")
-    private String secretKey;
+    // 簽名金鑰與 parser 在啟動時建立一次，之後每個 request 共用 (兩者皆為 thread-safe)
+    private final Key signInKey;
+    private final JwtParser jwtParser;
+    private final long jwtExpiration;
+    private final long refreshExpiration;
+    private final Timer accessSignTimer;
+    private final Timer refreshSignTimer;
+    private final OutcomeTimers<ParseOutcome> parseTimers;
+
+    // 解析結果 (jwt.parse 的 outcome tag)
+    private enum ParseOutcome { VALID, EXPIRED, INVALID }
+
+    public JwtService(
+            @Value("${jwt.secret}") String secretKey,
+            @Value("${jwt.expiration}") long jwtExpiration,
+            @Value("${jwt.refresh-expiration}") long refreshExpiration,
+            MeterRegistry meterRegistry) {
+        this.signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signInKey)
+                .build();
+        this.jwtExpiration = jwtExpiration;
+        this.refreshExpiration = refreshExpiration;
+        this.accessSignTimer = signTimer(meterRegistry, "access");
+        this.refreshSignTimer = signTimer(meterRegistry, "refresh");
+        this.parseTimers = OutcomeTimers.register(meterRegistry, "jwt.parse",
+                "Time spent parsing and verifying a JWT", ParseOutcome.class);
+    }
 
-    @Value("${jwt.expiration}")
-    private long jwtExpiration;
+    private static Timer signTimer(MeterRegistry meterRegistry, String type) {
+        return Timer.builder("jwt.sign")
+                .description("Time spent building and signing a JWT")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
 
-    @Value("${jwt.refresh-expiration}")
-    private long refreshExpiration;
+    /**
+     * 解析並驗證 token (簽章 + 過期時間) 一次，回傳不可變的 claims。
+     *
+     * @param token 原始 JWT 字串
+     * @return 驗證通過的 claims
+     * @throws JwtException token 格式錯誤、簽章不符或已過期
+     */
+    public VerifiedJwt verify(String token) {
+        return VerifiedJwt.from(extractAllClaims(token));
+    }
 
     // 從 token 提取 username (在我們的例子中是 email)
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).getSubject();
     }
 
-    // 產生 token (不帶額外資訊)
+    // 產生 token (帶入使用者身分 claims，供 stateless principal 模式使用)
     public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+        return generateToken(identityClaims(userDetails), userDetails);
     }
 
     // 產生 token (帶額外資訊)
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
-        return buildToken(extraClaims, userDetails, jwtExpiration);
+        return buildToken(extraClaims, userDetails, jwtExpiration, accessSignTimer);
     }
 
     // 產生 refresh token
     public String generateRefreshToken(UserDetails userDetails) {
-        return buildToken(new HashMap<>(), userDetails, refreshExpiration);
+        return buildToken(new HashMap<>(), userDetails, refreshExpiration, refreshSignTimer);
+    }
+
+    // 使用者身分 claims (user id、email 驗證狀態、權限)
+    private Map<String, Object> identityClaims(UserDetails userDetails) {
+        Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof AuthenticatedUser authenticatedUser) {
+            authenticatedUser.writeClaims(claims);
+        } else if (userDetails instanceof UserSnapshot user) {
+            AuthenticatedUser.from(user).writeClaims(claims);
+        } else if (userDetails instanceof User user) {
+            AuthenticatedUser.from(user).writeClaims(claims);
+        }
+        return claims;
     }
 
     // 建立 token
     private String buildToken(
             Map<String, Object> extraClaims,
             UserDetails userDetails,
-            long expiration) {
-        return Jwts.builder()
+            long expiration,
+            Timer signTimer) {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        String token = Jwts.builder()
                 .setClaims(extraClaims)
                 .setSubject(userDetails.getUsername())
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + expiration))
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
+        signTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return token;
     }
 
     // 驗證 token 是否有效
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        try {
+            return isTokenValid(verify(token), userDetails);
+        } catch (JwtException | IllegalArgumentException e) {
+            return false;
+        }
     }
 
-    // 檢查 token 是否過期
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    // 提取過期時間
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    // 驗證已解析的 token 是否屬於該使用者 (簽章與過期時間在 verify 時已檢查)
+    public boolean isTokenValid(VerifiedJwt verifiedJwt, UserDetails userDetails) {
+        return userDetails.getUsername().equals(verifiedJwt.getSubject());
     }
 
     // 提取指定的 claim
@@ -83,18 +145,21 @@ public class JwtService {
         return claimsResolver.apply(claims);
     }
 
-    // 提取所有 claims
+    // 提取所有 claims (parser 會一併檢查簽章與 exp)
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    // 取得簽名金鑰
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        long start = System.nanoTime();
+        ParseOutcome outcome = ParseOutcome.INVALID;
+        try {
+            Claims claims = jwtParser
+                    .parseClaimsJws(token)
+                    .getBody();
+            outcome = ParseOutcome.VALID;
+            return claims;
+        } catch (ExpiredJwtException e) {
+            outcome = ParseOutcome.EXPIRED;
+            throw e;
+        } finally {
+            parseTimers.record(outcome, start);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,185 @@
+package com.example.securelogin.security;
+
+import com.example.securelogin.config.PasswordHashingProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 依設定建立密碼雜湊的 encoder，成本參數固定 (預設 BCrypt cost 12)，所有主機產生相同成本的雜湊。
+ * <p>
+ * {@code calibrate} 開啟時，啟動時在本機量測並回報不超過 target-hash-time 的最高參數作為建議值，
+ * 只寫入 log 與 {@code /actuator/passwordhashing}，不會套用；要採用請改設定。
+ * BCrypt 從 min-bcrypt-cost 開始往上量測，Argon2id 固定記憶體與平行度、從 2 次 iteration 往上量測，
+ * 超過 target-hash-time 即停止。產生的雜湊帶有 {@code {bcrypt}} / {@code {argon2}} 前綴，
+ * 參數也寫在雜湊字串中，之後調整成本不會影響既有密碼；沒有前綴的舊雜湊一律視為 BCrypt。
+ */
+@Component
+public class PasswordHashCalibrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashCalibrator.class);
+
+    public static final String BCRYPT = "bcrypt";
+    public static final String ARGON2 = "argon2";
+
+    private static final int ARGON2_SALT_LENGTH = 16;
+    private static final int ARGON2_HASH_LENGTH = 32;
+    private static final int MIN_ARGON2_ITERATIONS = 2;
+    private static final String SAMPLE_PASSWORD = "calibration-Password-123!";
+
+    private final PasswordHashingProperties properties;
+    private final Calibration calibration;
+
+    public PasswordHashCalibrator(PasswordHashingProperties properties) {
+        this.properties = properties;
+        String algorithm = properties.getAlgorithm().toLowerCase();
+        if (!BCRYPT.equals(algorithm) && !ARGON2.equals(algorithm)) {
+            throw new IllegalStateException("Unsupported password-hashing.algorithm '" + properties.getAlgorithm()
+                    + "', expected bcrypt or argon2");
+        }
+
+        int bcryptCost = properties.getBcryptCost();
+        int argon2Iterations = properties.getArgon2Iterations();
+        if (!properties.isCalibrate()) {
+            this.calibration = new Calibration(algorithm, properties.getTargetHashTime().toMillis(), bcryptCost,
+                    argon2Iterations, properties.getArgon2MemoryKib(), properties.getArgon2Parallelism(), -1,
+                    Runtime.getRuntime().availableProcessors(), 0, 0, List.of(), null);
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<Candidate> candidates = new ArrayList<>();
+        int recommendedBcryptCost = BCRYPT.equals(algorithm) ? calibrateBcrypt(candidates) : 0;
+        int recommendedArgon2Iterations = ARGON2.equals(algorithm) ? calibrateArgon2(candidates) : 0;
+        String selected = BCRYPT.equals(algorithm) ? bcryptParameters(bcryptCost)
+                : argon2Parameters(argon2Iterations);
+        double selectedMillis = measuredMillis(candidates, selected);
+        if (selectedMillis < 0) {
+            selectedMillis = measure(BCRYPT.equals(algorithm) ? new BCryptPasswordEncoder(bcryptCost)
+                    : argon2(argon2Iterations));
+        }
+
+        this.calibration = new Calibration(algorithm, properties.getTargetHashTime().toMillis(), bcryptCost,
+                argon2Iterations, properties.getArgon2MemoryKib(), properties.getArgon2Parallelism(),
+                selectedMillis, Runtime.getRuntime().availableProcessors(), recommendedBcryptCost,
+                recommendedArgon2Iterations, Collections.unmodifiableList(candidates), Instant.now());
+        logger.info("Password hashing calibrated in {} ms: algorithm={} ({}) takes ~{} ms per hash, "
+                + "recommended for {} ms target: {}", (System.nanoTime() - start) / 1_000_000, algorithm, selected,
+                selectedMillis, calibration.targetMillis(), BCRYPT.equals(algorithm)
+                        ? bcryptParameters(recommendedBcryptCost) : argon2Parameters(recommendedArgon2Iterations));
+    }
+
+    /**
+     * 依設定建立 encoder：新密碼使用設定的演算法，可以驗證所有前綴與無前綴的舊雜湊，
+     * 演算法或成本低於目前設定的雜湊 {@code upgradeEncoding} 會回傳 true。
+     */
+    public PasswordEncoder createEncoder() {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(calibration.bcryptCost());
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(BCRYPT, bcrypt);
+        encoders.put(ARGON2, argon2(calibration.argon2Iterations()));
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(calibration.algorithm(), encoders);
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt); // 沒有前綴的舊雜湊
+        return encoder;
+    }
+
+    public Calibration getCalibration() {
+        return calibration;
+    }
+
+    private int calibrateBcrypt(List<Candidate> candidates) {
+        int selected = properties.getMinBcryptCost();
+        for (int cost = properties.getMinBcryptCost(); cost <= properties.getMaxBcryptCost(); cost++) {
+            double millis = measure(new BCryptPasswordEncoder(cost));
+            candidates.add(new Candidate(BCRYPT, bcryptParameters(cost), millis));
+            if (millis > properties.getTargetHashTime().toMillis()) {
+                break;
+            }
+            selected = cost;
+        }
+        return selected;
+    }
+
+    private int calibrateArgon2(List<Candidate> candidates) {
+        int selected = MIN_ARGON2_ITERATIONS;
+        for (int iterations = MIN_ARGON2_ITERATIONS; iterations <= properties.getMaxArgon2Iterations();
+                iterations++) {
+            double millis = measure(argon2(iterations));
+            candidates.add(new Candidate(ARGON2, argon2Parameters(iterations), millis));
+            if (millis > properties.getTargetHashTime().toMillis()) {
+                break;
+            }
+            selected = iterations;
+        }
+        return selected;
+    }
+
+    private Argon2PasswordEncoder argon2(int iterations) {
+        return new Argon2PasswordEncoder(ARGON2_SALT_LENGTH, ARGON2_HASH_LENGTH, properties.getArgon2Parallelism(),
+                properties.getArgon2MemoryKib(), iterations);
+    }
+
+    // 量測 encode 時間，取中位數 (毫秒)
+    private double measure(PasswordEncoder encoder) {
+        encoder.encode(SAMPLE_PASSWORD); // 暖機
+        int samples = Math.max(1, properties.getCalibrationSamples());
+        double[] millis = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            millis[i] = (System.nanoTime() - start) / 1_000_000.0;
+        }
+        Arrays.sort(millis);
+        return millis[samples / 2];
+    }
+
+    private static String bcryptParameters(int cost) {
+        return "cost=" + cost;
+    }
+
+    private String argon2Parameters(int iterations) {
+        return "m=" + properties.getArgon2MemoryKib() + ",t=" + iterations + ",p=" + properties.getArgon2Parallelism();
+    }
+
+    // 候選參數中與設定相同者的量測時間，沒有量測過時為 -1
+    private static double measuredMillis(List<Candidate> candidates, String parameters) {
+        for (Candidate candidate : candidates) {
+            if (candidate.parameters().equals(parameters)) {
+                return candidate.millis();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 單一候選參數的量測結果。
+     */
+    public record Candidate(String algorithm, String parameters, double millis) {
+    }
+
+    /**
+     * 使用中的參數與校正結果，{@code estimatedHashesPerSecondPerCore} 供容量規劃參考。
+     * 沒有開啟校正時 {@code selectedMillis} 為 -1、建議值為 0、{@code calibratedAt} 為 null。
+     */
+    public record Calibration(String algorithm, long targetMillis, int bcryptCost, int argon2Iterations,
+            int argon2MemoryKib, int argon2Parallelism, double selectedMillis, int availableProcessors,
+            int recommendedBcryptCost, int recommendedArgon2Iterations, List<Candidate> candidates,
+            Instant calibratedAt) {
+
+        public double estimatedHashesPerSecondPerCore() {
+            return selectedMillis > 0 ? 1000.0 / selectedMillis : -1;
+        }
+    }
+}
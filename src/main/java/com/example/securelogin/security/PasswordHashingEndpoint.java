@@ -0,0 +1,45 @@
+package com.example.securelogin.security;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code GET /actuator/passwordhashing}：使用中的密碼雜湊參數與啟動時的校正結果 (需開啟
+ * {@code password-hashing.calibrate})，供容量規劃與調整成本使用 (例如每個核心每秒可處理的登入數)。
+ */
+@Component
+@Endpoint(id = "passwordhashing")
+public class PasswordHashingEndpoint {
+
+    private final PasswordHashCalibrator calibrator;
+
+    public PasswordHashingEndpoint(PasswordHashCalibrator calibrator) {
+        this.calibrator = calibrator;
+    }
+
+    @ReadOperation
+    public Map<String, Object> calibration() {
+        PasswordHashCalibrator.Calibration calibration = calibrator.getCalibration();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("algorithm", calibration.algorithm());
+        result.put("targetMillis", calibration.targetMillis());
+        result.put("bcryptCost", calibration.bcryptCost());
+        result.put("argon2", Map.of(
+                "memoryKib", calibration.argon2MemoryKib(),
+                "iterations", calibration.argon2Iterations(),
+                "parallelism", calibration.argon2Parallelism()));
+        result.put("selectedMillis", calibration.selectedMillis());
+        result.put("availableProcessors", calibration.availableProcessors());
+        result.put("estimatedHashesPerSecondPerCore", calibration.estimatedHashesPerSecondPerCore());
+        result.put("recommended", Map.of(
+                "bcryptCost", calibration.recommendedBcryptCost(),
+                "argon2Iterations", calibration.recommendedArgon2Iterations()));
+        result.put("candidates", calibration.candidates());
+        result.put("calibratedAt", calibration.calibratedAt());
+        return result;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.securelogin.security;
+
+import com.example.securelogin.config.PasswordHashingProperties;
+import com.example.securelogin.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 密碼雜湊 (BCrypt 等 CPU 密集運算) 專用的有界執行緒池。
+ * <p>
+ * 執行緒數量預設等於 CPU 核心數，等待佇列有上限；佇列已滿或在佇列中等待超過 max-wait 時，
+ * 立即以 {@link ServiceOverloadedException} (503 + Retry-After) 拒絕，
+ * 避免大量登入請求吃光所有 CPU，拖慢其他便宜的 API。
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitNanos;
+    private final long retryAfterSeconds;
+
+    private final Timer waitTimer;
+    private final Timer executionTimer;
+    private final Counter queueFullRejections;
+    private final Counter waitTimeoutRejections;
+
+    public PasswordHashingExecutor(PasswordHashingProperties properties, MeterRegistry meterRegistry) {
+        int threads = properties.getThreads() > 0 ? properties.getThreads()
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.maxWaitNanos = properties.getMaxWait().toNanos();
+        this.retryAfterSeconds = properties.getRetryAfterSeconds();
+
+        Gauge.builder("password.hashing.queue.depth", executor, e -> e.getQueue().size())
+                .description("Password hashing tasks waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashing workers currently busy")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("password.hashing.wait")
+                .description("Time a password hashing task spent queued")
+                .register(meterRegistry);
+        this.executionTimer = Timer.builder("password.hashing.execution")
+                .description("Time spent computing a password hash")
+                .register(meterRegistry);
+        this.queueFullRejections = Counter.builder("password.hashing.rejected")
+                .description("Password hashing tasks rejected with 503")
+                .tag("reason", "queue_full")
+                .register(meterRegistry);
+        this.waitTimeoutRejections = Counter.builder("password.hashing.rejected")
+                .description("Password hashing tasks rejected with 503")
+                .tag("reason", "wait_timeout")
+                .register(meterRegistry);
+        logger.info("Password hashing executor started with {} threads and queue capacity {}", threads,
+                properties.getQueueCapacity());
+    }
+
+    /**
+     * 在專用執行緒池中執行雜湊運算並等待結果。
+     *
+     * @throws ServiceOverloadedException 佇列已滿，或等待超過 max-wait
+     */
+    public <T> T execute(Supplier<T> task) {
+        final long enqueuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                long waited = startedAt - enqueuedAt;
+                waitTimer.record(waited, TimeUnit.NANOSECONDS);
+                if (waited > maxWaitNanos) {
+                    waitTimeoutRejections.increment();
+                    throw overloaded("Password hashing queue wait exceeded");
+                }
+                try {
+                    return task.get();
+                } finally {
+                    executionTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queueFullRejections.increment();
+            throw overloaded("Password hashing queue is full");
+        }
+
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Password hashing failed", cause);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw overloaded("Interrupted while waiting for password hashing");
+        }
+    }
+
+    private ServiceOverloadedException overloaded(String message) {
+        return new ServiceOverloadedException(message + ", please retry later", retryAfterSeconds);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.securelogin.security;
+
+import com.example.securelogin.config.RateLimitProperties;
+import com.example.securelogin.exception.RateLimitExceededException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 對公開的 POST endpoint (登入、登入驗證、註冊) 做速率限制，每個請求各自會觸發 BCrypt、
+ * 資料庫寫入或寄信。
+ * <p>
+ * 每個 endpoint 可分別設定以 client IP 與以 email 計算的 token bucket (見 {@link RateLimitProperties})。
+ * email 由 request body 以 Jackson streaming parser 取出 (只讀最多 max-body-bytes)，
+ * 讀過的內容會原樣交給後面的 controller；取不到 email 的請求全部計入同一個 bucket。client IP 使用 {@code getRemoteAddr()}，
+ * 在反向代理後面需設定 {@code server.forward-headers-strategy}。
+ * <p>
+ * 超過限制時拋出 {@link RateLimitExceededException}，交給 HandlerExceptionResolver
+ * 由 GlobalExceptionHandler 回 429 與 Retry-After。排在 Spring Security 之前，被拒絕的請求不會進入驗證流程。
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 1)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    // email 重複時解析失敗 (與 spring.jackson.parser 設定相同)，避免限制第一個值、controller 卻綁定最後一個
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .enable(JsonParser.Feature.STRICT_DUPLICATE_DETECTION);
+    // 取不到 email 的請求共用的 bucket key
+    static final String UNKNOWN_ACCOUNT_KEY = "unknown-email";
+    // RFC 5321 的 email 長度上限，更長的值交給輸入驗證拒絕
+    private static final int MAX_EMAIL_LENGTH = 320;
+
+    private final RateLimitProperties properties;
+    private final HandlerExceptionResolver exceptionResolver;
+    private final RateLimiter limiter;
+    private final Map<String, EndpointRules> endpoints = new HashMap<>();
+
+    public RateLimitFilter(RateLimitProperties properties, MeterRegistry meterRegistry,
+            @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver) {
+        this.properties = properties;
+        this.exceptionResolver = exceptionResolver;
+        this.limiter = new RateLimiter(properties.getMaxBuckets(), properties.getStripes());
+        properties.getEndpoints().forEach((path, endpoint) -> endpoints.put(path, new EndpointRules(
+                path,
+                Rule.of(endpoint.getPerClient(), path, "client", meterRegistry),
+                Rule.of(endpoint.getPerAccount(), path, "account", meterRegistry))));
+        Gauge.builder("rate.limit.buckets", limiter, RateLimiter::size)
+                .description("Token buckets currently held by the rate limiter")
+                .register(meterRegistry);
+        FunctionCounter.builder("rate.limit.evicted", limiter, RateLimiter::evictions)
+                .description("Active token buckets evicted because the rate limiter was full")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !properties.isEnabled() || !"POST".equals(request.getMethod())
+                || !endpoints.containsKey(path(request));
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        EndpointRules rules = endpoints.get(path(request));
+        long now = System.nanoTime();
+
+        if (rules.perClient() != null && reject(rules.perClient(), "ip:" + request.getRemoteAddr(), now,
+                request, response)) {
+            return;
+        }
+
+        HttpServletRequest forwarded = request;
+        if (rules.perAccount() != null) {
+            BodyPrefixRequest bodyPrefix = new BodyPrefixRequest(request, properties.getMaxBodyBytes());
+            forwarded = bodyPrefix;
+            String email = extractEmail(bodyPrefix.prefix(), bodyPrefix.prefix().length);
+            // 取不到 email (超過 max-body-bytes、重複欄位、格式不符) 時計入共用的 bucket，不能藉此略過帳號限制
+            String accountKey = email != null ? "email:" + email : UNKNOWN_ACCOUNT_KEY;
+            if (reject(rules.perAccount(), accountKey, now, request, response)) {
+                return;
+            }
+        }
+        filterChain.doFilter(forwarded, response);
+    }
+
+    // 定期清除已補滿的 bucket，閒置的 key 不會一直佔用空間
+    @Scheduled(fixedDelayString = "${rate-limit.sweep-interval:30s}")
+    public void sweep() {
+        int removed = limiter.sweep(System.nanoTime());
+        if (removed > 0) {
+            logger.debug("Rate limiter removed {} idle buckets, {} remaining", removed, limiter.size());
+        }
+    }
+
+    private boolean reject(Rule rule, String key, long now, HttpServletRequest request,
+            HttpServletResponse response) {
+        long waitNanos = limiter.tryAcquire(rule.path() + '|' + key, rule.intervalNanos(), rule.burst(), now);
+        if (waitNanos == 0) {
+            return false;
+        }
+        rule.rejected().increment();
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)
+                / TimeUnit.SECONDS.toNanos(1));
+        exceptionResolver.resolveException(request, response, null,
+                new RateLimitExceededException("Too many requests, please retry later", retryAfterSeconds));
+        return true;
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    /**
+     * 從 JSON body 取出最上層的 {@code email} 欄位並正規化 (去除空白、轉小寫)。
+     * 不是 JSON、沒有 email、欄位重複或內容被截斷時回傳 null。
+     */
+    static String extractEmail(byte[] body, int length) {
+        try (JsonParser parser = JSON_FACTORY.createParser(body, 0, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                boolean isEmail = "email".equals(parser.currentName());
+                token = parser.nextToken();
+                if (isEmail) {
+                    if (token != JsonToken.VALUE_STRING) {
+                        return null;
+                    }
+                    String email = parser.getText().trim();
+                    return email.isEmpty() || email.length() > MAX_EMAIL_LENGTH ? null
+                            : email.toLowerCase(Locale.ROOT);
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private record EndpointRules(String path, Rule perClient, Rule perAccount) {
+    }
+
+    private record Rule(String path, long intervalNanos, int burst, Counter rejected) {
+
+        static Rule of(RateLimitProperties.Limit limit, String path, String key, MeterRegistry meterRegistry) {
+            if (limit == null || limit.getCapacity() <= 0) {
+                return null;
+            }
+            Duration period = limit.getPeriod() != null ? limit.getPeriod() : Duration.ofMinutes(1);
+            Counter rejected = Counter.builder("rate.limit.rejected")
+                    .description("Requests rejected by the rate limiter")
+                    .tag("endpoint", path)
+                    .tag("key", key)
+                    .register(meterRegistry);
+            return new Rule(path, Math.max(1, period.toNanos() / limit.getCapacity()), limit.getCapacity(),
+                    rejected);
+        }
+    }
+
+    /**
+     * 先讀出 body 的前 {@code limit} bytes 供解析，之後的讀取依序回傳讀過的內容與剩下的原始串流。
+     */
+    private static final class BodyPrefixRequest extends HttpServletRequestWrapper {
+
+        private final byte[] prefix;
+
+        BodyPrefixRequest(HttpServletRequest request, int limit) throws IOException {
+            super(request);
+            this.prefix = request.getInputStream().readNBytes(Math.max(0, limit));
+        }
+
+        byte[] prefix() {
+            return prefix;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            InputStream body = new SequenceInputStream(new ByteArrayInputStream(prefix),
+                    super.getInputStream());
+            return new ServletInputStream() {
+                private boolean finished;
+
+                @Override
+                public int read() throws IOException {
+                    int b = body.read();
+                    finished = b < 0;
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int n = body.read(buffer, offset, length);
+                    finished = n < 0;
+                    return n;
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return finished;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException("Async reads are not supported");
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
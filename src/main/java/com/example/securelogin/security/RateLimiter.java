@@ -0,0 +1,153 @@
+package com.example.securelogin.security;
+
+import com.example.securelogin.util.Gcra;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 以 key 區分的 token bucket 表，檢查與扣除都是 lock-free 的。
+ * <p>
+ * 每個 bucket 是一個 {@link Gcra} 的 TAT。時間已經過去的 bucket 等同全滿的新 bucket，
+ * 可以直接移除而不影響限制結果。
+ * <p>
+ * bucket 依 key 分散到多個 stripe，每個 stripe 有各自的數量上限；新增 bucket 時 stripe 已滿，
+ * 會先回收該 stripe 的閒置 bucket，仍然沒有空間時淘汰最接近補滿的 bucket (理論時間最早者)，
+ * 不會因為表滿了就拒絕所有新的 key。淘汰次數見 {@link #evictions()}。
+ * 時間一律使用 {@link System#nanoTime()} 基準，由呼叫端傳入。
+ */
+public final class RateLimiter {
+
+    // 已被回收的 bucket，拿到的執行緒需要重新查詢
+    private static final long REMOVED = Gcra.RETIRED;
+
+    private final Stripe[] stripes;
+    private final int maxPerStripe;
+    private final AtomicLong evictions = new AtomicLong();
+
+    public RateLimiter(int maxBuckets, int stripeCount) {
+        int count = stripeCount <= 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(evictions);
+        }
+        this.maxPerStripe = Math.max(1, maxBuckets / count);
+    }
+
+    /**
+     * 嘗試從 {@code key} 的 bucket 取一個 token。
+     *
+     * @return 0 表示允許；否則為需要等待的奈秒數
+     */
+    public long tryAcquire(String key, long intervalNanos, int burst, long nowNanos) {
+        long tolerance = Gcra.tolerance(intervalNanos, burst);
+        Stripe stripe = stripeFor(key);
+        for (;;) {
+            AtomicLong bucket = stripe.buckets.get(key);
+            if (bucket == null) {
+                bucket = stripe.create(key, nowNanos, maxPerStripe);
+            }
+            long wait = Gcra.tryAcquire(bucket, intervalNanos, tolerance, nowNanos);
+            if (wait != REMOVED) {
+                return wait;
+            }
+            stripe.buckets.remove(key, bucket); // 剛被回收，協助移除後重新查詢 (數量由 sweep 扣除)
+        }
+    }
+
+    /**
+     * 移除所有已經補滿的 bucket。
+     *
+     * @return 移除的數量
+     */
+    public int sweep(long nowNanos) {
+        int removed = 0;
+        for (Stripe stripe : stripes) {
+            removed += stripe.sweep(nowNanos);
+        }
+        return removed;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size.get();
+        }
+        return size;
+    }
+
+    /**
+     * stripe 已滿且沒有閒置 bucket 時，為了新的 key 淘汰仍在限制中的 bucket 的次數。
+     */
+    public long evictions() {
+        return evictions.get();
+    }
+
+    private Stripe stripeFor(String key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static final class Stripe {
+        final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        final AtomicInteger size = new AtomicInteger();
+        final AtomicLong evictions;
+
+        Stripe(AtomicLong evictions) {
+            this.evictions = evictions;
+        }
+
+        // 建立全滿的新 bucket；已有其他執行緒建立時回傳既有的
+        AtomicLong create(String key, long nowNanos, int max) {
+            while (size.incrementAndGet() > max) {
+                size.decrementAndGet();
+                if (sweep(nowNanos) == 0 && evictOldest()) {
+                    evictions.incrementAndGet();
+                }
+            }
+            AtomicLong created = new AtomicLong(nowNanos);
+            AtomicLong existing = buckets.putIfAbsent(key, created);
+            if (existing != null) {
+                size.decrementAndGet();
+                return existing;
+            }
+            return created;
+        }
+
+        int sweep(long nowNanos) {
+            int removed = 0;
+            for (Map.Entry<String, AtomicLong> entry : buckets.entrySet()) {
+                AtomicLong bucket = entry.getValue();
+                long tat = bucket.get();
+                // 先標記為 REMOVED，確保沒有執行緒在移除後還扣到這個 bucket
+                if (tat != REMOVED && tat - nowNanos <= 0 && bucket.compareAndSet(tat, REMOVED)) {
+                    buckets.remove(entry.getKey(), bucket);
+                    size.decrementAndGet();
+                    removed++;
+                }
+            }
+            return removed;
+        }
+
+        // 淘汰理論時間最早 (最接近補滿、被淘汰時放寬最少) 的 bucket；被其他執行緒搶先移除時回傳 false
+        private boolean evictOldest() {
+            Map.Entry<String, AtomicLong> oldest = null;
+            long oldestTat = 0;
+            for (Map.Entry<String, AtomicLong> entry : buckets.entrySet()) {
+                long tat = entry.getValue().get();
+                if (tat != REMOVED && (oldest == null || tat - oldestTat < 0)) {
+                    oldest = entry;
+                    oldestTat = tat;
+                }
+            }
+            if (oldest == null || !oldest.getValue().compareAndSet(oldestTat, REMOVED)) {
+                return false;
+            }
+            buckets.remove(oldest.getKey(), oldest.getValue());
+            size.decrementAndGet();
+            return true;
+        }
+    }
+}
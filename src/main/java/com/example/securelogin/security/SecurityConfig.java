@@ -2,6 +2,7 @@ package com.example.securelogin.security;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.web.SecurityFilterChain;
@@ -9,6 +10,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 
 @Configuration
 @EnableWebSecurity
@@ -17,6 +19,7 @@ public class SecurityConfig {
 
         private final JwtAuthenticationFilter jwtAuthFilter;
         private final AuthenticationProvider authenticationProvider;
+        private final Environment environment;
 
         @Bean
         public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
@@ -29,8 +32,15 @@ public class SecurityConfig {
                                                                 "/api/verify-registration",
                                                                 "/api/login-verify",
                                                                 "/swagger-ui/**",
-                                                                "/v3/api-docs/**")
+                                                                "/v3/api-docs/**",
+                                                                "/actuator/health",
+                                                                "/healthz")
                                                 .permitAll()
+                                                // 其他 actuator endpoint 只能從 management port 存取 (見 management.server)
+                                                .requestMatchers(managementPortRequest())
+                                                .permitAll()
+                                                .requestMatchers("/actuator/**")
+                                                .denyAll()
                                                 .anyRequest().authenticated())
                                 .sessionManagement(session -> session
                                                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -38,4 +48,14 @@ public class SecurityConfig {
                                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
                                 .build();
         }
-}
\ No newline at end of file
+
+        // 從獨立的 management port 進來的 request；與應用程式共用 port 時一律不符合
+        private RequestMatcher managementPortRequest() {
+                return request -> {
+                        Integer managementPort = environment.getProperty("local.management.port", Integer.class);
+                        Integer serverPort = environment.getProperty("local.server.port", Integer.class);
+                        return managementPort != null && !managementPort.equals(serverPort)
+                                        && request.getLocalPort() == managementPort;
+                };
+        }
+}
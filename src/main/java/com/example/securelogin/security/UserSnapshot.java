@@ -0,0 +1,95 @@
+package com.example.securelogin.security;
+
+import com.example.securelogin.entity.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+
+/**
+ * 載入 {@link User} 當下的不可變複本，由 {@link com.example.securelogin.service.UserLookupCache}
+ * 快取並在多個 request 間共用，也作為資料庫載入模式下的 principal。
+ * <p>
+ * 不是 JPA entity：修改使用者資料請以 {@link com.example.securelogin.repository.UserRepository}
+ * 的 UPDATE 方法直接寫入，之後移除快取。
+ */
+public final class UserSnapshot implements UserDetails {
+
+    private final Long id;
+    private final String email;
+    private final String password;
+    private final boolean emailVerified;
+    private final OffsetDateTime lastLoginAt;
+
+    public UserSnapshot(Long id, String email, String password, boolean emailVerified, OffsetDateTime lastLoginAt) {
+        this.id = id;
+        this.email = email;
+        this.password = password;
+        this.emailVerified = emailVerified;
+        this.lastLoginAt = lastLoginAt;
+    }
+
+    public static UserSnapshot of(User user) {
+        return new UserSnapshot(user.getId(), user.getEmail(), user.getPassword(), user.isEmailVerified(),
+                user.getLastLoginAt());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public boolean isEmailVerified() {
+        return emailVerified;
+    }
+
+    public OffsetDateTime getLastLoginAt() {
+        return lastLoginAt;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return User.AUTHORITIES;
+    }
+
+    // 密碼雜湊，供登入比對與 DaoAuthenticationProvider 使用
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public String getUsername() {
+        return email; // 使用 email 作為 username
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    // 不輸出密碼雜湊
+    @Override
+    public String toString() {
+        return "UserSnapshot{id=" + id + ", email=" + email + ", emailVerified=" + emailVerified + "}";
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.securelogin.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 已通過簽章與過期檢查的 JWT 內容 (不可變)。
+ * 由 {@link JwtService#verify(String)} 產生，一個 token 只需要解析、驗證一次，
+ * 之後所有需要 claims 的地方都直接讀這個物件。
+ */
+public final class VerifiedJwt {
+
+    private final String subject;
+    private final Instant issuedAt;
+    private final Instant expiresAt;
+    private final Map<String, Object> claims;
+
+    private VerifiedJwt(String subject, Instant issuedAt, Instant expiresAt, Map<String, Object> claims) {
+        this.subject = subject;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+        this.claims = claims;
+    }
+
+    static VerifiedJwt from(Claims claims) {
+        return new VerifiedJwt(
+                claims.getSubject(),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null,
+                Collections.unmodifiableMap(new HashMap<>(claims)));
+    }
+
+    // token 的 subject (在我們的例子中是 email)
+    public String getSubject() {
+        return subject;
+    }
+
+    public Instant getIssuedAt() {
+        return issuedAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    // 驗證當下已保證未過期，這裡給長時間持有此物件的呼叫端再次確認
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !now.isBefore(expiresAt);
+    }
+
+    // 取得指定的 claim，型別不符時回傳 null
+    public <T> T getClaim(String name, Class<T> type) {
+        Object value = claims.get(name);
+        return type.isInstance(value) ? type.cast(value) : null;
+    }
+
+    public Map<String, Object> getClaims() {
+        return claims;
+    }
+}
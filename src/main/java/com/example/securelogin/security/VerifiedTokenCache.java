@@ -0,0 +1,145 @@
+package com.example.securelogin.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 已驗證 access token 的快取：key 是原始 token 的 SHA-256 摘要，value 是已建立好的
+ * {@link Authentication}。同一個 token 第二次之後的 request 不必再算 HMAC 簽章，
+ * 也不必重建 principal。
+ * <p>
+ * 每筆資料最晚在 token 的 exp 時間被移除，總數有上限。撤銷 token 或使用者資料變更時，
+ * 呼叫 {@link #evictUser(String)} 或 {@link #evictAll()} 清除。
+ * <p>
+ * {@link #evictUser(String)} 只把該使用者的 generation 加一 (O(1))，不掃描整個快取；
+ * 每筆資料記錄放入時的 generation，讀取時不一致就視為已移除。
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    // generation 依 username 的 hash 分段，不必為每個使用者保留計數器；碰撞只會多一次 miss
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final Cache<String, CachedAuthentication> cache;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    private final boolean enabled;
+
+    public VerifiedTokenCache(
+            @Value("${jwt.token-cache.max-size:10000}") long maxSize,
+            @Value("${jwt.token-cache.max-ttl:15m}") Duration maxTtl) {
+        this.enabled = maxSize > 0;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenExpiry(maxTtl))
+                .recordStats()
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // 計算 token 的摘要，作為快取 key (不直接保存原始 token)
+    public String digest(String token) {
+        MessageDigest digest = SHA_256.get();
+        byte[] hash = digest.digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    }
+
+    // 取得快取中的 Authentication，沒有或已過期時回傳 null
+    public Authentication get(String digest) {
+        if (!enabled) {
+            return null;
+        }
+        CachedAuthentication cached = cache.getIfPresent(digest);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.generation() != generations.get(stripe(cached.authentication().getName()))) {
+            cache.asMap().remove(digest, cached); // 放入後使用者已被 evict
+            return null;
+        }
+        return cached.authentication();
+    }
+
+    public void put(String digest, Authentication authentication, Instant expiresAt) {
+        if (!enabled || expiresAt == null) {
+            return;
+        }
+        long generation = generations.get(stripe(authentication.getName()));
+        cache.put(digest, new CachedAuthentication(authentication, expiresAt, generation));
+    }
+
+    // 讓某位使用者的所有快取 token 失效 (例如撤銷或使用者資料變更時)，實際移除延到讀取或到期時
+    public void evictUser(String username) {
+        if (!enabled || username == null) {
+            return;
+        }
+        generations.incrementAndGet(stripe(username));
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private static int stripe(String username) {
+        int h = username.hashCode();
+        return (h ^ (h >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    private record CachedAuthentication(Authentication authentication, Instant expiresAt, long generation) {
+    }
+
+    // 每筆資料的存活時間 = 距離 token exp 的剩餘時間 (不超過 maxTtl)
+    private static final class TokenExpiry implements Expiry<String, CachedAuthentication> {
+
+        private final long maxTtlNanos;
+
+        TokenExpiry(Duration maxTtl) {
+            this.maxTtlNanos = maxTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String key, CachedAuthentication value, long currentTime) {
+            long remaining = Duration.between(Instant.now(), value.expiresAt()).toNanos();
+            return Math.max(0, Math.min(remaining, maxTtlNanos));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedAuthentication value, long currentTime,
+                long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedAuthentication value, long currentTime,
+                long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.example.securelogin.service;
+
+import com.example.securelogin.config.EmailOutboxProperties;
+import com.example.securelogin.entity.EmailOutboxMessage;
+import com.example.securelogin.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 背景寄送 email_outbox 中的郵件。
+ * <p>
+ * 每次以 {@code FOR UPDATE SKIP LOCKED} 取走一批郵件並標記為 PROCESSING (帶租約時間) 後立即 commit，
+ * 寄信時不持有任何資料庫連線或鎖；同一批郵件由 send-concurrency 個執行緒並行寄送。寄送失敗以指數退避重試，超過次數標記為 FAILED。
+ * 支援批次寄送的 provider (Mailjet) 則把整批郵件一次交給 {@link EmailService#sendBatch}，不受 send-concurrency 限制。
+ * 關機時會等進行中的郵件寄完，尚未寄出的郵件還回佇列給下一個 instance。
+ * <p>
+ * 寄出或放棄時清除 payload (驗證權杖與驗證碼)，完成的郵件保留 retention 後分批刪除。
+ * <p>
+ * {@code email.outbox.virtual-threads=true} 時每封郵件改由一個 virtual thread 寄送，並以 semaphore
+ * 維持 send-concurrency 的上限。注意 Jakarta Mail 的 {@code SMTPTransport.sendMessage} 與
+ * {@code Service.connect} 是 {@code synchronized}，JDK 21 上整段 SMTP 對話都會佔住 carrier thread，
+ * 使用 Gmail 時 send-concurrency 應小於 CPU 核心數，否則會卡住其他 virtual thread (例如 request)。
+ */
+@Component
+public class EmailOutboxDispatcher implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final int PURGE_BATCH_SIZE = 1000;
+
+    private final EmailOutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EmailService emailService;
+    private final EmailOutboxProperties properties;
+
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final Timer sendSuccessTimer;
+    private final Timer sendFailureTimer;
+    private final Timer deliveryDelayTimer;
+
+    private volatile boolean running;
+    private ScheduledExecutorService executor;
+    private ExecutorService sendExecutor;
+    private Semaphore sendPermits;
+
+    public EmailOutboxDispatcher(EmailOutboxRepository outboxRepository,
+            PlatformTransactionManager transactionManager,
+            Map<String, EmailService> emailServices,
+            EmailOutboxProperties properties,
+            MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.emailService = emailServices.get(properties.getProvider());
+        if (this.emailService == null) {
+            throw new IllegalStateException("Unknown email.outbox.provider '" + properties.getProvider()
+                    + "', available: " + emailServices.keySet());
+        }
+
+        Gauge.builder("email.outbox.depth", queueDepth, AtomicLong::get)
+                .description("Emails waiting in the outbox (pending or in flight)")
+                .register(meterRegistry);
+        this.sendSuccessTimer = sendTimer(meterRegistry, "success");
+        this.sendFailureTimer = sendTimer(meterRegistry, "failure");
+        this.deliveryDelayTimer = Timer.builder("email.outbox.delivery.delay")
+                .description("Time from enqueue to successful send")
+                .tag("provider", properties.getProvider())
+                .register(meterRegistry);
+    }
+
+    private Timer sendTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("email.outbox.send")
+                .description("Latency of a single email send through the provider")
+                .tag("provider", properties.getProvider())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "email-outbox-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int sendConcurrency = Math.max(1, properties.getSendConcurrency());
+        sendPermits = new Semaphore(sendConcurrency);
+        if (properties.isVirtualThreads()) {
+            sendExecutor = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("email-outbox-sender-", 1).factory());
+            if ("gmailService".equals(properties.getProvider())
+                    && sendConcurrency >= Runtime.getRuntime().availableProcessors()) {
+                logger.warn("email.outbox.send-concurrency ({}) >= CPU cores: SMTP sends pin their carrier "
+                        + "thread and may starve other virtual threads", sendConcurrency);
+            }
+        } else {
+            AtomicInteger senderIndex = new AtomicInteger();
+            sendExecutor = Executors.newFixedThreadPool(sendConcurrency, runnable -> {
+                Thread thread = new Thread(runnable, "email-outbox-sender-" + senderIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        running = true;
+        executor.scheduleWithFixedDelay(this::poll, 0, properties.getPollInterval().toMillis(),
+                TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::refreshQueueDepth, 0,
+                properties.getDepthRefreshInterval().toMillis(), TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::purgeFinished, properties.getPurgeInterval().toMillis(),
+                properties.getPurgeInterval().toMillis(), TimeUnit.MILLISECONDS);
+        logger.info("Email outbox dispatcher started (provider: {}, batch size: {}, virtual threads: {})",
+                properties.getProvider(), properties.getBatchSize(), properties.isVirtualThreads());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(properties.getDrainTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                logger.warn("Email outbox dispatcher did not drain within {}; in-flight emails will be "
+                        + "retried after their lease expires", properties.getDrainTimeout());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        sendExecutor.shutdownNow();
+        logger.info("Email outbox dispatcher stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // 在 web server 停止接收 request 之後才停止，讓最後一批 request 的郵件也能寄出
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 2048;
+    }
+
+    // 一直處理到佇列清空 (或關機) 為止
+    private void poll() {
+        try {
+            int claimed;
+            do {
+                claimed = dispatchBatch();
+            } while (running && claimed == properties.getBatchSize());
+        } catch (Exception e) {
+            // 不可讓例外中斷 scheduleWithFixedDelay
+            logger.error("Email outbox poll failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void refreshQueueDepth() {
+        try {
+            queueDepth.set(outboxRepository.countByStatusIn(
+                    EnumSet.of(EmailOutboxMessage.Status.PENDING, EmailOutboxMessage.Status.PROCESSING)));
+        } catch (Exception e) {
+            logger.warn("Failed to refresh email outbox depth: {}", e.getMessage());
+        }
+    }
+
+    // 分批刪除超過保留期間的已完成郵件，每批各自 commit 以免長時間持有 row lock
+    private void purgeFinished() {
+        try {
+            OffsetDateTime before = OffsetDateTime.now().minus(properties.getRetention());
+            long purged = 0;
+            Integer deleted;
+            do {
+                deleted = transactionTemplate.execute(status -> outboxRepository.deleteFinishedBefore(
+                        before, PURGE_BATCH_SIZE));
+                purged += deleted != null ? deleted : 0;
+            } while (running && deleted != null && deleted == PURGE_BATCH_SIZE);
+            if (purged > 0) {
+                logger.info("Purged {} finished outbox emails older than {}", purged, properties.getRetention());
+            }
+        } catch (Exception e) {
+            logger.error("Email outbox purge failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private int dispatchBatch() {
+        List<EmailOutboxMessage> batch = transactionTemplate.execute(status -> claimBatch());
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+        if (emailService.supportsBatchSend()) {
+            if (running) {
+                deliverAll(batch);
+            } else {
+                releaseRemaining(batch);
+            }
+            return batch.size();
+        }
+        // 同一批郵件並行寄送；關機後尚未開始的郵件還回佇列
+        List<EmailOutboxMessage> unsent = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<?>[] deliveries = new CompletableFuture<?>[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            EmailOutboxMessage message = batch.get(i);
+            deliveries[i] = CompletableFuture.runAsync(() -> {
+                sendPermits.acquireUninterruptibly();
+                try {
+                    if (running) {
+                        deliver(message);
+                    } else {
+                        unsent.add(message);
+                    }
+                } finally {
+                    sendPermits.release();
+                }
+            }, sendExecutor);
+        }
+        try {
+            CompletableFuture.allOf(deliveries).join();
+        } finally {
+            if (!unsent.isEmpty()) {
+                releaseRemaining(unsent);
+            }
+        }
+        return batch.size();
+    }
+
+    // 取走一批郵件並標記為 PROCESSING，交易結束時由 dirty checking 寫回
+    private List<EmailOutboxMessage> claimBatch() {
+        OffsetDateTime now = OffsetDateTime.now();
+        List<EmailOutboxMessage> batch = outboxRepository.lockNextBatch(now, properties.getBatchSize());
+        OffsetDateTime leaseUntil = now.plus(properties.getLease());
+        for (EmailOutboxMessage message : batch) {
+            message.setStatus(EmailOutboxMessage.Status.PROCESSING);
+            message.setNextAttemptAt(leaseUntil);
+        }
+        return batch;
+    }
+
+    private void deliver(EmailOutboxMessage message) {
+        long start = System.nanoTime();
+        try {
+            emailService.send(message);
+        } catch (RuntimeException e) {
+            sendFailureTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            handleFailure(message, e);
+            return;
+        }
+        sendSuccessTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        complete(message);
+    }
+
+    // 整批郵件一次寄出，再逐封記錄結果
+    private void deliverAll(List<EmailOutboxMessage> batch) {
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> results = emailService.sendBatch(batch);
+        long elapsed = System.nanoTime() - start;
+        for (int i = 0; i < batch.size(); i++) {
+            EmailOutboxMessage message = batch.get(i);
+            try {
+                results.get(i).join();
+            } catch (CompletionException e) {
+                sendFailureTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                handleFailure(message, e.getCause() instanceof RuntimeException cause ? cause : e);
+                continue;
+            }
+            sendSuccessTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            complete(message);
+        }
+    }
+
+    private void complete(EmailOutboxMessage message) {
+        OffsetDateTime sentAt = OffsetDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> outboxRepository.complete(message.getId(),
+                EmailOutboxMessage.Status.SENT, sentAt, null));
+        if (message.getCreatedAt() != null) {
+            deliveryDelayTimer.record(Duration.between(message.getCreatedAt(), sentAt));
+        }
+    }
+
+    private void handleFailure(EmailOutboxMessage message, RuntimeException e) {
+        int attempts = message.getAttempts() + 1;
+        String error = truncate(e.getMessage());
+        if (attempts >= properties.getMaxAttempts()) {
+            logger.error("Giving up on {} email to {} after {} attempts (outbox ID: {}): {}", message.getType(),
+                    message.getRecipientEmail(), attempts, message.getId(), error, e);
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.complete(message.getId(),
+                    EmailOutboxMessage.Status.FAILED, null, error));
+            return;
+        }
+        OffsetDateTime nextAttemptAt = OffsetDateTime.now().plus(backoff(attempts));
+        logger.warn("Failed to send {} email to {} (attempt {}, outbox ID: {}), retrying at {}: {}",
+                message.getType(), message.getRecipientEmail(), attempts, message.getId(), nextAttemptAt, error);
+        transactionTemplate.executeWithoutResult(status -> outboxRepository.reschedule(message.getId(),
+                EmailOutboxMessage.Status.PENDING, nextAttemptAt, error));
+    }
+
+    private void releaseRemaining(List<EmailOutboxMessage> remaining) {
+        List<Long> ids = new ArrayList<>(remaining.size());
+        for (EmailOutboxMessage message : remaining) {
+            ids.add(message.getId());
+        }
+        Integer released = transactionTemplate.execute(status -> outboxRepository.release(
+                ids, OffsetDateTime.now(),
+                EmailOutboxMessage.Status.PENDING, EmailOutboxMessage.Status.PROCESSING));
+        logger.info("Released {} unsent outbox emails on shutdown", released);
+    }
+
+    // 指數退避：initialBackoff * 2^(attempts-1)，上限為 maxBackoff
+    private Duration backoff(int attempts) {
+        int shift = Math.min(attempts - 1, 20);
+        Duration delay = properties.getInitialBackoff().multipliedBy(1L << shift);
+        return delay.compareTo(properties.getMaxBackoff()) > 0 ? properties.getMaxBackoff() : delay;
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.securelogin.service;
+
+import com.example.securelogin.entity.EmailOutboxMessage;
+import com.example.securelogin.repository.EmailOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+
+/**
+ * 將郵件寫入 outbox。必須在呼叫端的交易中執行，讓郵件與使用者 / 驗證碼一起 commit 或 rollback；
+ * 實際寄送由 {@link EmailOutboxDispatcher} 在背景完成，request 不再等待 SMTP / Mailjet。
+ */
+@Service
+public class EmailOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxService.class);
+    private final EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    public EmailOutboxService(EmailOutboxRepository outboxRepository) {
+        this.outboxRepository = outboxRepository;
+    }
+
+    // 註冊驗證信
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueRegistrationVerificationEmail(String recipientEmail, String recipientName,
+            String verificationToken) {
+        enqueue(EmailOutboxMessage.Type.REGISTRATION_VERIFICATION, recipientEmail, recipientName,
+                verificationToken);
+    }
+
+    // 登入驗證碼信
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueLoginVerificationCodeEmail(String recipientEmail, String recipientName,
+            String verificationCode) {
+        enqueue(EmailOutboxMessage.Type.LOGIN_VERIFICATION_CODE, recipientEmail, recipientName,
+                verificationCode);
+    }
+
+    private void enqueue(EmailOutboxMessage.Type type, String recipientEmail, String recipientName,
+            String payload) {
+        EmailOutboxMessage message = EmailOutboxMessage.builder()
+                .type(type)
+                .recipientEmail(recipientEmail)
+                .recipientName(recipientName)
+                .payload(payload)
+                .status(EmailOutboxMessage.Status.PENDING)
+                .attempts(0)
+                .nextAttemptAt(OffsetDateTime.now())
+                .build();
+        outboxRepository.save(message);
+        logger.debug("Queued {} email for {} (outbox ID: {})", type, recipientEmail, message.getId());
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.securelogin.service;
+
+import com.example.securelogin.util.OutcomeTimers;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * {@link EmailService} 實作寄出一封郵件的結果 ({@code email.send} 的 outcome tag)。
+ */
+enum EmailSendOutcome {
+    SUCCESS, FAILURE;
+
+    // 每個 provider 與樣板各一組 Timer，包含樣板產生與寄送 (Mailjet 含等待同一批次送出) 的時間
+    static OutcomeTimers<EmailSendOutcome> timers(MeterRegistry meterRegistry, String provider, String template) {
+        return OutcomeTimers.register(meterRegistry, "email.send", "Time spent rendering and sending an email",
+                EmailSendOutcome.class, Tags.of("provider", provider, "template", template));
+    }
+}
@@ -1,5 +1,11 @@
 package com.example.securelogin.service;
 
+import com.example.securelogin.entity.EmailOutboxMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface EmailService {
 
     /**
@@ -19,4 +25,44 @@ public interface EmailService {
      * @param verificationCode 驗證碼
      */
     void sendLoginVerificationCodeEmail(String recipientEmail, String recipientName, String verificationCode);
+
+    /**
+     * 寄出一封 outbox 郵件
+     *
+     * @param message outbox 郵件
+     */
+    default void send(EmailOutboxMessage message) {
+        switch (message.getType()) {
+            case REGISTRATION_VERIFICATION -> sendRegistrationVerificationEmail(
+                    message.getRecipientEmail(), message.getRecipientName(), message.getPayload());
+            case LOGIN_VERIFICATION_CODE -> sendLoginVerificationCodeEmail(
+                    message.getRecipientEmail(), message.getRecipientName(), message.getPayload());
+        }
+    }
+
+    /**
+     * 是否能以 {@link #sendBatch(List)} 一次寄出整批郵件；否則由 dispatcher 逐封並行寄送
+     */
+    default boolean supportsBatchSend() {
+        return false;
+    }
+
+    /**
+     * 一次寄出一批 outbox 郵件
+     *
+     * @param messages outbox 郵件
+     * @return 與 messages 相同順序的寄送結果，回傳時都已完成
+     */
+    default List<CompletableFuture<Void>> sendBatch(List<EmailOutboxMessage> messages) {
+        List<CompletableFuture<Void>> results = new ArrayList<>(messages.size());
+        for (EmailOutboxMessage message : messages) {
+            try {
+                send(message);
+                results.add(CompletableFuture.completedFuture(null));
+            } catch (RuntimeException e) {
+                results.add(CompletableFuture.failedFuture(e));
+            }
+        }
+        return results;
+    }
 }
@@ -0,0 +1,115 @@
+package com.example.securelogin.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 預先編譯好的郵件樣板：原始文字在啟動時切成「固定文字 / 變數」片段，
+ * 全域常數 (例如 baseUrl、appName) 直接合併進固定文字，寄信時只需依序附加片段。
+ * <p>
+ * 語法為 {@code {{name}}}；HTML 樣板中的變數值會做 HTML escape。
+ */
+final class EmailTemplate {
+
+    private final String[] parts;
+    private final boolean[] variable;
+    private final boolean escapeHtml;
+    private final int literalLength;
+
+    private EmailTemplate(String[] parts, boolean[] variable, boolean escapeHtml, int literalLength) {
+        this.parts = parts;
+        this.variable = variable;
+        this.escapeHtml = escapeHtml;
+        this.literalLength = literalLength;
+    }
+
+    /**
+     * 編譯樣板。
+     *
+     * @param source     樣板原始文字
+     * @param escapeHtml 是否對變數值做 HTML escape
+     * @param constants  編譯時就代入的全域常數
+     */
+    static EmailTemplate compile(String source, boolean escapeHtml, Map<String, String> constants) {
+        List<String> parts = new ArrayList<>();
+        List<Boolean> variables = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+
+        int position = 0;
+        while (position < source.length()) {
+            int open = source.indexOf("{{", position);
+            if (open < 0) {
+                literal.append(source, position, source.length());
+                break;
+            }
+            int close = source.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed '{{' at offset " + open);
+            }
+            literal.append(source, position, open);
+            String name = source.substring(open + 2, close).trim();
+            String constant = constants.get(name);
+            if (constant != null) {
+                appendValue(literal, constant, escapeHtml);
+            } else {
+                if (literal.length() > 0) {
+                    parts.add(literal.toString());
+                    variables.add(false);
+                    literal.setLength(0);
+                }
+                parts.add(name);
+                variables.add(true);
+            }
+            position = close + 2;
+        }
+        if (literal.length() > 0) {
+            parts.add(literal.toString());
+            variables.add(false);
+        }
+
+        boolean[] variableFlags = new boolean[variables.size()];
+        int literalLength = 0;
+        for (int i = 0; i < variableFlags.length; i++) {
+            variableFlags[i] = variables.get(i);
+            if (!variableFlags[i]) {
+                literalLength += parts.get(i).length();
+            }
+        }
+        return new EmailTemplate(parts.toArray(new String[0]), variableFlags, escapeHtml, literalLength);
+    }
+
+    // 將樣板輸出到呼叫端提供的 buffer
+    void renderTo(StringBuilder out, Map<String, String> values) {
+        out.ensureCapacity(out.length() + literalLength + 64);
+        for (int i = 0; i < parts.length; i++) {
+            if (!variable[i]) {
+                out.append(parts[i]);
+                continue;
+            }
+            String value = values.get(parts[i]);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing email template variable: " + parts[i]);
+            }
+            appendValue(out, value, escapeHtml);
+        }
+    }
+
+    private static void appendValue(StringBuilder out, String value, boolean escapeHtml) {
+        if (!escapeHtml) {
+            out.append(value);
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&' -> out.append("&amp;");
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+}
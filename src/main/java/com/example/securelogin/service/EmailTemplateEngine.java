@@ -0,0 +1,179 @@
+package com.example.securelogin.service;
+
+import com.example.securelogin.config.AppProperties;
+import com.example.securelogin.config.TwoFactorProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 郵件樣板引擎，GmailServiceImpl 與 MailjetEmailServiceImpl 共用。
+ * <p>
+ * 啟動時載入 {@code classpath:templates/email/} 下的樣板並預先編譯：
+ * <ul>
+ * <li>{@code <name>.subject.txt} 主旨</li>
+ * <li>{@code <name>.txt} 純文字內容</li>
+ * <li>{@code <name>.html} HTML 內容 (變數會做 HTML escape)</li>
+ * </ul>
+ * 在地化版本放在以 locale 命名的子目錄 (例如 {@code zh_TW/})，查找順序為
+ * {@code zh_TW} → {@code zh} → 預設。
+ * <p>
+ * 全域常數 ({@code baseUrl}、{@code appName}、登入驗證碼的有效分鐘數 {@code codeTtlMinutes})
+ * 在編譯樣板時代入。
+ */
+@Component
+public class EmailTemplateEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailTemplateEngine.class);
+
+    public static final String REGISTRATION_VERIFICATION = "registration-verification";
+    public static final String LOGIN_VERIFICATION_CODE = "login-verification-code";
+
+    private static final String LOCATION = "templates/email/";
+    private static final int INITIAL_BUFFER_SIZE = 2048;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    // 每個執行緒重複使用的輸出 buffer，避免每封信重新配置
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal
+            .withInitial(() -> new StringBuilder(INITIAL_BUFFER_SIZE));
+
+    // key: "<locale>/<name>"，預設語系的 locale 為空字串
+    private final Map<String, TemplateSet> templates;
+
+    @Autowired
+    public EmailTemplateEngine(AppProperties app, TwoFactorProperties twoFactor) {
+        Map<String, String> constants = new HashMap<>();
+        constants.put("baseUrl", app.getBaseUrl() != null ? app.getBaseUrl() : "");
+        constants.put("appName", app.getName() != null ? app.getName() : "");
+        // 不足一分鐘的部分無條件進位，信中寫的時間不會比實際短
+        constants.put("codeTtlMinutes", Long.toString(Math.max(1, (twoFactor.getCodeTtl().toSeconds() + 59) / 60)));
+        this.templates = load(constants);
+        logger.info("Loaded {} email templates from classpath:{}", templates.size(), LOCATION);
+    }
+
+    /**
+     * 產生郵件的主旨、純文字與 HTML 內容。
+     *
+     * @param name      樣板名稱，例如 {@link #REGISTRATION_VERIFICATION}
+     * @param locale    語系，找不到對應版本時使用預設樣板
+     * @param variables 樣板變數
+     */
+    public RenderedEmail render(String name, Locale locale, Map<String, String> variables) {
+        TemplateSet set = resolve(name, locale);
+        return new RenderedEmail(
+                render(set.subject(), variables),
+                render(set.text(), variables),
+                render(set.html(), variables));
+    }
+
+    private String render(EmailTemplate template, Map<String, String> variables) {
+        if (template == null) {
+            return null;
+        }
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        template.renderTo(buffer, variables);
+        String result = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+            BUFFER.set(new StringBuilder(INITIAL_BUFFER_SIZE)); // 不長期保留過大的 buffer
+        }
+        return result;
+    }
+
+    private TemplateSet resolve(String name, Locale locale) {
+        if (locale != null) {
+            TemplateSet set = templates.get(locale + "/" + name);
+            if (set == null) {
+                set = templates.get(locale.getLanguage() + "/" + name);
+            }
+            if (set != null) {
+                return set;
+            }
+        }
+        TemplateSet set = templates.get("/" + name);
+        if (set == null) {
+            throw new IllegalArgumentException("Unknown email template: " + name);
+        }
+        return set;
+    }
+
+    private static Map<String, TemplateSet> load(Map<String, String> constants) {
+        Map<String, TemplateSet> loaded = new HashMap<>();
+        try {
+            Resource[] resources = new PathMatchingResourcePatternResolver()
+                    .getResources("classpath*:" + LOCATION + "**/*.*");
+            for (Resource resource : resources) {
+                String url = resource.getURL().toString();
+                String path = url.substring(url.lastIndexOf(LOCATION) + LOCATION.length());
+                int slash = path.lastIndexOf('/');
+                String locale = slash < 0 ? "" : path.substring(0, slash);
+                String fileName = path.substring(slash + 1);
+
+                String name;
+                String part;
+                if (fileName.endsWith(".subject.txt")) {
+                    name = fileName.substring(0, fileName.length() - ".subject.txt".length());
+                    part = "subject";
+                } else if (fileName.endsWith(".txt")) {
+                    name = fileName.substring(0, fileName.length() - ".txt".length());
+                    part = "text";
+                } else if (fileName.endsWith(".html")) {
+                    name = fileName.substring(0, fileName.length() - ".html".length());
+                    part = "html";
+                } else {
+                    continue;
+                }
+
+                String source = resource.getContentAsString(StandardCharsets.UTF_8);
+                if (!"html".equals(part)) {
+                    source = source.strip(); // 主旨與純文字不保留檔案結尾換行
+                }
+                EmailTemplate template = EmailTemplate.compile(source, "html".equals(part), constants);
+                loaded.merge(locale + "/" + name, TemplateSet.of(part, template), TemplateSet::merge);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load email templates from classpath:" + LOCATION, e);
+        }
+        for (Map.Entry<String, TemplateSet> entry : loaded.entrySet()) {
+            if (entry.getValue().subject() == null || entry.getValue().text() == null) {
+                throw new IllegalStateException("Email template " + entry.getKey()
+                        + " must define both .subject.txt and .txt");
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 產生好的郵件內容；沒有 HTML 樣板時 html 為 null。
+     */
+    public record RenderedEmail(String subject, String text, String html) {
+    }
+
+    private record TemplateSet(EmailTemplate subject, EmailTemplate text, EmailTemplate html) {
+
+        static TemplateSet of(String part, EmailTemplate template) {
+            return switch (part) {
+                case "subject" -> new TemplateSet(template, null, null);
+                case "text" -> new TemplateSet(null, template, null);
+                default -> new TemplateSet(null, null, template);
+            };
+        }
+
+        TemplateSet merge(TemplateSet other) {
+            return new TemplateSet(
+                    subject != null ? subject : other.subject,
+                    text != null ? text : other.text,
+                    html != null ? html : other.html);
+        }
+    }
+}
@@ -4,10 +4,17 @@ import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.MailPreparationException;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.beans.factory.annotation.Value;
 import com.example.securelogin.config.AppProperties;
+import com.example.securelogin.util.OutcomeTimers;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 @Service("gmailService")
 public class GmailServiceImpl implements EmailService {
@@ -16,59 +23,77 @@ public class GmailServiceImpl implements EmailService {
 
         private final JavaMailSender mailSender;
         private final AppProperties app;
+        private final EmailTemplateEngine templateEngine;
+        private final OutcomeTimers<EmailSendOutcome> registrationTimers;
+        private final OutcomeTimers<EmailSendOutcome> loginCodeTimers;
 
         @Value("${spring.mail.from}")
         private String configuredFromEmail;
 
         @Autowired
-        public GmailServiceImpl(JavaMailSender mailSender, AppProperties app) {
+        public GmailServiceImpl(JavaMailSender mailSender, AppProperties app, EmailTemplateEngine templateEngine,
+                        MeterRegistry meterRegistry) {
                 this.mailSender = mailSender;
                 this.app = app;
+                this.templateEngine = templateEngine;
+                this.registrationTimers = EmailSendOutcome.timers(meterRegistry, "gmailService",
+                                EmailTemplateEngine.REGISTRATION_VERIFICATION);
+                this.loginCodeTimers = EmailSendOutcome.timers(meterRegistry, "gmailService",
+                                EmailTemplateEngine.LOGIN_VERIFICATION_CODE);
         }
 
         @Override
         public void sendRegistrationVerificationEmail(String recipientEmail, String recipientName,
                         String verificationToken) {
-                SimpleMailMessage message = new SimpleMailMessage();
-                message.setFrom(configuredFromEmail);
-                message.setTo(recipientEmail);
-                message.setSubject("Verify Your Registration");
-
-                String emailBody = String.format(
-                                "Hello %s,\n\n" +
-                                                "Thank you for registering with Our Secure Application.\n" +
-                                                "Please click the link below to verify your email address:\n" +
-                                                "%s\n\n" +
-                                                "If you did not request this, please ignore this email.\n\n" +
-                                                "Thanks,\nThe Application Team",
-                                recipientName,
-                                app.getBaseUrl() + "/api/verify-registration?token=" + verificationToken);
-                message.setText(emailBody);
-
-                mailSender.send(message);
+                long start = System.nanoTime();
+                EmailSendOutcome outcome = EmailSendOutcome.FAILURE;
+                try {
+                        EmailTemplateEngine.RenderedEmail email = templateEngine.render(
+                                        EmailTemplateEngine.REGISTRATION_VERIFICATION, app.getMailLocale(),
+                                        Map.of("recipientName", recipientName, "token", verificationToken));
+                        send(recipientEmail, email);
+                        outcome = EmailSendOutcome.SUCCESS;
+                } finally {
+                        registrationTimers.record(outcome, start);
+                }
                 logger.info("Verification email sent successfully to {} via Gmail.", recipientEmail);
         }
 
         @Override
         public void sendLoginVerificationCodeEmail(String recipientEmail, String recipientName,
                         String verificationCode) {
-                SimpleMailMessage message = new SimpleMailMessage();
-                message.setFrom(configuredFromEmail);
-                message.setTo(recipientEmail);
-                // 設定郵件主旨，將驗證碼包含在主旨中
-                String subject = String.format("【%s】is your login verification code", verificationCode);
-                message.setSubject(subject);
-
-                String emailBody = String.format(
-                                "<p>Hello %s,</p>" +
-                                                "<p>Your login verification code is【%s】</p>" +
-                                                "<p>The code will expire in <b>5 minutes</b>.</p>" +
-                                                "<p>If you did not request this, please ignore this email.</p>" +
-                                                "<p>Thanks,<br>The Application Team</p>",
-                                recipientName, verificationCode);
-                message.setText(emailBody);
+                long start = System.nanoTime();
+                EmailSendOutcome outcome = EmailSendOutcome.FAILURE;
+                try {
+                        // 主旨中包含驗證碼
+                        EmailTemplateEngine.RenderedEmail email = templateEngine.render(
+                                        EmailTemplateEngine.LOGIN_VERIFICATION_CODE, app.getMailLocale(),
+                                        Map.of("recipientName", recipientName, "code", verificationCode));
+                        send(recipientEmail, email);
+                        outcome = EmailSendOutcome.SUCCESS;
+                } finally {
+                        loginCodeTimers.record(outcome, start);
+                }
+                logger.info("Login verification code email sent successfully to {} via Gmail.", recipientEmail);
+        }
 
+        // 同時帶純文字與 HTML 內容 (multipart/alternative)
+        private void send(String recipientEmail, EmailTemplateEngine.RenderedEmail email) {
+                MimeMessage message = mailSender.createMimeMessage();
+                try {
+                        MimeMessageHelper helper = new MimeMessageHelper(message, email.html() != null,
+                                        StandardCharsets.UTF_8.name());
+                        helper.setFrom(configuredFromEmail);
+                        helper.setTo(recipientEmail);
+                        helper.setSubject(email.subject());
+                        if (email.html() != null) {
+                                helper.setText(email.text(), email.html());
+                        } else {
+                                helper.setText(email.text());
+                        }
+                } catch (MessagingException e) {
+                        throw new MailPreparationException("Failed to build email to " + recipientEmail, e);
+                }
                 mailSender.send(message);
-                logger.info("Login verification code email sent successfully to {} via Gmail.", recipientEmail);
         }
 }
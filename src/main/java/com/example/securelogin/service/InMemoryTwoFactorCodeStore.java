@@ -0,0 +1,225 @@
+package com.example.securelogin.service;
+
+import com.example.securelogin.config.TwoFactorProperties;
+import com.example.securelogin.exception.ServiceOverloadedException;
+import com.example.securelogin.repository.LoginVerificationRepository;
+import com.example.securelogin.security.AuthenticatedUser;
+import com.example.securelogin.security.UserSnapshot;
+import com.example.securelogin.util.TimerWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 把 2FA 驗證碼放在記憶體中，登入時不必存取驗證碼資料表，驗證成功後只需一個
+ * UPDATE users 記錄登入時間 (write-behind 模式下則完全不寫資料庫)。只適用於單機或 sticky session 部署，
+ * 重新啟動後尚未使用的驗證碼會遺失 (使用者重新登入即可取得新的驗證碼)。
+ * <p>
+ * 依 email 分成 lock-stripes 段，每段各有自己的 {@link ReentrantLock}、HashMap 與 {@link TimerWheel}；
+ * 背景執行緒每個 tick 推進各段的 timer wheel，移除過期的驗證碼。驗證碼在
+ * {@link #consume} 成功一次後即移除，錯誤次數達 max-attempts 也會作廢。
+ * 總數上限為 max-entries，滿了回 503。
+ */
+@Component
+@ConditionalOnProperty(name = "two-factor.store", havingValue = "memory")
+public class InMemoryTwoFactorCodeStore implements TwoFactorCodeStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryTwoFactorCodeStore.class);
+
+    // 每筆資料約略的記憶體用量 (email、雜湊字串、HashMap node 與 timer)
+    private static final int APPROX_ENTRY_BYTES = 320;
+
+    private final LoginVerificationRepository loginVerificationRepository;
+    private final UserLookupCache userLookupCache;
+    private final Stripe[] stripes;
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxEntries;
+    private final int maxAttempts;
+    private final long retryAfterSeconds;
+    private final Counter rejected;
+    private final ScheduledExecutorService expiry;
+
+    public InMemoryTwoFactorCodeStore(TwoFactorProperties properties, MeterRegistry meterRegistry,
+            LoginVerificationRepository loginVerificationRepository, UserLookupCache userLookupCache) {
+        this.loginVerificationRepository = loginVerificationRepository;
+        this.userLookupCache = userLookupCache;
+        this.maxEntries = properties.getMaxEntries();
+        this.maxAttempts = Math.max(1, properties.getMaxAttempts());
+        this.retryAfterSeconds = Math.max(1, properties.getExpiryTick().toSeconds());
+
+        // 段數取 2 的次方，以位元運算選段
+        int stripeCount = Integer.highestOneBit(Math.max(1, properties.getLockStripes() - 1)) << 1;
+        long now = System.nanoTime();
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(properties.getExpiryTick(), now);
+        }
+
+        Gauge.builder("two.factor.store.size", size, AtomicInteger::get)
+                .description("2FA codes held in memory")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("two.factor.store.rejected")
+                .description("2FA codes rejected because the in-memory store is full")
+                .register(meterRegistry);
+
+        this.expiry = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "two-factor-code-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tickMillis = Math.max(1, properties.getExpiryTick().toMillis());
+        expiry.scheduleAtFixedRate(this::expire, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        logger.info("In-memory 2FA code store started: {} stripes, max {} entries (~{} KiB)", stripeCount,
+                maxEntries, (long) maxEntries * APPROX_ENTRY_BYTES / 1024);
+    }
+
+    @Override
+    public void save(UserSnapshot user, String codeHash, OffsetDateTime expiresAt) {
+        String email = user.getEmail();
+        long deadlineNanos = System.nanoTime() + Duration.between(OffsetDateTime.now(), expiresAt).toNanos();
+        Stripe stripe = stripeFor(email);
+        stripe.lock.lock();
+        try {
+            Entry previous = stripe.entries.get(email);
+            if (previous != null) {
+                stripe.remove(previous); // 作廢尚未使用的舊驗證碼
+            } else if (size.incrementAndGet() > maxEntries) {
+                size.decrementAndGet();
+                rejected.increment();
+                throw new ServiceOverloadedException("Too many pending verification codes, please retry later",
+                        retryAfterSeconds);
+            }
+            Entry entry = new Entry(email, codeHash, deadlineNanos);
+            entry.timer = stripe.wheel.schedule(entry, deadlineNanos);
+            stripe.entries.put(email, entry);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<AuthenticatedUser> consume(String email, String codeHash, OffsetDateTime now,
+            boolean recordLogin) {
+        if (!consumeCode(email, codeHash)) {
+            return Optional.empty();
+        }
+        if (recordLogin) {
+            return loginVerificationRepository.recordLogin(email, now);
+        }
+        // write-behind 模式：身分資料從使用者快取取得，驗證過程完全不寫資料庫
+        return userLookupCache.findByEmail(email).map(AuthenticatedUser::from);
+    }
+
+    private boolean consumeCode(String email, String codeHash) {
+        Stripe stripe = stripeFor(email);
+        stripe.lock.lock();
+        try {
+            Entry entry = stripe.entries.get(email);
+            if (entry == null) {
+                return false;
+            }
+            if (System.nanoTime() - entry.deadlineNanos >= 0) {
+                stripe.remove(entry); // 已過期但 timer 尚未觸發
+                size.decrementAndGet();
+                return false;
+            }
+            entry.attempts++;
+            if (MessageDigest.isEqual(entry.codeHash.getBytes(StandardCharsets.UTF_8),
+                    codeHash.getBytes(StandardCharsets.UTF_8))) {
+                stripe.remove(entry);
+                size.decrementAndGet();
+                return true;
+            }
+            if (entry.attempts >= maxAttempts) {
+                logger.warn("2FA code for {} invalidated after {} failed attempts", email, entry.attempts);
+                stripe.remove(entry);
+                size.decrementAndGet();
+            }
+            return false;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        expiry.shutdownNow();
+    }
+
+    private void expire() {
+        try {
+            long now = System.nanoTime();
+            for (Stripe stripe : stripes) {
+                stripe.lock.lock();
+                try {
+                    stripe.wheel.advance(now, entry -> {
+                        stripe.entries.remove(entry.email, entry);
+                        size.decrementAndGet();
+                    });
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+        } catch (RuntimeException e) {
+            // 不可讓例外中斷 scheduleAtFixedRate
+            logger.error("Failed to expire 2FA codes: {}", e.getMessage(), e);
+        }
+    }
+
+    private Stripe stripeFor(String email) {
+        int hash = email.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<String, Entry> entries = new HashMap<>();
+        final TimerWheel<Entry> wheel;
+
+        Stripe(Duration tick, long nowNanos) {
+            this.wheel = new TimerWheel<>(tick, nowNanos);
+        }
+
+        // 呼叫端需持有 lock；不調整總數
+        void remove(Entry entry) {
+            entries.remove(entry.email, entry);
+            wheel.cancel(entry.timer);
+        }
+    }
+
+    private static final class Entry {
+        final String email;
+        final String codeHash;
+        final long deadlineNanos;
+        int attempts;
+        TimerWheel.Timer<Entry> timer;
+
+        Entry(String email, String codeHash, long deadlineNanos) {
+            this.email = email;
+            this.codeHash = codeHash;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
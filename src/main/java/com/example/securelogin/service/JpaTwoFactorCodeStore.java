@@ -0,0 +1,71 @@
+package com.example.securelogin.service;
+
+import com.example.securelogin.config.TwoFactorProperties;
+import com.example.securelogin.entity.TwoFactorAuthCode;
+import com.example.securelogin.repository.LoginVerificationRepository;
+import com.example.securelogin.repository.TwoFactorAuthCodeRepository;
+import com.example.securelogin.repository.UserRepository;
+import com.example.securelogin.security.AuthenticatedUser;
+import com.example.securelogin.security.UserSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+
+/**
+ * 以 two_factor_auth_codes 資料表保存驗證碼，多台 instance 共用。
+ * 資料表依 expires_at 分區，過期與已使用的資料由 PartitionMaintenanceJob 刪除。
+ * 每次嘗試在同一個 UPDATE 中計入 attempts 欄位，達到 max-attempts 即作廢。
+ */
+@Component
+@ConditionalOnProperty(name = "two-factor.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaTwoFactorCodeStore implements TwoFactorCodeStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(JpaTwoFactorCodeStore.class);
+
+    private final TwoFactorAuthCodeRepository twoFactorAuthCodeRepository;
+    private final LoginVerificationRepository loginVerificationRepository;
+    private final UserRepository userRepository;
+    private final int maxAttempts;
+
+    public JpaTwoFactorCodeStore(TwoFactorAuthCodeRepository twoFactorAuthCodeRepository,
+            LoginVerificationRepository loginVerificationRepository, UserRepository userRepository,
+            TwoFactorProperties properties) {
+        this.twoFactorAuthCodeRepository = twoFactorAuthCodeRepository;
+        this.loginVerificationRepository = loginVerificationRepository;
+        this.userRepository = userRepository;
+        this.maxAttempts = Math.max(1, properties.getMaxAttempts());
+    }
+
+    @Transactional
+    @Override
+    public void save(UserSnapshot user, String codeHash, OffsetDateTime expiresAt) {
+        // 先作廢該使用者現有的驗證碼，一個使用者最多只能有一個未使用的驗證碼
+        twoFactorAuthCodeRepository.invalidateActiveCodes(user.getId(), OffsetDateTime.now());
+
+        TwoFactorAuthCode newCode = TwoFactorAuthCode.builder()
+                .user(userRepository.getReferenceById(user.getId())) // 只需要 user_id，不查詢 users
+                .codeHash(codeHash)
+                .expiresAt(expiresAt)
+                .used(false)
+                .build();
+        twoFactorAuthCodeRepository.save(newCode);
+    }
+
+    // 單一 UPDATE ... RETURNING，同時完成計入嘗試次數、消耗驗證碼與記錄登入時間
+    @Override
+    public Optional<AuthenticatedUser> consume(String email, String codeHash, OffsetDateTime now,
+            boolean recordLogin) {
+        LoginVerificationRepository.CodeAttempt attempt = recordLogin
+                ? loginVerificationRepository.consumeCodeAndRecordLogin(email, codeHash, now, maxAttempts)
+                : loginVerificationRepository.consumeCode(email, codeHash, now, maxAttempts);
+        if (attempt.invalidated()) {
+            logger.warn("2FA code for {} invalidated after {} failed attempts", email, maxAttempts);
+        }
+        return attempt.user();
+    }
+}
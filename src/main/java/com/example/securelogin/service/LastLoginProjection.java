@@ -0,0 +1,66 @@
+package com.example.securelogin.service;
+
+import com.example.securelogin.config.AppProperties;
+import com.example.securelogin.config.LastLoginProperties;
+import com.example.securelogin.dto.LastLoginResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * {@code GET /api/user/last-login} 的回應快取，以 email 為 key。
+ * <p>
+ * 每筆保存已格式化好的 {@link LastLoginResponse} 與對應的 ETag，{@code loginVerify} 成功時直接更新，
+ * 查詢時命中就不需要查資料庫也不需要格式化；ETag 相同時 controller 回 304。
+ * 只會往較新的登入時間更新。其他 instance 上的登入不會通知這裡，最多延遲 projection-ttl。
+ */
+@Component
+public class LastLoginProjection {
+
+    private static final String PATTERN = "yyyy-MM-dd HH:mm:ss.SSS Z";
+
+    private final DateTimeFormatter formatter;
+    private final Cache<String, View> views;
+
+    public LastLoginProjection(AppProperties appProperties, LastLoginProperties properties) {
+        // 時區固定，formatter 只建立一次 (thread-safe)
+        this.formatter = DateTimeFormatter.ofPattern(PATTERN).withZone(appProperties.getTimeZone());
+        this.views = Caffeine.newBuilder()
+                .maximumSize(properties.getProjectionMaxSize())
+                .expireAfterWrite(properties.getProjectionTtl())
+                .build();
+    }
+
+    public View get(String email) {
+        return views.getIfPresent(email);
+    }
+
+    // 登入成功或從資料庫載入後更新；不會覆蓋較新的登入時間
+    public View update(String email, OffsetDateTime loginAt) {
+        return views.asMap().compute(email, (key, current) -> current != null
+                && !loginAt.isAfter(current.loginAt()) ? current : render(key, loginAt));
+    }
+
+    public void evict(String email) {
+        views.invalidate(email);
+    }
+
+    private View render(String email, OffsetDateTime loginAt) {
+        LastLoginResponse body = LastLoginResponse.builder()
+                .email(email)
+                .lastLoginTime(formatter.format(loginAt))
+                .build();
+        // 登入時間 (奈秒) 決定回應內容，直接作為 ETag
+        long epochNanos = loginAt.toEpochSecond() * 1_000_000_000L + loginAt.getNano();
+        return new View(body, '"' + Long.toHexString(epochNanos) + '"', loginAt);
+    }
+
+    /**
+     * 已格式化的回應與 ETag。
+     */
+    public record View(LastLoginResponse body, String etag, OffsetDateTime loginAt) {
+    }
+}
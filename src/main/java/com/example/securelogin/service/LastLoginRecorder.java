@@ -0,0 +1,129 @@
+package com.example.securelogin.service;
+
+import com.example.securelogin.config.LastLoginProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * last_login_at 的 write-behind 緩衝 ({@code last-login.write-behind=true} 時使用)。
+ * <p>
+ * 登入時只把時間記在記憶體 (同一位使用者保留最新的一筆)，每隔 flush-interval 以一個
+ * {@code UPDATE ... FROM (VALUES ...)} 批次寫入，關機時也會寫入一次。只更新 last_login_at，
+ * 不會改動 updated_at。尚未寫入的時間可以用 {@link #latest} 讀到，查詢 API 仍然 read-your-writes。
+ * 程序異常終止時，最後一個間隔內的登入時間會遺失。
+ */
+@Component
+public class LastLoginRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(LastLoginRecorder.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserLookupCache userLookupCache;
+    private final LastLoginProperties properties;
+
+    // key: user id
+    private final Map<Long, PendingLogin> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public LastLoginRecorder(JdbcTemplate jdbcTemplate, UserLookupCache userLookupCache,
+            LastLoginProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userLookupCache = userLookupCache;
+        this.properties = properties;
+    }
+
+    public boolean isWriteBehind() {
+        return properties.isWriteBehind();
+    }
+
+    // 記錄登入時間，同一位使用者只保留最新的時間
+    public void record(Long userId, String email, OffsetDateTime loginAt) {
+        pending.merge(userId, new PendingLogin(email, loginAt),
+                (current, next) -> next.loginAt().isAfter(current.loginAt()) ? next : current);
+    }
+
+    /**
+     * 回傳 {@code stored} (資料庫或快取中的值) 與尚未寫入的登入時間中較新的一個。
+     */
+    public OffsetDateTime latest(Long userId, OffsetDateTime stored) {
+        PendingLogin login = pending.get(userId);
+        if (login == null || (stored != null && !login.loginAt().isAfter(stored))) {
+            return stored;
+        }
+        return login.loginAt();
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${last-login.flush-interval:1s}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        flushLock.lock(); // 排程與關機時的 flush 不重疊
+        try {
+            List<Map.Entry<Long, PendingLogin>> batch = new ArrayList<>(properties.getBatchSize());
+            for (Map.Entry<Long, PendingLogin> entry : pending.entrySet()) {
+                batch.add(Map.entry(entry.getKey(), entry.getValue()));
+                if (batch.size() >= properties.getBatchSize()) {
+                    write(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        } catch (RuntimeException e) {
+            // 保留在緩衝中，下一次再寫入
+            logger.error("Failed to flush {} pending last-login updates: {}", pending.size(), e.getMessage(), e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        if (!pending.isEmpty()) {
+            logger.warn("{} last-login updates could not be written on shutdown", pending.size());
+        }
+    }
+
+    private void write(List<Map.Entry<Long, PendingLogin>> batch) {
+        StringBuilder sql = new StringBuilder(
+                "UPDATE users AS u SET last_login_at = v.last_login_at FROM (VALUES ");
+        Object[] args = new Object[batch.size() * 2];
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append("(?::bigint, ?::timestamptz)");
+            args[i * 2] = batch.get(i).getKey();
+            args[i * 2 + 1] = batch.get(i).getValue().loginAt();
+        }
+        // 只往後更新，避免覆蓋其他 instance 已寫入的較新時間
+        sql.append(") AS v(id, last_login_at) WHERE u.id = v.id "
+                + "AND (u.last_login_at IS NULL OR u.last_login_at < v.last_login_at)");
+        int updated = jdbcTemplate.update(sql.toString(), args);
+
+        for (Map.Entry<Long, PendingLogin> entry : batch) {
+            // 寫入期間又有新的登入時，保留新的時間給下一次 flush
+            pending.remove(entry.getKey(), entry.getValue());
+            userLookupCache.evict(entry.getKey(), entry.getValue().email());
+        }
+        logger.debug("Flushed {} last-login updates ({} rows changed)", batch.size(), updated);
+    }
+
+    private record PendingLogin(String email, OffsetDateTime loginAt) {
+    }
+}
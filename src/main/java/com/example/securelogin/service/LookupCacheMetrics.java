@@ -0,0 +1,52 @@
+package com.example.securelogin.service;
+
+import com.example.securelogin.security.VerifiedTokenCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * 把登入流程中 Caffeine 快取 (使用者查詢、已驗證 token) 的命中統計註冊為指標，
+ * 名稱與 Micrometer 內建的 cache 指標相同 ({@code cache.gets}、{@code cache.evictions})。
+ * 統計只在抓取指標時讀取，不影響查詢本身。
+ */
+@Component
+public class LookupCacheMetrics implements MeterBinder {
+
+    private final UserLookupCache userLookupCache;
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    public LookupCacheMetrics(UserLookupCache userLookupCache, VerifiedTokenCache verifiedTokenCache) {
+        this.userLookupCache = userLookupCache;
+        this.verifiedTokenCache = verifiedTokenCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, "user.by-email", userLookupCache, UserLookupCache::emailCacheStats);
+        bind(registry, "user.by-id", userLookupCache, UserLookupCache::idCacheStats);
+        bind(registry, "verified.token", verifiedTokenCache, VerifiedTokenCache::stats);
+    }
+
+    // meter 只以 weak reference 持有 owner，owner 必須是存活的 bean (不可傳入臨時的 lambda)
+    private static <T> void bind(MeterRegistry registry, String cache, T owner, Function<T, CacheStats> stats) {
+        FunctionCounter.builder("cache.gets", owner, o -> stats.apply(o).hitCount())
+                .description("Cache lookups")
+                .tag("cache", cache)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", owner, o -> stats.apply(o).missCount())
+                .description("Cache lookups")
+                .tag("cache", cache)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", owner, o -> stats.apply(o).evictionCount())
+                .description("Cache entries evicted for size or expiry")
+                .tag("cache", cache)
+                .register(registry);
+    }
+}
@@ -0,0 +1,305 @@
+package com.example.securelogin.service;
+
+import com.mailjet.client.MailjetClient;
+import com.mailjet.client.MailjetRequest;
+import com.mailjet.client.MailjetResponse;
+import com.mailjet.client.errors.MailjetException;
+import com.mailjet.client.resource.Emailv31;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 將多封郵件合併成一次 Mailjet Send API v3.1 呼叫。
+ * <p>
+ * 第一封郵件進入佇列後開始計時，在 batch window 內 (或湊滿 maxBatchSize 封) 收集到的郵件
+ * 以同一個 {@code Messages} 陣列送出；回應中每封郵件的結果 (依 CustomID 對應) 會分別
+ * 回傳給各自的呼叫端。送出期間進來的郵件自然累積成下一批。
+ * <p>
+ * 已經整批取得的郵件 (例如 outbox dispatcher) 以 {@link #sendAll(List)} 直接送出，不經過 batch window。
+ */
+public class MailjetBatchSender implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailjetBatchSender.class);
+
+    // Mailjet Send API v3.1 單次呼叫最多 50 封
+    public static final int MAX_MESSAGES_PER_REQUEST = 50;
+    // 部分郵件被拒時 Send API v3.1 回傳的 HTTP 狀態
+    private static final int PARTIAL_FAILURE_STATUS = 400;
+
+    private final MailjetClient client;
+    private final long batchWindowNanos;
+    private final int maxBatchSize;
+    private final Duration sendTimeout;
+    private final BlockingQueue<PendingMessage> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Thread worker;
+    private volatile boolean running = true;
+    private final Timer apiSuccessTimer;
+    private final Timer apiFailureTimer;
+    private final DistributionSummary batchSizes;
+
+    public MailjetBatchSender(MailjetClient client, Duration batchWindow, int maxBatchSize, Duration sendTimeout,
+            MeterRegistry meterRegistry) {
+        this.client = client;
+        this.batchWindowNanos = batchWindow.toNanos();
+        this.maxBatchSize = Math.max(1, Math.min(maxBatchSize, MAX_MESSAGES_PER_REQUEST));
+        this.sendTimeout = sendTimeout;
+        this.apiSuccessTimer = apiTimer(meterRegistry, "success");
+        this.apiFailureTimer = apiTimer(meterRegistry, "failure");
+        this.batchSizes = DistributionSummary.builder("email.mailjet.batch.size")
+                .description("Emails sent per Mailjet Send API call")
+                .register(meterRegistry);
+        this.worker = new Thread(this::run, "mailjet-batch-sender");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    private static Timer apiTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("email.mailjet.api")
+                .description("Time spent in one Mailjet Send API call")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 送出一封郵件並等待結果。
+     *
+     * @param message Emailv31 Messages 陣列中的單一郵件
+     * @throws RuntimeException Mailjet 拒絕此郵件、API 呼叫失敗或逾時
+     */
+    public void send(JSONObject message) {
+        CompletableFuture<Void> result = submit(message);
+        try {
+            result.get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException runtimeException ? runtimeException
+                    : new RuntimeException(cause.getMessage(), cause);
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Timed out after " + sendTimeout + " waiting for Mailjet batch send", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for Mailjet batch send", e);
+        }
+    }
+
+    // 非同步送出，回傳該封郵件的結果
+    public CompletableFuture<Void> submit(JSONObject message) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Mailjet batch sender is closed"));
+        }
+        String customId = "msg-" + sequence.incrementAndGet();
+        message.put(Emailv31.Message.CUSTOMID, customId);
+        PendingMessage pending = new PendingMessage(customId, message, new CompletableFuture<>());
+        queue.add(pending);
+        return pending.result();
+    }
+
+    /**
+     * 在呼叫端執行緒直接送出一批郵件，每 maxBatchSize 封一次 API 呼叫。
+     *
+     * @return 與 messages 相同順序的結果，回傳時都已完成
+     */
+    public List<CompletableFuture<Void>> sendAll(List<JSONObject> messages) {
+        List<CompletableFuture<Void>> results = new ArrayList<>(messages.size());
+        List<PendingMessage> batch = new ArrayList<>(Math.min(messages.size(), maxBatchSize));
+        for (JSONObject message : messages) {
+            if (!running) {
+                results.add(CompletableFuture.failedFuture(
+                        new IllegalStateException("Mailjet batch sender is closed")));
+                continue;
+            }
+            String customId = "msg-" + sequence.incrementAndGet();
+            message.put(Emailv31.Message.CUSTOMID, customId);
+            PendingMessage pending = new PendingMessage(customId, message, new CompletableFuture<>());
+            results.add(pending.result());
+            batch.add(pending);
+            if (batch.size() == maxBatchSize) {
+                dispatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            dispatch(batch);
+        }
+        return results;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(sendTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<PendingMessage> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        for (PendingMessage pending : leftover) {
+            pending.result().completeExceptionally(new IllegalStateException("Mailjet batch sender is closed"));
+        }
+    }
+
+    private void run() {
+        List<PendingMessage> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                if (batch.isEmpty()) {
+                    continue; // close() 中斷時 running 已為 false
+                }
+            }
+            if (!batch.isEmpty()) {
+                dispatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    // 等待第一封郵件，之後在 batch window 內盡量湊滿一批
+    private void collect(List<PendingMessage> batch) throws InterruptedException {
+        batch.add(queue.take());
+        long deadline = System.nanoTime() + batchWindowNanos;
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                return;
+            }
+            PendingMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void dispatch(List<PendingMessage> batch) {
+        JSONArray messages = new JSONArray();
+        for (PendingMessage pending : batch) {
+            messages.put(pending.message());
+        }
+        MailjetRequest request = new MailjetRequest(Emailv31.resource).property(Emailv31.MESSAGES, messages);
+
+        batchSizes.record(batch.size());
+
+        MailjetResponse response;
+        long start = System.nanoTime();
+        try {
+            response = client.post(request); // API call
+            apiSuccessTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } catch (MailjetException e) {
+            apiFailureTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            // 任一封郵件被拒時 Mailjet 回 HTTP 400，client 會丟出例外，但回應中仍有每封郵件的結果；
+            // 其他郵件已經寄出，不能整批重寄
+            JSONArray results = parseMessages(responseBodyOf(e));
+            if (results.length() > 0) {
+                logger.warn("Mailjet rejected part of a batch of {} emails", batch.size());
+                mapResults(batch, results, PARTIAL_FAILURE_STATUS, e.getMessage());
+                return;
+            }
+            logger.error("MailjetException while sending a batch of {} emails: {}", batch.size(), e.getMessage(), e);
+            failAll(batch, new RuntimeException("Mailjet API error while sending email: " + e.getMessage(), e));
+            return;
+        } catch (RuntimeException e) {
+            apiFailureTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            logger.error("Unexpected error while sending a batch of {} emails: {}", batch.size(), e.getMessage(), e);
+            failAll(batch, e);
+            return;
+        }
+        logger.info("Mailjet API Response Status for batch of {} emails: {}", batch.size(), response.getStatus());
+        mapResults(batch, parseMessages(response.getRawResponseContent()), response.getStatus(),
+                response.getRawResponseContent());
+    }
+
+    // 依 CustomID 把每封郵件的結果分配回各自的呼叫端；沒有對應結果的郵件一律視為失敗
+    private void mapResults(List<PendingMessage> batch, JSONArray results, int status, String rawResponse) {
+        Map<String, JSONObject> resultsById = new HashMap<>();
+        for (int i = 0; i < results.length(); i++) {
+            JSONObject result = results.optJSONObject(i);
+            if (result == null) {
+                continue;
+            }
+            String customId = result.optString("CustomID", null);
+            if (customId == null && i < batch.size()) {
+                customId = batch.get(i).customId(); // 沒有回傳 CustomID 時依順序對應
+            }
+            resultsById.put(customId, result);
+        }
+
+        for (PendingMessage pending : batch) {
+            JSONObject result = resultsById.get(pending.customId());
+            if (result != null && "success".equalsIgnoreCase(result.optString("Status"))) {
+                pending.result().complete(null);
+                continue;
+            }
+            String errorMessage = String.format("Failed to send email to %s. Status: %d, Data: %s",
+                    recipientOf(pending.message()), status,
+                    abbreviate(result != null ? result.toString() : rawResponse));
+            logger.error(errorMessage);
+            pending.result().completeExceptionally(new RuntimeException(errorMessage));
+        }
+    }
+
+    private static JSONArray parseMessages(String rawResponse) {
+        if (rawResponse == null) {
+            return new JSONArray();
+        }
+        try {
+            JSONArray messages = new JSONObject(rawResponse).optJSONArray("Messages");
+            return messages != null ? messages : new JSONArray();
+        } catch (RuntimeException e) {
+            return new JSONArray();
+        }
+    }
+
+    // MailjetClientRequestException 的訊息就是回應內容，只取 JSON 的部分
+    private static String responseBodyOf(MailjetException e) {
+        String message = e.getMessage();
+        int start = message != null ? message.indexOf('{') : -1;
+        return start >= 0 ? message.substring(start) : null;
+    }
+
+    private static void failAll(List<PendingMessage> batch, RuntimeException error) {
+        for (PendingMessage pending : batch) {
+            pending.result().completeExceptionally(error);
+        }
+    }
+
+    private static String recipientOf(JSONObject message) {
+        JSONArray to = message.optJSONArray(Emailv31.Message.TO);
+        JSONObject first = to != null ? to.optJSONObject(0) : null;
+        return first != null ? first.optString("Email") : "unknown";
+    }
+
+    // Limit error message length
+    private static String abbreviate(String data) {
+        if (data == null) {
+            return "";
+        }
+        return data.substring(0, Math.min(data.length(), 500));
+    }
+
+    private record PendingMessage(String customId, JSONObject message, CompletableFuture<Void> result) {
+    }
+}
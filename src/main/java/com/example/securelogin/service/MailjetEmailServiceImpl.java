@@ -3,10 +3,10 @@ package com.example.securelogin.service;
 import com.example.securelogin.config.MailjetConfig;
 import com.mailjet.client.ClientOptions;
 import com.mailjet.client.MailjetClient;
-import com.mailjet.client.MailjetRequest;
-import com.mailjet.client.MailjetResponse;
-import com.mailjet.client.errors.MailjetException;
 import com.mailjet.client.resource.Emailv31;
+import com.example.securelogin.util.OutcomeTimers;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger;
@@ -14,6 +14,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import com.example.securelogin.config.AppProperties;
+import com.example.securelogin.entity.EmailOutboxMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Service("mailjetEmailService")
 public class MailjetEmailServiceImpl implements EmailService {
@@ -22,113 +28,142 @@ public class MailjetEmailServiceImpl implements EmailService {
     private final MailjetClient client;
     private final MailjetConfig mailjetConfig;
     private final AppProperties app;
+    private final MailjetBatchSender batchSender;
+    private final EmailTemplateEngine templateEngine;
+    private final OutcomeTimers<EmailSendOutcome> registrationTimers;
+    private final OutcomeTimers<EmailSendOutcome> loginCodeTimers;
 
     @Autowired
-    public MailjetEmailServiceImpl(MailjetConfig mailjetConfig, AppProperties app) {
+    public MailjetEmailServiceImpl(MailjetConfig mailjetConfig, AppProperties app,
+            EmailTemplateEngine templateEngine, MeterRegistry meterRegistry) {
         this.mailjetConfig = mailjetConfig;
         this.app = app;
-        logger.info("Loaded Mailjet API Key from config: [{}]", mailjetConfig.getApiKey()); // 檢查這裡的值
-        logger.info("Loaded Mailjet Secret Key from config: [{}]", mailjetConfig.getSecretKey()); // 檢查這裡的值
-        ClientOptions options = ClientOptions.builder()
+        this.templateEngine = templateEngine;
+        this.registrationTimers = EmailSendOutcome.timers(meterRegistry, "mailjetEmailService",
+                EmailTemplateEngine.REGISTRATION_VERIFICATION);
+        this.loginCodeTimers = EmailSendOutcome.timers(meterRegistry, "mailjetEmailService",
+                EmailTemplateEngine.LOGIN_VERIFICATION_CODE);
+        ClientOptions.ClientOptionsBuilder options = ClientOptions.builder()
                 .apiKey(mailjetConfig.getApiKey())
-                .apiSecretKey(mailjetConfig.getSecretKey())
-                .build();
-        this.client = new MailjetClient(options);
+                .apiSecretKey(mailjetConfig.getSecretKey());
+        if (mailjetConfig.getBaseUrl() != null && !mailjetConfig.getBaseUrl().isEmpty()) {
+            options.baseUrl(mailjetConfig.getBaseUrl()); // 例如測試時指向本機 stub server
+        }
+        this.client = new MailjetClient(options.build());
+        // 多封郵件合併成一次 Send API 呼叫
+        this.batchSender = new MailjetBatchSender(client, mailjetConfig.getBatchWindow(),
+                mailjetConfig.getMaxBatchSize(), mailjetConfig.getSendTimeout(), meterRegistry);
         logger.info("MailjetClient initialized for email service. API Key Loaded: {}",
                 mailjetConfig.getApiKey() != null && !mailjetConfig.getApiKey().isEmpty());
     }
 
     @Override
     public void sendRegistrationVerificationEmail(String recipientEmail, String recipientName, String token) {
-        MailjetRequest request;
-        MailjetResponse response;
-
-        String emailSubject = "Verify Your Email Address for " + mailjetConfig.getSenderName();
-        // 保持郵件內容的 HTML 和純文字版本
-        String emailHtmlContent = String.format(
-                "<h1>Welcome to %s!</h1>" +
-                        "<p>Hi %s,</p>" +
-                        "<p>Thank you for registering. Please click the link below to verify your email address:</p>"
-                        +
-                        "<p><a href=\"%s\">Verify Email</a></p>" +
-                        "<p>If you did not register, please ignore this email.</p>" +
-                        "<p>Thanks,<br/>The %s Team</p>",
-                mailjetConfig.getSenderName(), recipientName,
-                app.getBaseUrl() + "/api/verify-registration?token=" + token,
-                mailjetConfig.getSenderName());
-        String emailTextContent = String.format(
-                "Welcome to %s!\n\n" +
-                        "Hi %s,\n\n" +
-                        "Thank you for registering. Please copy and paste the link below into your browser to verify your email address:\n"
-                        +
-                        "%s\n\n" +
-                        "If you did not register, please ignore this email.\n\n" +
-                        "Thanks,\nThe %s Team",
-                mailjetConfig.getSenderName(), recipientName,
-                app.getBaseUrl() + "/api/verify-registration?token=" + token,
-                mailjetConfig.getSenderName());
-
-        request = new MailjetRequest(Emailv31.resource)
-                .property(Emailv31.MESSAGES, new JSONArray()
-                        .put(new JSONObject()
-                                .put(Emailv31.Message.FROM, new JSONObject()
-                                        .put("Email", mailjetConfig
-                                                .getSenderEmail()) // From
-                                                                   // config
-                                        .put("Name", mailjetConfig
-                                                .getSenderName())) // From
-                                                                   // config
-                                .put(Emailv31.Message.TO, new JSONArray()
-                                        .put(new JSONObject()
-                                                .put("Email", recipientEmail) // Dynamic
-                                                                              // parameter
-                                                .put("Name", recipientName))) // Dynamic
-                                                                              // parameter
-                                .put(Emailv31.Message.SUBJECT, emailSubject)
-                                .put(Emailv31.Message.TEXTPART, emailTextContent)
-                                .put(Emailv31.Message.HTMLPART, emailHtmlContent)
-                        // Optional: Add CustomID for tracking
-                        // .put(Emailv31.Message.CUSTOMID, "AppVerificationEmail-" +
-                        // System.currentTimeMillis())
-                        ));
+        long start = System.nanoTime();
+        EmailSendOutcome outcome = EmailSendOutcome.FAILURE;
         try {
+            // 樣板同時產生 HTML 和純文字版本
+            EmailTemplateEngine.RenderedEmail email = templateEngine.render(
+                    EmailTemplateEngine.REGISTRATION_VERIFICATION, app.getMailLocale(),
+                    Map.of("recipientName", recipientName, "token", token));
+
             logger.info("Attempting to send verification email to: {}", recipientEmail);
-            response = client.post(request); // API call
-            logger.info("Mailjet API Response Status for {}: {}", recipientEmail, response.getStatus());
+            batchSender.send(buildMessage(recipientEmail, recipientName, email));
+            outcome = EmailSendOutcome.SUCCESS;
+        } finally {
+            registrationTimers.record(outcome, start);
+        }
+        logger.info("Verification email sent successfully to {}", recipientEmail);
+    }
 
-            if (logger.isDebugEnabled()) {
-                logger.debug("Mailjet API Response Data for {}: {}", recipientEmail,
-                        response.getData());
-            }
+    @Override
+    public void sendLoginVerificationCodeEmail(String recipientEmail, String recipientName, String verificationCode) {
+        long start = System.nanoTime();
+        EmailSendOutcome outcome = EmailSendOutcome.FAILURE;
+        try {
+            EmailTemplateEngine.RenderedEmail email = templateEngine.render(
+                    EmailTemplateEngine.LOGIN_VERIFICATION_CODE, app.getMailLocale(),
+                    Map.of("recipientName", recipientName, "code", verificationCode));
 
-            // Check response status, throw custom exception for transaction rollback
-            if (response.getStatus() != 200) { // Mailjet success is typically 200
-                String errorMessage = String.format(
-                        "Failed to send verification email to %s. Status: %d, Data: %s",
-                        recipientEmail, response.getStatus(),
-                        response.getData().toString().substring(0,
-                                Math.min(response.getData().toString().length(), 500))); // Limit
-                                                                                         // error
-                                                                                         // message
-                                                                                         // length
-                logger.error(errorMessage);
-                throw new RuntimeException(errorMessage);
-            }
-            logger.info("Verification email sent successfully to {}", recipientEmail);
-
-        } catch (MailjetException e) { // Catches MailjetException and its subclasses like
-                                       // MailjetSocketTimeoutException
-            logger.error("MailjetException while sending email to {}: {}", recipientEmail, e.getMessage(),
-                    e);
-            // Wrap and re-throw as a RuntimeException for transaction handling
-            throw new RuntimeException("Mailjet API error while sending email to "
-                    + recipientEmail + ": " + e.getMessage(), e);
+            logger.info("Attempting to send login verification code email to: {}", recipientEmail);
+            batchSender.send(buildMessage(recipientEmail, recipientName, email));
+            outcome = EmailSendOutcome.SUCCESS;
+        } finally {
+            loginCodeTimers.record(outcome, start);
         }
+        logger.info("Login verification code email sent successfully to {}", recipientEmail);
     }
 
     @Override
-    public void sendLoginVerificationCodeEmail(String recipientEmail, String recipientName, String verificationCode) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'sendLoginVerificationCodeEmail'");
+    public boolean supportsBatchSend() {
+        return true;
+    }
+
+    // dispatcher 取出的整批郵件合併成一次 Send API 呼叫 (超過 max-batch-size 時分成多次)
+    @Override
+    public List<CompletableFuture<Void>> sendBatch(List<EmailOutboxMessage> messages) {
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> results = new ArrayList<>(messages.size());
+        List<JSONObject> rendered = new ArrayList<>(messages.size());
+        List<Integer> renderedIndexes = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            try {
+                rendered.add(render(messages.get(i)));
+                renderedIndexes.add(i);
+                results.add(null);
+            } catch (RuntimeException e) {
+                results.add(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        logger.info("Attempting to send {} emails in one Mailjet batch", rendered.size());
+        List<CompletableFuture<Void>> sent = batchSender.sendAll(rendered);
+        for (int i = 0; i < sent.size(); i++) {
+            results.set(renderedIndexes.get(i), sent.get(i));
+        }
+
+        for (int i = 0; i < messages.size(); i++) {
+            EmailSendOutcome outcome = results.get(i).isCompletedExceptionally()
+                    ? EmailSendOutcome.FAILURE : EmailSendOutcome.SUCCESS;
+            (messages.get(i).getType() == EmailOutboxMessage.Type.REGISTRATION_VERIFICATION
+                    ? registrationTimers : loginCodeTimers).record(outcome, start);
+        }
+        return results;
+    }
+
+    private JSONObject render(EmailOutboxMessage message) {
+        EmailTemplateEngine.RenderedEmail email = switch (message.getType()) {
+            case REGISTRATION_VERIFICATION -> templateEngine.render(
+                    EmailTemplateEngine.REGISTRATION_VERIFICATION, app.getMailLocale(),
+                    Map.of("recipientName", message.getRecipientName(), "token", message.getPayload()));
+            case LOGIN_VERIFICATION_CODE -> templateEngine.render(
+                    EmailTemplateEngine.LOGIN_VERIFICATION_CODE, app.getMailLocale(),
+                    Map.of("recipientName", message.getRecipientName(), "code", message.getPayload()));
+        };
+        return buildMessage(message.getRecipientEmail(), message.getRecipientName(), email);
+    }
+
+    // 建立 Emailv31 Messages 陣列中的單一郵件
+    private JSONObject buildMessage(String recipientEmail, String recipientName,
+            EmailTemplateEngine.RenderedEmail email) {
+        JSONObject message = new JSONObject()
+                .put(Emailv31.Message.FROM, new JSONObject()
+                        .put("Email", mailjetConfig.getSenderEmail()) // From config
+                        .put("Name", mailjetConfig.getSenderName())) // From config
+                .put(Emailv31.Message.TO, new JSONArray()
+                        .put(new JSONObject()
+                                .put("Email", recipientEmail) // Dynamic parameter
+                                .put("Name", recipientName))) // Dynamic parameter
+                .put(Emailv31.Message.SUBJECT, email.subject())
+                .put(Emailv31.Message.TEXTPART, email.text());
+        if (email.html() != null) {
+            message.put(Emailv31.Message.HTMLPART, email.html());
+        }
+        return message;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchSender.close();
     }
 }
@@ -0,0 +1,161 @@
+package com.example.securelogin.service;
+
+import com.example.securelogin.config.PartitionMaintenanceProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 維護依 expires_at 每日分區的短效資料表 (見 V2__partition_ephemeral_tables.sql)：
+ * 預先建立未來 premake-days 天的分區，並整個 DROP 上界早於 {@code now - retention} 的分區，
+ * 不需要逐筆 DELETE 也不會留下 dead tuple。每次執行回報刪除的資料筆數與各資料表目前的大小。
+ * <p>
+ * 資料表沒有 DEFAULT 分區，缺少分區時 INSERT 會失敗，因此建立分區一律執行；
+ * {@code partition-maintenance.enabled=false} 只停止 DROP 過期分區。
+ * <p>
+ * 多台 instance 同時執行時以 advisory lock 保證只有一台在維護。
+ */
+@Component
+public class PartitionMaintenanceJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionMaintenanceJob.class);
+
+    // 分區化的資料表，名稱會直接組進 SQL，只能是固定值
+    static final List<String> PARTITIONED_TABLES = List.of("email_verification_tokens", "two_factor_auth_codes");
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final String ADVISORY_LOCK_KEY = "partition-maintenance";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PartitionMaintenanceProperties properties;
+
+    private final Map<String, AtomicLong> tableBytes = new HashMap<>();
+    private final Map<String, AtomicLong> partitionCounts = new HashMap<>();
+    private final Map<String, Counter> reclaimedRows = new HashMap<>();
+    private final Map<String, Counter> droppedPartitions = new HashMap<>();
+
+    public PartitionMaintenanceJob(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            PartitionMaintenanceProperties properties, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        for (String table : PARTITIONED_TABLES) {
+            AtomicLong bytes = new AtomicLong();
+            AtomicLong partitions = new AtomicLong();
+            tableBytes.put(table, bytes);
+            partitionCounts.put(table, partitions);
+            Gauge.builder("partition.table.size", bytes, AtomicLong::get)
+                    .description("Total size of all partitions, including indexes")
+                    .baseUnit("bytes")
+                    .tag("table", table)
+                    .register(meterRegistry);
+            Gauge.builder("partition.table.partitions", partitions, AtomicLong::get)
+                    .description("Number of partitions")
+                    .tag("table", table)
+                    .register(meterRegistry);
+            reclaimedRows.put(table, Counter.builder("partition.maintenance.reclaimed.rows")
+                    .description("Rows removed by dropping expired partitions")
+                    .tag("table", table)
+                    .register(meterRegistry));
+            droppedPartitions.put(table, Counter.builder("partition.maintenance.dropped")
+                    .description("Expired partitions dropped")
+                    .tag("table", table)
+                    .register(meterRegistry));
+        }
+    }
+
+    // 啟動後立即執行一次，確保今天與未來的分區存在
+    @Scheduled(initialDelay = 0, fixedDelayString = "${partition-maintenance.interval:1h}")
+    public void run() {
+        for (String table : PARTITIONED_TABLES) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> maintain(table));
+            } catch (RuntimeException e) {
+                // 不可讓例外中斷排程，下一次執行會再嘗試
+                logger.error("Partition maintenance failed for {}: {}", table, e.getMessage(), e);
+            }
+        }
+    }
+
+    private void maintain(String table) {
+        Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(hashtext(?))",
+                Boolean.class, ADVISORY_LOCK_KEY + ":" + table);
+        if (!Boolean.TRUE.equals(locked)) {
+            logger.debug("Partition maintenance for {} is running on another instance", table);
+            return;
+        }
+        jdbcTemplate.execute("SET LOCAL lock_timeout = '" + properties.getLockTimeout().toMillis() + "ms'");
+
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        Integer created = jdbcTemplate.queryForObject("SELECT ensure_daily_partitions(?, ?, ?)", Integer.class,
+                table, today, today.plusDays(properties.getPremakeDays() + 1L));
+
+        Instant dropBefore = Instant.now().minus(properties.getRetention());
+        long rows = 0;
+        long bytes = 0;
+        int dropped = 0;
+        long remainingBytes = 0;
+        int remainingPartitions = 0;
+        List<Map<String, Object>> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname AS name, pg_total_relation_size(c.oid) AS bytes FROM pg_inherits i "
+                        + "JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "WHERE i.inhparent = ?::regclass ORDER BY c.relname",
+                table);
+        for (Map<String, Object> partition : partitions) {
+            String name = (String) partition.get("name");
+            long size = ((Number) partition.get("bytes")).longValue();
+            LocalDate day = partitionDay(table, name);
+            // 分區上界為隔天 00:00 UTC
+            if (!properties.isEnabled() || day == null || !day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().isBefore(dropBefore)) {
+                remainingBytes += size;
+                remainingPartitions++;
+                continue;
+            }
+            Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM \"" + name + "\"", Long.class);
+            jdbcTemplate.execute("DROP TABLE \"" + name + "\"");
+            rows += count != null ? count : 0;
+            bytes += size;
+            dropped++;
+            logger.info("Dropped expired partition {} ({} rows, {} bytes)", name, count, size);
+        }
+
+        tableBytes.get(table).set(remainingBytes);
+        partitionCounts.get(table).set(remainingPartitions);
+        reclaimedRows.get(table).increment(rows);
+        droppedPartitions.get(table).increment(dropped);
+        logger.info("Partition maintenance for {}: created {} partitions, dropped {} partitions "
+                + "(reclaimed {} rows, {} bytes), {} partitions remaining ({} bytes)",
+                table, created, dropped, rows, bytes, remainingPartitions, remainingBytes);
+    }
+
+    // 由分區名稱 <table>_pYYYYMMDD 取得日期；不符合命名規則的分區不處理
+    private static LocalDate partitionDay(String table, String partition) {
+        String prefix = table + "_p";
+        if (!partition.startsWith(prefix)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(partition.substring(prefix.length()), PARTITION_SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.securelogin.service;
+
+import com.example.securelogin.config.RegisteredEmailFilterProperties;
+import com.example.securelogin.repository.UserRepository;
+import com.example.securelogin.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 已註冊 email 的 Bloom filter，讓重複註冊在 BCrypt 之前就被擋下。
+ * <p>
+ * filter 判斷「一定不存在」時直接繼續註冊；「可能存在」時才以 {@code existsByEmail} 走索引確認。
+ * 啟動完成後以串流查詢 (cursor + fetch-size) 讀取所有 email 建立，之後每次註冊都加入，
+ * 並每隔 rebuild-interval 重建。建立完成前一律視為可能存在。
+ * <p>
+ * 其他 instance 的註冊要等重建後才會出現在這裡；這段期間的重複註冊仍然會由 email 的
+ * unique constraint 擋下，只是多花一次雜湊。
+ */
+@Component
+public class RegisteredEmailFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegisteredEmailFilter.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final UserRepository userRepository;
+    private final RegisteredEmailFilterProperties properties;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile BloomFilter active;
+    // 重建中的 filter，重建期間的註冊也要加入
+    private volatile BloomFilter building;
+
+    private final AtomicLong sizeBytes = new AtomicLong();
+    private final Counter absent;
+    private final Counter falsePositive;
+    private final Counter present;
+
+    public RegisteredEmailFilter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            UserRepository userRepository, RegisteredEmailFilterProperties properties,
+            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.userRepository = userRepository;
+        this.properties = properties;
+
+        Gauge.builder("registered.email.filter.size", sizeBytes, AtomicLong::get)
+                .description("Memory used by the registered-email Bloom filter")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("registered.email.filter.expected.fpp", this,
+                filter -> filter.active != null ? filter.active.expectedFalsePositiveRate() : 1.0)
+                .description("Estimated false-positive probability of the registered-email Bloom filter")
+                .register(meterRegistry);
+        this.absent = checks(meterRegistry, "absent");
+        this.falsePositive = checks(meterRegistry, "false_positive");
+        this.present = checks(meterRegistry, "present");
+    }
+
+    /**
+     * email 是否已被註冊。filter 判斷不存在時不查資料庫。
+     */
+    public boolean isRegistered(String email) {
+        BloomFilter filter = properties.isEnabled() ? active : null;
+        if (filter == null) {
+            return userRepository.existsByEmail(email);
+        }
+        if (!filter.mightContain(email)) {
+            absent.increment();
+            return false;
+        }
+        boolean exists = userRepository.existsByEmail(email);
+        if (exists) {
+            present.increment();
+        } else {
+            falsePositive.increment();
+        }
+        return exists;
+    }
+
+    // 新註冊的 email；交易最後 rollback 時只會多一個誤判
+    public void add(String email) {
+        BloomFilter filter = active;
+        if (filter != null) {
+            filter.put(email);
+        }
+        BloomFilter rebuilding = building;
+        if (rebuilding != null) {
+            rebuilding.put(email);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${registered-email-filter.rebuild-interval:6h}",
+            fixedDelayString = "${registered-email-filter.rebuild-interval:6h}")
+    public void rebuild() {
+        if (!properties.isEnabled() || !rebuildLock.tryLock()) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            Long users = jdbcTemplate.queryForObject("SELECT count(*) FROM users", Long.class);
+            long expected = Math.max(properties.getExpectedInsertions(), 2 * (users != null ? users : 0));
+            BloomFilter filter = BloomFilter.create(expected, properties.getFalsePositiveRate());
+            building = filter;
+            // PostgreSQL 只有在交易中 (autocommit off) 才會依 fetch size 分批取回，不會一次載入全部資料
+            Long loaded = readOnlyTransaction.execute(status -> {
+                long[] count = { 0 };
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement("SELECT email FROM users",
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    statement.setFetchSize(properties.getFetchSize());
+                    return statement;
+                }, (RowCallbackHandler) rs -> {
+                    filter.put(rs.getString(1));
+                    count[0]++;
+                });
+                return count[0];
+            });
+            active = filter;
+            sizeBytes.set(filter.sizeInBytes());
+            logger.info("Registered-email filter built in {} ms: {} emails, {} KiB, {} hash functions, "
+                    + "expected false-positive rate {}", (System.nanoTime() - start) / 1_000_000, loaded,
+                    filter.sizeInBytes() / 1024, filter.hashFunctions(),
+                    String.format("%.4f%%", filter.expectedFalsePositiveRate() * 100));
+        } catch (RuntimeException e) {
+            // 保留原本的 filter (或維持停用)，下一次排程再重建
+            logger.error("Failed to build registered-email filter: {}", e.getMessage(), e);
+        } finally {
+            building = null;
+            rebuildLock.unlock();
+        }
+    }
+
+    private static Counter checks(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("registered.email.filter.checks")
+                .description("Registration duplicate checks by Bloom filter outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
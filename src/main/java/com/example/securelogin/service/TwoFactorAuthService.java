@@ -1,9 +1,14 @@
 package com.example.securelogin.service;
 
-import com.example.securelogin.entity.User;
+import com.example.securelogin.security.AuthenticatedUser;
+import com.example.securelogin.security.UserSnapshot;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
 
 public interface TwoFactorAuthService {
-    String createNewCode(User user);
+    String createNewCode(UserSnapshot user);
 
-    boolean verifyCode(String email, String submittedCode);
+    // 驗證碼正確時消耗驗證碼並把登入時間記為 loginAt，回傳產生 token 所需的使用者身分
+    Optional<AuthenticatedUser> verifyCodeAndRecordLogin(String email, String submittedCode, OffsetDateTime loginAt);
 }
@@ -1,13 +1,16 @@
 package com.example.securelogin.service;
 
-import com.example.securelogin.entity.TwoFactorAuthCode;
-import com.example.securelogin.entity.User;
-import com.example.securelogin.repository.TwoFactorAuthCodeRepository;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import com.example.securelogin.audit.AuditEventType;
+import com.example.securelogin.audit.AuditLog;
+import com.example.securelogin.config.TwoFactorProperties;
+import com.example.securelogin.security.AuthenticatedUser;
+import com.example.securelogin.security.CodeHasher;
+import com.example.securelogin.security.UserSnapshot;
+import com.example.securelogin.util.OutcomeTimers;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import java.security.SecureRandom;
 import java.time.OffsetDateTime;
-import java.util.List;
 import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.slf4j.Logger;
@@ -17,58 +20,81 @@ import org.slf4j.LoggerFactory;
 public class TwoFactorAuthServiceImpl implements TwoFactorAuthService {
 
     private static final Logger logger = LoggerFactory.getLogger(TwoFactorAuthServiceImpl.class);
-    private final TwoFactorAuthCodeRepository twoFactorAuthCodeRepository;
-    private final PasswordEncoder passwordEncoder;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private final TwoFactorCodeStore codeStore;
+    private final CodeHasher codeHasher;
+    private final TwoFactorProperties properties;
+    private final LastLoginRecorder lastLoginRecorder;
+    private final AuditLog auditLog;
+    private final OutcomeTimers<CreateOutcome> createTimers;
+    private final OutcomeTimers<VerifyOutcome> verifyTimers;
+
+    private enum CreateOutcome { SUCCESS, ERROR }
+
+    private enum VerifyOutcome { SUCCESS, INVALID, ERROR }
 
     @Autowired
-    public TwoFactorAuthServiceImpl(TwoFactorAuthCodeRepository twoFactorAuthCodeRepository,
-            PasswordEncoder passwordEncoder) {
-        this.twoFactorAuthCodeRepository = twoFactorAuthCodeRepository;
-        this.passwordEncoder = passwordEncoder;
+    public TwoFactorAuthServiceImpl(TwoFactorCodeStore codeStore, CodeHasher codeHasher,
+            TwoFactorProperties properties, LastLoginRecorder lastLoginRecorder, AuditLog auditLog,
+            MeterRegistry meterRegistry) {
+        this.codeStore = codeStore;
+        this.codeHasher = codeHasher;
+        this.properties = properties;
+        this.lastLoginRecorder = lastLoginRecorder;
+        this.auditLog = auditLog;
+        this.createTimers = OutcomeTimers.register(meterRegistry, "two.factor.code.create",
+                "Time spent issuing and storing a two-factor code", CreateOutcome.class);
+        this.verifyTimers = OutcomeTimers.register(meterRegistry, "two.factor.code.verify",
+                "Time spent consuming a two-factor code", VerifyOutcome.class);
     }
 
-    // 建立新的驗證碼
-    @Transactional
+    // 建立新的驗證碼，同一個使用者的舊驗證碼會被取代
     @Override
-    public String createNewCode(User user) {
-        // 先刪除該使用者現有的已過期驗證碼，一個使用者最多只能有一個未使用的驗證碼
-        List<TwoFactorAuthCode> existingCodes = twoFactorAuthCodeRepository
-                .findByUserAndUsedFalse(user);
-        twoFactorAuthCodeRepository.deleteAll(existingCodes);
-
-        // 建立新的驗證碼
-        String plainCode = generateRandomCode();
-        TwoFactorAuthCode newCode = TwoFactorAuthCode.builder()
-                .user(user)
-                .codeHash(passwordEncoder.encode(plainCode))
-                .expiresAt(OffsetDateTime.now().plusMinutes(5)) // 5分鐘後過期
-                .used(false)
-                .build();
-        twoFactorAuthCodeRepository.save(newCode);
-        return plainCode; // 回傳明碼
+    public String createNewCode(UserSnapshot user) {
+        long start = System.nanoTime();
+        CreateOutcome outcome = CreateOutcome.ERROR;
+        try {
+            String plainCode = generateRandomCode();
+            codeStore.save(user,
+                    codeHasher.hash(plainCode), // 驗證碼短效，使用 HMAC 而非 BCrypt
+                    OffsetDateTime.now().plus(properties.getCodeTtl())); // 預設 5 分鐘後過期
+            auditLog.record(AuditEventType.TWO_FACTOR_CODE_ISSUED, user.getId(), user.getEmail());
+            outcome = CreateOutcome.SUCCESS;
+            return plainCode; // 回傳明碼
+        } finally {
+            createTimers.record(outcome, start);
+        }
     }
 
-    // 驗證驗證碼
-    @Transactional
+    // 驗證驗證碼，成功後即失效；HMAC 雜湊是確定性的，直接以雜湊值比對
     @Override
-    public boolean verifyCode(String email, String submittedCode) {
-        logger.info("TwoFactorAuthServiceImpl: Verifying code for email: {}, submittedCode:{}", email,
-                passwordEncoder.encode(submittedCode));
-        Optional<TwoFactorAuthCode> codeOpt = twoFactorAuthCodeRepository
-                .findActiveCodeByEmail(email, OffsetDateTime.now());
-
-        if (codeOpt.isPresent()) {
-            TwoFactorAuthCode code = codeOpt.get();
-            if (passwordEncoder.matches(submittedCode, code.getCodeHash())) {
-                code.setUsed(true);
-                twoFactorAuthCodeRepository.save(code);
-                return true;
+    public Optional<AuthenticatedUser> verifyCodeAndRecordLogin(String email, String submittedCode,
+            OffsetDateTime loginAt) {
+        logger.debug("TwoFactorAuthServiceImpl: Verifying code for email: {}", email);
+        long start = System.nanoTime();
+        VerifyOutcome outcome = VerifyOutcome.ERROR;
+        try {
+            Optional<AuthenticatedUser> user;
+            if (!lastLoginRecorder.isWriteBehind()) {
+                user = codeStore.consume(email, codeHasher.hash(submittedCode), loginAt, true);
+            } else {
+                user = codeStore.consume(email, codeHasher.hash(submittedCode), loginAt, false);
+                user.ifPresent(u -> lastLoginRecorder.record(u.getId(), u.getEmail(), loginAt));
+            }
+            if (user.isPresent()) {
+                auditLog.record(AuditEventType.TWO_FACTOR_SUCCEEDED, user.get().getId(), email);
+                outcome = VerifyOutcome.SUCCESS;
+            } else {
+                auditLog.record(AuditEventType.TWO_FACTOR_FAILED, null, email);
+                outcome = VerifyOutcome.INVALID;
             }
+            return user;
+        } finally {
+            verifyTimers.record(outcome, start);
         }
-        return false;
     }
 
     private String generateRandomCode() {
-        return String.format("%06d", (int) (Math.random() * 1000000));
+        return String.format("%06d", RANDOM.nextInt(1000000));
     }
-}
\ No newline at end of file
+}
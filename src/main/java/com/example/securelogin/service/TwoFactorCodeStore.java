@@ -0,0 +1,31 @@
+package com.example.securelogin.service;
+
+import com.example.securelogin.security.AuthenticatedUser;
+import com.example.securelogin.security.UserSnapshot;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+
+/**
+ * 2FA 驗證碼的存放位置，由 {@code two-factor.store} 選擇實作：
+ * {@link JpaTwoFactorCodeStore} (jpa，預設) 或 {@link InMemoryTwoFactorCodeStore} (memory)。
+ * <p>
+ * 驗證碼以 {@link com.example.securelogin.security.CodeHasher} 產生的確定性雜湊保存，
+ * 驗證時直接比對雜湊值。
+ */
+public interface TwoFactorCodeStore {
+
+    // 儲存使用者的新驗證碼 (雜湊值)，同一個使用者尚未使用的舊驗證碼一併作廢
+    void save(UserSnapshot user, String codeHash, OffsetDateTime expiresAt);
+
+    /**
+     * 若該 email 有未過期、未使用且雜湊相符的驗證碼，將它標記為已使用，並回傳產生 token 所需的使用者身分。
+     * 同一個驗證碼只會成功一次。
+     *
+     * @param now         登入時間，也用來判斷驗證碼是否過期
+     * @param recordLogin 是否同時把使用者的 last_login_at 寫成 {@code now}
+     *                    (write-behind 模式下由 {@link LastLoginRecorder} 延後寫入)
+     * @return 使用者身分；驗證碼無效時為 empty
+     */
+    Optional<AuthenticatedUser> consume(String email, String codeHash, OffsetDateTime now, boolean recordLogin);
+}
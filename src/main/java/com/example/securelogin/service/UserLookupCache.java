@@ -0,0 +1,192 @@
+package com.example.securelogin.service;
+
+import com.example.securelogin.config.UserCacheProperties;
+import com.example.securelogin.repository.ReadYourWritesGuard;
+import com.example.securelogin.repository.UserRepository;
+import com.example.securelogin.security.UserSnapshot;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * 放在 {@link UserRepository} 前面的使用者查詢快取，同時以 email 與 id 建立索引。
+ * <p>
+ * 快取有數量上限與寫入後過期時間 (見 {@link UserCacheProperties})，同一個 key 同時
+ * miss 時只會有一個執行緒查資料庫，其餘等待同一份結果。查無使用者的結果不會被快取，
+ * 避免剛註冊的帳號在 TTL 內查不到。
+ * <p>
+ * 查資料庫不在 {@code Cache.get(key, loader)} 裡執行：Caffeine 的 loader 跑在
+ * ConcurrentHashMap 的 bin lock ({@code synchronized}) 內，virtual thread 在 JDK 21
+ * 會因此在整段 JDBC I/O 期間佔住 carrier thread。改由 {@code inFlight} 合併同一個 key 的查詢。
+ * {@link #evict} 會遞增該使用者 email 與 id 的 generation，在 evict 之前開始的查詢結果不會放入快取，
+ * 也不會交給 evict 之後才開始等待的執行緒。
+ * <p>
+ * 快取的是不可變的 {@link UserSnapshot}，不是 JPA entity，多個 request 共用也不會互相影響。
+ * 修改使用者資料請用 {@link UserRepository} 的 UPDATE 方法，再呼叫
+ * {@link #evictAfterCompletion(Long, String)}。被移除的使用者接下來一段時間
+ * 改從 primary 載入 (見 {@link ReadYourWritesGuard})，避免從 replica 把舊資料放回快取。
+ */
+@Component
+public class UserLookupCache {
+
+    // generation 依 key 的 hash 分段，不必為每個使用者保留計數器
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final UserRepository userRepository;
+    private final ReadYourWritesGuard readYourWrites;
+    private final Cache<String, UserSnapshot> byEmail;
+    private final Cache<Long, UserSnapshot> byId;
+    // 正在查資料庫的 key，同時 miss 的執行緒等待同一個結果
+    private final ConcurrentMap<String, Load> emailInFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Load> idInFlight = new ConcurrentHashMap<>();
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public UserLookupCache(UserRepository userRepository, UserCacheProperties properties,
+            ReadYourWritesGuard readYourWrites) {
+        this.userRepository = userRepository;
+        this.readYourWrites = readYourWrites;
+        this.byEmail = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+    }
+
+    public Optional<UserSnapshot> findByEmail(String email) {
+        return Optional.ofNullable(lookup(byEmail, emailInFlight, email, this::loadByEmail));
+    }
+
+    public Optional<UserSnapshot> findById(Long id) {
+        return Optional.ofNullable(lookup(byId, idInFlight, id, this::loadById));
+    }
+
+    // 立即移除該使用者在兩個索引中的快取
+    // 先遞增 generation 再移除，進行中的查詢在放入快取後會發現並撤回 (見 fill)
+    public void evict(Long id, String email) {
+        readYourWrites.markWritten(id, email);
+        if (email != null) {
+            generations.incrementAndGet(stripe(email));
+            byEmail.invalidate(email);
+        }
+        if (id != null) {
+            generations.incrementAndGet(stripe(id));
+            byId.invalidate(id);
+        }
+    }
+
+    /**
+     * 立即移除快取，並在目前交易結束 (commit 或 rollback) 後再移除一次，
+     * 避免交易期間其他執行緒把尚未 commit 的舊資料重新載入快取。
+     */
+    public void evictAfterCompletion(Long id, String email) {
+        evict(id, email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(id, email);
+                }
+            });
+        }
+    }
+
+    public CacheStats emailCacheStats() {
+        return byEmail.stats();
+    }
+
+    public CacheStats idCacheStats() {
+        return byId.stats();
+    }
+
+    private <K> UserSnapshot lookup(Cache<K, UserSnapshot> cache, ConcurrentMap<K, Load> inFlight, K key,
+            Function<K, UserSnapshot> loader) {
+        UserSnapshot cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = generations.get(stripe(key));
+        Load pending = new Load(new CompletableFuture<>(), generation);
+        Load existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            if (existing.generation() != generation) {
+                return load(key, loader, generation); // 進行中的查詢在 evict 之前開始，結果可能是舊資料
+            }
+            try {
+                return existing.future().join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            UserSnapshot user = load(key, loader, generation);
+            pending.future().complete(user);
+            return user;
+        } catch (RuntimeException e) {
+            pending.future().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, pending);
+        }
+    }
+
+    // 查詢並放入兩個索引；回傳 null 表示查無使用者，不會被快取
+    private <K> UserSnapshot load(K key, Function<K, UserSnapshot> loader, long generation) {
+        UserSnapshot user = loader.apply(key);
+        if (user != null) {
+            fill(user, key, generation);
+        }
+        return user;
+    }
+
+    /**
+     * 查詢期間有 evict 時不放入快取。放入後再檢查一次並撤回：evict 先遞增 generation 才移除，
+     * 因此不是在這裡被發現，就是放入的資料會被 evict 移除。
+     */
+    private void fill(UserSnapshot user, Object key, long generation) {
+        if (generations.get(stripe(key)) != generation) {
+            return;
+        }
+        byEmail.put(user.getEmail(), user);
+        byId.put(user.getId(), user);
+        if (generations.get(stripe(key)) != generation) {
+            byEmail.asMap().remove(user.getEmail(), user);
+            byId.asMap().remove(user.getId(), user);
+        }
+    }
+
+    private UserSnapshot loadByEmail(String email) {
+        return readYourWrites.read(email, () -> userRepository.findByEmail(email))
+                .map(UserSnapshot::of)
+                .orElse(null);
+    }
+
+    private UserSnapshot loadById(Long id) {
+        return readYourWrites.read(id, () -> userRepository.findById(id))
+                .map(UserSnapshot::of)
+                .orElse(null);
+    }
+
+    private static int stripe(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    private record Load(CompletableFuture<UserSnapshot> future, long generation) {
+    }
+}
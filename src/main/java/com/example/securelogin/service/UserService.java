@@ -4,8 +4,7 @@ import com.example.securelogin.dto.RegisterRequest;
 import com.example.securelogin.dto.LoginRequest;
 import com.example.securelogin.dto.LoginVerifyRequest;
 import com.example.securelogin.dto.LoginVerifyResponse;
-import com.example.securelogin.dto.LastLoginResponse;
-import com.example.securelogin.entity.User;
+import org.springframework.security.core.userdetails.UserDetails;
 
 public interface UserService {
     void registerUser(RegisterRequest request);
@@ -16,5 +15,6 @@ public interface UserService {
 
     LoginVerifyResponse loginVerify(LoginVerifyRequest request);
 
-    LastLoginResponse getLastLoginInfo(User user);
+    // 回傳已格式化的最後登入時間與 ETag
+    LastLoginProjection.View getLastLoginInfo(UserDetails principal);
 }
\ No newline at end of file
@@ -2,28 +2,33 @@ package com.example.securelogin.service;
 
 import org.springframework.stereotype.Service;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import com.example.securelogin.audit.AuditEventType;
+import com.example.securelogin.audit.AuditLog;
 import com.example.securelogin.repository.UserRepository;
 import com.example.securelogin.repository.EmailVerificationTokenRepository;
+import com.example.securelogin.security.AuthenticatedUser;
 import com.example.securelogin.security.JwtService;
+import com.example.securelogin.security.UserSnapshot;
+import com.example.securelogin.security.VerifiedTokenCache;
 import com.example.securelogin.entity.User;
 import com.example.securelogin.entity.EmailVerificationToken;
+import com.example.securelogin.exception.EmailAlreadyRegisteredException;
+import com.example.securelogin.util.OutcomeTimers;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import com.example.securelogin.dto.RegisterRequest;
 import com.example.securelogin.dto.LoginRequest;
 import com.example.securelogin.dto.LoginVerifyRequest;
 import com.example.securelogin.dto.LoginVerifyResponse;
-import com.example.securelogin.dto.LastLoginResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import jakarta.transaction.Transactional;
+import org.springframework.transaction.annotation.Transactional;
 import java.time.OffsetDateTime;
 import java.util.UUID;
 import java.util.Optional;
 import java.util.NoSuchElementException;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.beans.factory.annotation.Qualifier;
-import java.time.format.DateTimeFormatter;
-import java.time.ZoneId;
+import org.springframework.security.core.userdetails.UserDetails;
 
 @Service
 public class UserServiceImpl implements UserService {
@@ -31,185 +36,297 @@ public class UserServiceImpl implements UserService {
     private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
-    private final EmailService emailService;
+    private final EmailOutboxService emailOutboxService;
     private final EmailVerificationTokenRepository tokenRepository;
     private final TwoFactorAuthService twoFactorAuthService;
     private final JwtService jwtService;
+    private final UserLookupCache userLookupCache;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final LastLoginRecorder lastLoginRecorder;
+    private final LastLoginProjection lastLoginProjection;
+    private final RegisteredEmailFilter registeredEmailFilter;
+    private final AuditLog auditLog;
+    private final OutcomeTimers<RegisterOutcome> registerTimers;
+    private final OutcomeTimers<VerifyRegistrationOutcome> verifyRegistrationTimers;
+    private final OutcomeTimers<LoginOutcome> loginTimers;
+    private final OutcomeTimers<LoginVerifyOutcome> loginVerifyTimers;
+
+    // 各流程的結果 (指標的 outcome tag)；ERROR 為非預期的例外 (資料庫錯誤、雜湊佇列滿等)
+    private enum RegisterOutcome { SUCCESS, DUPLICATE, ERROR }
+
+    private enum VerifyRegistrationOutcome { SUCCESS, INVALID_TOKEN, EXPIRED, ALREADY_VERIFIED, ERROR }
+
+    private enum LoginOutcome { SUCCESS, UNKNOWN_EMAIL, EMAIL_NOT_VERIFIED, BAD_PASSWORD, ERROR }
+
+    private enum LoginVerifyOutcome { SUCCESS, INVALID_CODE, ERROR }
 
     @Autowired
     public UserServiceImpl(UserRepository userRepository, PasswordEncoder passwordEncoder,
-            @Qualifier("gmailService") EmailService emailService,
+            EmailOutboxService emailOutboxService,
             EmailVerificationTokenRepository tokenRepository, TwoFactorAuthService twoFactorAuthService,
-            JwtService jwtService) {
+            JwtService jwtService, UserLookupCache userLookupCache, VerifiedTokenCache verifiedTokenCache,
+            LastLoginRecorder lastLoginRecorder, LastLoginProjection lastLoginProjection,
+            RegisteredEmailFilter registeredEmailFilter, AuditLog auditLog, MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
-        this.emailService = emailService;
+        this.emailOutboxService = emailOutboxService;
         this.tokenRepository = tokenRepository;
         this.twoFactorAuthService = twoFactorAuthService;
         this.jwtService = jwtService;
+        this.userLookupCache = userLookupCache;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.lastLoginRecorder = lastLoginRecorder;
+        this.lastLoginProjection = lastLoginProjection;
+        this.registeredEmailFilter = registeredEmailFilter;
+        this.auditLog = auditLog;
+        this.registerTimers = OutcomeTimers.register(meterRegistry, "auth.register",
+                "Time spent registering a user", RegisterOutcome.class);
+        this.verifyRegistrationTimers = OutcomeTimers.register(meterRegistry, "auth.registration.verify",
+                "Time spent verifying a registration email token", VerifyRegistrationOutcome.class);
+        this.loginTimers = OutcomeTimers.register(meterRegistry, "auth.login",
+                "Time spent checking a password login", LoginOutcome.class);
+        this.loginVerifyTimers = OutcomeTimers.register(meterRegistry, "auth.login.verify",
+                "Time spent verifying a two-factor code and issuing tokens", LoginVerifyOutcome.class);
     }
 
     @Transactional
     @Override
     public void registerUser(RegisterRequest request) {
-        // 1. 建立 User 實體並儲存
-        User user = new User();
-        user.setEmail(request.getEmail());
-        String encodedPassword = passwordEncoder.encode(request.getPassword());
-        user.setPassword(encodedPassword);
-        User savedUser = userRepository.save(user);
-
-        // 2. 產生token權杖，並儲存
-        EmailVerificationToken token = new EmailVerificationToken();
-        String tokenString = UUID.randomUUID().toString();
-        token.setToken(tokenString);
-        token.setUserId(savedUser.getId());
-        token.setExpiresAt(OffsetDateTime.now().plusDays(1));
-        tokenRepository.save(token);
-
-        // 3. 發送驗證郵件
-        String recipientName = user.getEmail().split("@")[0]; // split email from "@"
-        emailService.sendRegistrationVerificationEmail(user.getEmail(), recipientName, tokenString);
-        logger.info("User registered successfully with ID: {}, recipientName: {}", user.getId(), recipientName);
+        long start = System.nanoTime();
+        RegisterOutcome outcome = RegisterOutcome.ERROR;
+        try {
+            // 0. 先排除已註冊的 email，避免重複註冊時也做密碼雜湊 (同時送出的重複註冊仍由 unique constraint 擋下)
+            if (registeredEmailFilter.isRegistered(request.getEmail())) {
+                auditLog.record(AuditEventType.REGISTRATION_DUPLICATE, null, request.getEmail());
+                outcome = RegisterOutcome.DUPLICATE;
+                throw new EmailAlreadyRegisteredException("This email is already registered");
+            }
+
+            // 1. 建立 User 實體並儲存
+            User user = new User();
+            user.setEmail(request.getEmail());
+            String encodedPassword = passwordEncoder.encode(request.getPassword());
+            user.setPassword(encodedPassword);
+            User savedUser = userRepository.save(user);
+            registeredEmailFilter.add(savedUser.getEmail());
+
+            // 2. 產生token權杖，並儲存
+            EmailVerificationToken token = new EmailVerificationToken();
+            String tokenString = UUID.randomUUID().toString();
+            token.setToken(tokenString);
+            token.setUserId(savedUser.getId());
+            token.setExpiresAt(OffsetDateTime.now().plusDays(1));
+            tokenRepository.save(token);
+
+            // 3. 驗證郵件寫入 outbox，與使用者在同一個交易中 commit，由背景 dispatcher 寄出
+            String recipientName = user.getEmail().split("@")[0]; // split email from "@"
+            emailOutboxService.enqueueRegistrationVerificationEmail(user.getEmail(), recipientName, tokenString);
+            // id 由 sequence 預先配發，INSERT 延到 flush 才以 batch 送出；在此 flush 讓重複 email 仍在記錄結果前失敗
+            userRepository.flush();
+            auditLog.record(AuditEventType.REGISTERED, savedUser.getId(), savedUser.getEmail());
+            logger.info("User registered successfully with ID: {}, recipientName: {}", user.getId(),
+                    recipientName);
+            outcome = RegisterOutcome.SUCCESS;
+        } finally {
+            registerTimers.record(outcome, start);
+        }
     }
 
     @Transactional
     @Override
     public void verifyRegistration(String tokenValue) {
-        logger.info("Attempting to verify email with token: {}", tokenValue);
-
-        // 1. 查找權杖
-        Optional<EmailVerificationToken> tokenOptional = tokenRepository.findByToken(tokenValue);
-
-        if (tokenOptional.isEmpty()) {
-            logger.warn("Invalid verification token provided: {}", tokenValue);
-            throw new IllegalArgumentException("Invalid verification token provided");
-        }
-
-        EmailVerificationToken verificationToken = tokenOptional.get();
-
-        // 2. 檢查權杖是否過期
-        if (verificationToken.getExpiresAt().isBefore(OffsetDateTime.now())) {
-            logger.warn("Verification token {} has expired. User ID: {}", tokenValue, verificationToken.getUserId());
-            tokenRepository.delete(verificationToken); // 刪除過期的權杖
-            throw new IllegalStateException("Verification token has expired");
-        }
-
-        // 3. 查找與權杖關聯的使用者
-        Long userId = verificationToken.getUserId();
-        Optional<User> userOptional = userRepository.findById(userId);
-
-        if (userOptional.isEmpty()) {
-            // 這種情況理論上不應該發生，如果權杖有效，使用者應該存在
-            // 但作為防禦性程式設計，我們還是處理它
-            logger.error("CRITICAL: User not found for a valid verification token. Token: {}, User ID: {}", tokenValue,
-                    userId);
-            // 即使使用者找不到，也刪除這個孤立的權杖
+        long start = System.nanoTime();
+        VerifyRegistrationOutcome outcome = VerifyRegistrationOutcome.ERROR;
+        try {
+            logger.debug("Attempting to verify email with token: {}", tokenValue);
+
+            // 1. 查找權杖
+            Optional<EmailVerificationToken> tokenOptional = tokenRepository.findByToken(tokenValue);
+
+            if (tokenOptional.isEmpty()) {
+                logger.warn("Invalid verification token provided: {}", tokenValue);
+                auditLog.record(AuditEventType.EMAIL_VERIFICATION_FAILED, null, null);
+                outcome = VerifyRegistrationOutcome.INVALID_TOKEN;
+                throw new IllegalArgumentException("Invalid verification token provided");
+            }
+
+            EmailVerificationToken verificationToken = tokenOptional.get();
+
+            // 2. 檢查權杖是否過期
+            if (verificationToken.getExpiresAt().isBefore(OffsetDateTime.now())) {
+                logger.warn("Verification token {} has expired. User ID: {}", tokenValue,
+                        verificationToken.getUserId());
+                auditLog.record(AuditEventType.EMAIL_VERIFICATION_FAILED, verificationToken.getUserId(), null);
+                tokenRepository.delete(verificationToken); // 刪除過期的權杖
+                outcome = VerifyRegistrationOutcome.EXPIRED;
+                throw new IllegalStateException("Verification token has expired");
+            }
+
+            // 3. 查找與權杖關聯的使用者
+            Long userId = verificationToken.getUserId();
+            Optional<UserSnapshot> userOptional = userLookupCache.findById(userId);
+
+            if (userOptional.isEmpty()) {
+                // 這種情況理論上不應該發生，如果權杖有效，使用者應該存在
+                // 但作為防禦性程式設計，我們還是處理它
+                logger.error("CRITICAL: User not found for a valid verification token. Token: {}, User ID: {}",
+                        tokenValue, userId);
+                // 即使使用者找不到，也刪除這個孤立的權杖
+                tokenRepository.delete(verificationToken);
+                throw new NoSuchElementException("User not found for a valid verification token");
+            }
+
+            UserSnapshot user = userOptional.get();
+
+            // 4. 檢查使用者郵箱是否已驗證，未驗證時只更新 is_email_verified
+            // (UPDATE 回傳 0 表示同時有另一個請求已完成驗證)
+            if (user.isEmailVerified()
+                    || userRepository.markEmailVerified(user.getId(), OffsetDateTime.now()) == 0) {
+                logger.info("Email for user {} (ID: {}) was already verified. Consuming token {}.", user.getEmail(),
+                        user.getId(), tokenValue);
+                tokenRepository.delete(verificationToken); // 即使已驗證，也消耗掉當前使用的權杖
+                outcome = VerifyRegistrationOutcome.ALREADY_VERIFIED;
+                throw new IllegalStateException("Email already verified");
+            }
+
+            // 5. 清除快取中尚未驗證的舊資料
+            invalidateCachedUser(user.getId(), user.getEmail());
+            auditLog.record(AuditEventType.EMAIL_VERIFIED, user.getId(), user.getEmail());
+            logger.info("Email successfully verified for user {} (ID: {}).", user.getEmail(), user.getId());
+
+            // 6. 刪除已使用的權杖
             tokenRepository.delete(verificationToken);
-            throw new NoSuchElementException("User not found for a valid verification token");
+            logger.debug("Verification token {} has been deleted after successful verification.", tokenValue);
+            outcome = VerifyRegistrationOutcome.SUCCESS;
+        } finally {
+            verifyRegistrationTimers.record(outcome, start);
         }
-
-        User user = userOptional.get();
-
-        // 4. 檢查使用者郵箱是否已驗證
-        if (user.isEmailVerified()) { // 假設 User 實體有 isEmailVerified() getter
-            logger.info("Email for user {} (ID: {}) was already verified. Consuming token {}.", user.getEmail(),
-                    user.getId(), tokenValue);
-            tokenRepository.delete(verificationToken); // 即使已驗證，也消耗掉當前使用的權杖
-            throw new IllegalStateException("Email already verified");
-        }
-
-        // 5. 更新使用者郵箱驗證狀態
-        user.setEmailVerified(true); // 假設 User 實體有 setEmailVerified(boolean) setter
-        userRepository.save(user);
-        logger.info("Email successfully verified for user {} (ID: {}).", user.getEmail(), user.getId());
-
-        // 6. 刪除已使用的權杖
-        tokenRepository.delete(verificationToken);
-        logger.info("Verification token {} has been deleted after successful verification.", tokenValue);
     }
 
     @Transactional
     @Override
     public void login(LoginRequest request) {
-        logger.info("Attempting login for user: {}", request.getEmail());
-
-        // 1. 根據電子郵件查找使用者
-        Optional<User> userOptional = userRepository.findByEmail(request.getEmail());
-
-        if (userOptional.isEmpty()) {
-            logger.warn("Login failed: User not found with email: {}", request.getEmail());
-            throw new NoSuchElementException("the email is not registered");
-        }
-
-        User user = userOptional.get();
-
-        // 2. 檢查電子郵件是否已驗證
-        if (!user.isEmailVerified()) {
-            logger.warn("Login failed: Email not verified for user: {}", request.getEmail());
-            throw new IllegalStateException("Your email is not verified, please verify your email.");
+        long start = System.nanoTime();
+        LoginOutcome outcome = LoginOutcome.ERROR;
+        try {
+            logger.debug("Attempting login for user: {}", request.getEmail());
+
+            // 1. 根據電子郵件查找使用者
+            Optional<UserSnapshot> userOptional = userLookupCache.findByEmail(request.getEmail());
+
+            if (userOptional.isEmpty()) {
+                logger.warn("Login failed: User not found with email: {}", request.getEmail());
+                auditLog.record(AuditEventType.LOGIN_UNKNOWN_EMAIL, null, request.getEmail());
+                outcome = LoginOutcome.UNKNOWN_EMAIL;
+                throw new NoSuchElementException("the email is not registered");
+            }
+
+            UserSnapshot user = userOptional.get();
+
+            // 2. 檢查電子郵件是否已驗證
+            if (!user.isEmailVerified()) {
+                logger.warn("Login failed: Email not verified for user: {}", request.getEmail());
+                auditLog.record(AuditEventType.LOGIN_EMAIL_NOT_VERIFIED, user.getId(), user.getEmail());
+                outcome = LoginOutcome.EMAIL_NOT_VERIFIED;
+                throw new IllegalStateException("Your email is not verified, please verify your email.");
+            }
+
+            // 3. 驗證密碼
+            if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+                logger.warn("Login failed: Invalid password for user: {}", request.getEmail());
+                auditLog.record(AuditEventType.LOGIN_BAD_PASSWORD, user.getId(), user.getEmail());
+                outcome = LoginOutcome.BAD_PASSWORD;
+                throw new BadCredentialsException("password is incorrect.");
+            }
+
+            // 密碼正確時，若雜湊的演算法或成本已過時，以目前設定重新雜湊 (只更新 password 欄位)
+            if (passwordEncoder.upgradeEncoding(user.getPassword())) {
+                String upgraded = passwordEncoder.encode(request.getPassword());
+                if (userRepository.updatePassword(user.getId(), user.getPassword(), upgraded,
+                        OffsetDateTime.now()) > 0) {
+                    invalidateCachedUser(user.getId(), user.getEmail());
+                    logger.info("Password hash upgraded for user: {}", user.getEmail());
+                }
+            }
+
+            // 4. 啟用兩步驟驗證，產生驗證碼
+            String plainCode = twoFactorAuthService.createNewCode(user);
+
+            // 5. 驗證碼郵件寫入 outbox，由背景 dispatcher 寄出
+            String recipientName = user.getEmail().split("@")[0];
+            emailOutboxService.enqueueLoginVerificationCodeEmail(user.getEmail(), recipientName, plainCode);
+
+            // 如果執行到這裡，表示帳號密碼驗證成功
+            auditLog.record(AuditEventType.LOGIN_PASSWORD_ACCEPTED, user.getId(), user.getEmail());
+            logger.info("User {} logged in successfully.", user.getEmail());
+            outcome = LoginOutcome.SUCCESS;
+        } finally {
+            loginTimers.record(outcome, start);
         }
-
-        // 3. 驗證密碼
-        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
-            logger.warn("Login failed: Invalid password for user: {}", request.getEmail());
-            throw new BadCredentialsException("password is incorrect.");
-        }
-
-        // 4. 啟用兩步驟驗證，產生驗證碼
-        String plainCode = twoFactorAuthService.createNewCode(user);
-        logger.info("Two-factor authentication code generated for user: {}", plainCode); // 先把驗證碼印出來，等寄信功能好了再刪掉
-
-        // 5. 發送驗證碼到使用者
-        String recipientName = user.getEmail().split("@")[0];
-        emailService.sendLoginVerificationCodeEmail(user.getEmail(), recipientName, plainCode);
-
-        // 如果執行到這裡，表示帳號密碼驗證成功
-        logger.info("User {} logged in successfully.", user.getEmail());
     }
 
-    @Transactional
+    // 不開啟交易：驗證碼的消耗與登入時間的記錄在同一個 SQL statement 中完成 (見 LoginVerificationRepository)
     @Override
     public LoginVerifyResponse loginVerify(LoginVerifyRequest request) {
-
-        Boolean isCodeValid = twoFactorAuthService.verifyCode(request.getEmail(), request.getCode());
-
-        if (!isCodeValid) {
-            throw new BadCredentialsException("Invalid verification code");
+        long start = System.nanoTime();
+        LoginVerifyOutcome outcome = LoginVerifyOutcome.ERROR;
+        try {
+            OffsetDateTime loginAt = OffsetDateTime.now();
+            Optional<AuthenticatedUser> verified = twoFactorAuthService
+                    .verifyCodeAndRecordLogin(request.getEmail(), request.getCode(), loginAt);
+            if (verified.isEmpty()) {
+                outcome = LoginVerifyOutcome.INVALID_CODE;
+                throw new BadCredentialsException("Invalid verification code");
+            }
+            AuthenticatedUser user = verified.get();
+            lastLoginProjection.update(user.getEmail(), loginAt);
+
+            // last_login_at 已直接更新時，清除快取中的舊資料 (write-behind 模式由 LastLoginRecorder 寫入後清除)
+            if (!lastLoginRecorder.isWriteBehind()) {
+                userLookupCache.evictAfterCompletion(user.getId(), user.getEmail());
+            }
+            verifiedTokenCache.evictUser(user.getEmail());
+            String accessToken = jwtService.generateToken(user);
+            String refreshToken = jwtService.generateRefreshToken(user);
+
+            LoginVerifyResponse response = LoginVerifyResponse.builder()
+                    .accessToken(accessToken)
+                    .refreshToken(refreshToken)
+                    .tokenType("Bearer")
+                    .build();
+            outcome = LoginVerifyOutcome.SUCCESS;
+            return response;
+        } finally {
+            loginVerifyTimers.record(outcome, start);
         }
-
-        Optional<User> userOptional = userRepository.findByEmail(request.getEmail());
-        User user = userOptional.get();
-        user.setLastLoginAt(OffsetDateTime.now());
-        userRepository.save(user);
-        String accessToken = jwtService.generateToken(user);
-        String refreshToken = jwtService.generateRefreshToken(user);
-
-        return LoginVerifyResponse.builder()
-                .accessToken(accessToken)
-                .refreshToken(refreshToken)
-                .tokenType("Bearer")
-                .build();
     }
 
-    @Transactional
+    // 先查回應快取；沒有時才從 principal (或使用者快取) 取得登入時間並格式化
+    // 不開啟交易：命中回應快取時不借用連線；miss 時 UserRepository.findByEmail 自己的 read-only 交易
+    // 可由 read replica 執行 (剛登入的使用者仍查 primary，見 ReadYourWritesGuard)
     @Override
-    public LastLoginResponse getLastLoginInfo(User user) {
-        Optional<User> userOptional = userRepository.findByEmail(user.getEmail());
-        User resultUser = userOptional.get();
-        if (resultUser.getLastLoginAt() == null) {
+    public LastLoginProjection.View getLastLoginInfo(UserDetails principal) {
+        String email = principal.getUsername();
+        LastLoginProjection.View view = lastLoginProjection.get(email);
+        if (view != null) {
+            return view;
+        }
+
+        // principal 可能已是載入好的 UserSnapshot；stateless 模式下的 AuthenticatedUser 沒有登入時間，需要再查
+        UserSnapshot resultUser = principal instanceof UserSnapshot loaded ? loaded
+                : userLookupCache.findByEmail(email)
+                        .orElseThrow(() -> new NoSuchElementException("User not found"));
+        // 包含尚未寫入資料庫的登入時間 (write-behind)
+        OffsetDateTime loginAt = lastLoginRecorder.latest(resultUser.getId(), resultUser.getLastLoginAt());
+        if (loginAt == null) {
             throw new NoSuchElementException("User has not logged in yet");
         }
+        return lastLoginProjection.update(email, loginAt);
+    }
 
-        // handle timezone
-        ZoneId tz = ZoneId.of("Asia/Taipei");
-        OffsetDateTime loginAt = resultUser.getLastLoginAt();
-        String localTimeFormatted = loginAt
-                .atZoneSameInstant(tz) // ★ 時區轉換核心
-                .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS Z"));
-        return LastLoginResponse.builder()
-                .email(resultUser.getEmail())
-                .lastLoginTime(localTimeFormatted)
-                .build();
+    // 使用者資料變更後，清除使用者查詢快取與已驗證 token 快取中的舊資料
+    private void invalidateCachedUser(Long id, String email) {
+        userLookupCache.evictAfterCompletion(id, email);
+        verifiedTokenCache.evictUser(email);
     }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.example.securelogin.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GCRA 形式的 token bucket：狀態只有一個 {@link AtomicLong}，存放下一個 token 補回的理論時間 (TAT)。
+ * <p>
+ * 容量 {@code burst}、每 {@code intervalNanos} 補一個 token；取 token 時以 CAS 前進 TAT，
+ * 不需要背景補充執行緒。TAT 已經過去的 bucket 等同全滿。時間使用 {@link System#nanoTime()} 基準。
+ */
+public final class Gcra {
+
+    /**
+     * 已停用的 bucket 的 TAT；{@link #tryAcquire} 遇到時不扣除並回傳這個值。
+     */
+    public static final long RETIRED = Long.MIN_VALUE;
+
+    private Gcra() {
+    }
+
+    /**
+     * 容量 {@code burst} 對應的容許提前量，傳給 {@link #tryAcquire}。
+     */
+    public static long tolerance(long intervalNanos, int burst) {
+        return intervalNanos * (Math.max(1, burst) - 1);
+    }
+
+    /**
+     * 嘗試從 {@code tat} 表示的 bucket 取一個 token。
+     *
+     * @return 0 表示取得；{@link #RETIRED} 表示 bucket 已停用；否則為需要等待的奈秒數
+     */
+    public static long tryAcquire(AtomicLong tat, long intervalNanos, long toleranceNanos, long nowNanos) {
+        for (;;) {
+            long current = tat.get();
+            if (current == RETIRED) {
+                return RETIRED;
+            }
+            long base = current - nowNanos > 0 ? current : nowNanos;
+            long wait = base - toleranceNanos - nowNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (tat.compareAndSet(current, base + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.securelogin.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 多個 producer、單一 consumer 的固定大小 ring buffer (Vyukov bounded queue)。
+ * 每個位置的 sequence 表示它目前可寫入或可讀取的輪次，producer 以 CAS 取得位置，不需要加鎖。
+ * 容量會調整為 2 的次方。
+ */
+public final class MpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // 只有 consumer 執行緒會修改
+    private volatile long head;
+
+    public MpscRingBuffer(int requestedCapacity) {
+        int capacity = requestedCapacity <= 1 ? 2 : Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    // 佇列已滿時回傳 false，不會阻塞
+    public boolean offer(E element) {
+        for (;;) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff < 0) {
+                return false; // 已滿
+            }
+            if (diff == 0 && tail.compareAndSet(position, position + 1)) {
+                elements.lazySet(index, element);
+                sequences.set(index, position + 1);
+                return true;
+            }
+        }
+    }
+
+    // 只能由單一 consumer 執行緒呼叫
+    public E poll() {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null; // 空的，或 producer 尚未寫完
+        }
+        E element = elements.get(index);
+        elements.lazySet(index, null);
+        sequences.set(index, position + mask + 1);
+        head = position + 1;
+        return element;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.securelogin.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同一個操作依結果 (enum) 分別計時的一組 {@link Timer}。
+ * <p>
+ * 每個結果的 Timer 在建立時就註冊好並依 {@code ordinal()} 放在陣列中，記錄時不必查
+ * registry、也不必建立 tag 物件：呼叫端先取 {@code System.nanoTime()}，結束時呼叫
+ * {@link #record(Enum, long)}。tag 值為 enum 名稱的小寫，例如 {@code outcome=bad_password}。
+ *
+ * @param <E> 結果種類
+ */
+public final class OutcomeTimers<E extends Enum<E>> {
+
+    private final Timer[] timers;
+
+    private OutcomeTimers(Timer[] timers) {
+        this.timers = timers;
+    }
+
+    /**
+     * 為 {@code outcomes} 的每個值註冊一個 Timer。
+     *
+     * @param name        指標名稱
+     * @param description 指標說明
+     * @param outcomes    結果 enum
+     * @param tags        所有結果共用的 tag (例如 provider)
+     */
+    public static <E extends Enum<E>> OutcomeTimers<E> register(MeterRegistry registry, String name,
+            String description, Class<E> outcomes, Tags tags) {
+        E[] values = outcomes.getEnumConstants();
+        Timer[] timers = new Timer[values.length];
+        for (E value : values) {
+            timers[value.ordinal()] = Timer.builder(name)
+                    .description(description)
+                    .tags(tags)
+                    .tag("outcome", value.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        return new OutcomeTimers<>(timers);
+    }
+
+    public static <E extends Enum<E>> OutcomeTimers<E> register(MeterRegistry registry, String name,
+            String description, Class<E> outcomes) {
+        return register(registry, name, description, outcomes, Tags.empty());
+    }
+
+    /**
+     * 記錄從 {@code startNanos} 到現在的耗時。
+     *
+     * @param startNanos 開始時的 {@code System.nanoTime()}
+     */
+    public void record(E outcome, long startNanos) {
+        timers[outcome.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public Timer timer(E outcome) {
+        return timers[outcome.ordinal()];
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.securelogin.util;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * 階層式 timer wheel：排程、取消都是 O(1)，推進時間時只處理到期的 bucket。
+ * <p>
+ * 共 {@value #LEVELS} 層，每層 {@value #WHEEL_SIZE} 個 bucket；第 0 層每格一個 tick，
+ * 第 n 層每格 64^n 個 tick。較遠的 timer 放在上層，所屬的格子輪到時再往下層搬 (cascade)，
+ * 超過最上層範圍的 timer 先放在最遠的格子，之後重新排程。
+ * <p>
+ * 不是 thread-safe，呼叫端需自行加鎖。
+ *
+ * @param <T> timer 攜帶的資料
+ */
+public final class TimerWheel<T> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+    private final long tickNanos;
+    private final long originNanos;
+    private final Timer<T>[][] wheels;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(Duration tick, long nowNanos) {
+        if (tick.isZero() || tick.isNegative()) {
+            throw new IllegalArgumentException("tick must be positive");
+        }
+        this.tickNanos = tick.toNanos();
+        this.originNanos = nowNanos;
+        this.wheels = new Timer[LEVELS][WHEEL_SIZE];
+        for (Timer<T>[] wheel : wheels) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                wheel[i] = Timer.sentinel();
+            }
+        }
+    }
+
+    /**
+     * 排程一個在 {@code deadlineNanos} (System.nanoTime 基準) 到期的 timer；
+     * 已經過期的 timer 在下一次 {@link #advance} 時觸發。
+     */
+    public Timer<T> schedule(T value, long deadlineNanos) {
+        Timer<T> timer = new Timer<>(value, toTick(deadlineNanos));
+        place(timer);
+        size++;
+        return timer;
+    }
+
+    // 取消尚未觸發的 timer，已觸發或已取消的 timer 不受影響
+    public void cancel(Timer<T> timer) {
+        if (timer.isLinked()) {
+            timer.unlink();
+            size--;
+        }
+    }
+
+    /**
+     * 推進到 {@code nowNanos}，依序把到期的 timer 交給 {@code expired}。
+     */
+    public void advance(long nowNanos, Consumer<T> expired) {
+        long targetTick = (nowNanos - originNanos) / tickNanos;
+        if (size == 0) {
+            currentTick = Math.max(currentTick, targetTick);
+            return;
+        }
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+                    cascade(level);
+                }
+            }
+            Timer<T> head = wheels[0][(int) (currentTick & WHEEL_MASK)];
+            while (head.next != head) {
+                Timer<T> timer = head.next;
+                timer.unlink();
+                if (timer.deadlineTick > currentTick) {
+                    place(timer); // 超過最上層範圍、先放在最遠格子的 timer
+                    continue;
+                }
+                size--;
+                expired.accept(timer.value);
+            }
+            if (size == 0) {
+                currentTick = targetTick;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private long toTick(long deadlineNanos) {
+        long delta = deadlineNanos - originNanos;
+        // 無條件進位，確保不會早於 deadline 觸發
+        return delta <= 0 ? 0 : (delta + tickNanos - 1) / tickNanos;
+    }
+
+    private void cascade(int level) {
+        Timer<T> head = wheels[level][(int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK)];
+        while (head.next != head) {
+            Timer<T> timer = head.next;
+            timer.unlink();
+            place(timer);
+        }
+    }
+
+    private void place(Timer<T> timer) {
+        long delta = timer.deadlineTick - currentTick;
+        long tick = timer.deadlineTick;
+        if (delta <= 0) {
+            tick = currentTick + 1;
+            delta = 1;
+        } else if (delta > MAX_DELTA) {
+            tick = currentTick + MAX_DELTA;
+            delta = MAX_DELTA;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+        wheels[level][(int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK)].append(timer);
+    }
+
+    /**
+     * 排程後的 timer，可用來取消。同時也是 bucket 雙向鏈結串列的節點。
+     */
+    public static final class Timer<T> {
+
+        private final T value;
+        private final long deadlineTick;
+        private Timer<T> prev;
+        private Timer<T> next;
+
+        private Timer(T value, long deadlineTick) {
+            this.value = value;
+            this.deadlineTick = deadlineTick;
+        }
+
+        private static <T> Timer<T> sentinel() {
+            Timer<T> sentinel = new Timer<>(null, 0);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+
+        public T value() {
+            return value;
+        }
+
+        private boolean isLinked() {
+            return next != null;
+        }
+
+        private void append(Timer<T> timer) {
+            timer.prev = prev;
+            timer.next = this;
+            prev.next = timer;
+            prev = timer;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+-- 郵件 outbox (與使用者資料在同一個交易寫入，由 EmailOutboxDispatcher 寄出)。
+-- Flyway 之前的版本沒有這個資料表，不能放在 V1：baseline 的既有資料庫不會執行 V1。
+
+CREATE TABLE email_outbox (
+    id              bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    type            varchar(40)                 NOT NULL,
+    recipient_email varchar(255)                NOT NULL,
+    recipient_name  varchar(255),
+    payload         varchar(255),
+    status          varchar(20)                 NOT NULL,
+    attempts        integer                     NOT NULL,
+    next_attempt_at timestamp(6) with time zone NOT NULL,
+    last_error      varchar(1000),
+    created_at      timestamp(6) with time zone NOT NULL,
+    sent_at         timestamp(6) with time zone
+);
+
+CREATE INDEX idx_email_outbox_status_next_attempt ON email_outbox (status, next_attempt_at);
@@ -0,0 +1,30 @@
+-- 初始 schema，與原本由 Hibernate ddl-auto 產生的資料表一致。
+-- 既有資料庫由 spring.flyway.baseline-on-migrate 直接標記為版本 1，不會執行此檔，
+-- 因此這裡只能有 Flyway 之前的版本就已存在的資料表；之後新增的資料表放在 V1 之後的 migration。
+
+CREATE TABLE users (
+    id                bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email             varchar(255)                NOT NULL UNIQUE,
+    password          varchar(255)                NOT NULL,
+    is_email_verified boolean                     NOT NULL,
+    last_login_at     timestamp(6) with time zone,
+    created_at        timestamp(6) with time zone NOT NULL,
+    updated_at        timestamp(6) with time zone NOT NULL
+);
+
+CREATE TABLE email_verification_tokens (
+    id         bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    token      varchar(255)                NOT NULL UNIQUE,
+    user_id    bigint                      NOT NULL,
+    expires_at timestamp(6) with time zone NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL
+);
+
+CREATE TABLE two_factor_auth_codes (
+    id         bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id    bigint                      NOT NULL REFERENCES users (id),
+    code_hash  varchar(255)                NOT NULL,
+    expires_at timestamp(6) with time zone NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL,
+    used       boolean                     NOT NULL
+);
@@ -0,0 +1,104 @@
+-- email_verification_tokens 與 two_factor_auth_codes 改為依 expires_at 每日分區 (UTC)。
+-- 過期資料由 PartitionMaintenanceJob 整個分區 DROP，不再逐筆 DELETE。
+-- 分區表的 primary key / unique 必須包含分區鍵，因此改為 (id, expires_at) / (token, expires_at)；
+-- id 改由獨立的 sequence 產生。
+
+-- 建立 [from_day, to_day) 之間缺少的每日分區，名稱為 <parent>_pYYYYMMDD，回傳新建的數量
+CREATE OR REPLACE FUNCTION ensure_daily_partitions(parent text, from_day date, to_day date)
+    RETURNS integer
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    partition_day  date    := from_day;
+    partition_name text;
+    created        integer := 0;
+BEGIN
+    WHILE partition_day < to_day LOOP
+        partition_name := parent || '_p' || to_char(partition_day, 'YYYYMMDD');
+        IF to_regclass(partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                           partition_name, parent,
+                           partition_day::timestamp AT TIME ZONE 'UTC',
+                           (partition_day + 1)::timestamp AT TIME ZONE 'UTC');
+            created := created + 1;
+        END IF;
+        partition_day := partition_day + 1;
+    END LOOP;
+    RETURN created;
+END
+$$;
+
+-- email_verification_tokens ---------------------------------------------------
+
+ALTER TABLE email_verification_tokens RENAME TO email_verification_tokens_old;
+
+CREATE SEQUENCE email_verification_tokens_seq;
+
+CREATE TABLE email_verification_tokens (
+    id         bigint                      NOT NULL DEFAULT nextval('email_verification_tokens_seq'),
+    token      varchar(255)                NOT NULL,
+    user_id    bigint                      NOT NULL,
+    expires_at timestamp(6) with time zone NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL,
+    CONSTRAINT pk_email_verification_tokens PRIMARY KEY (id, expires_at),
+    CONSTRAINT uk_email_verification_tokens_token UNIQUE (token, expires_at)
+) PARTITION BY RANGE (expires_at);
+
+ALTER SEQUENCE email_verification_tokens_seq OWNED BY email_verification_tokens.id;
+
+SELECT ensure_daily_partitions('email_verification_tokens',
+                               (now() AT TIME ZONE 'UTC')::date,
+                               greatest((now() AT TIME ZONE 'UTC')::date + 8,
+                                        (SELECT (max(expires_at) AT TIME ZONE 'UTC')::date + 1
+                                         FROM email_verification_tokens_old)));
+
+-- 只搬移尚未過期的權杖
+INSERT INTO email_verification_tokens (id, token, user_id, expires_at, created_at)
+SELECT id, token, user_id, expires_at, created_at
+FROM email_verification_tokens_old
+WHERE expires_at > now();
+
+SELECT setval('email_verification_tokens_seq',
+              coalesce((SELECT max(id) FROM email_verification_tokens_old), 0) + 1, false);
+
+DROP TABLE email_verification_tokens_old;
+
+-- two_factor_auth_codes -------------------------------------------------------
+
+ALTER TABLE two_factor_auth_codes RENAME TO two_factor_auth_codes_old;
+
+CREATE SEQUENCE two_factor_auth_codes_seq;
+
+CREATE TABLE two_factor_auth_codes (
+    id         bigint                      NOT NULL DEFAULT nextval('two_factor_auth_codes_seq'),
+    user_id    bigint                      NOT NULL,
+    code_hash  varchar(255)                NOT NULL,
+    expires_at timestamp(6) with time zone NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL,
+    used       boolean                     NOT NULL,
+    CONSTRAINT pk_two_factor_auth_codes PRIMARY KEY (id, expires_at),
+    CONSTRAINT fk_two_factor_auth_codes_user FOREIGN KEY (user_id) REFERENCES users (id)
+) PARTITION BY RANGE (expires_at);
+
+ALTER SEQUENCE two_factor_auth_codes_seq OWNED BY two_factor_auth_codes.id;
+
+-- 登入時作廢舊驗證碼、驗證時查詢有效驗證碼都只看未使用的資料
+CREATE INDEX idx_two_factor_auth_codes_user_active ON two_factor_auth_codes (user_id) WHERE used = false;
+
+SELECT ensure_daily_partitions('two_factor_auth_codes',
+                               (now() AT TIME ZONE 'UTC')::date,
+                               greatest((now() AT TIME ZONE 'UTC')::date + 8,
+                                        (SELECT (max(expires_at) AT TIME ZONE 'UTC')::date + 1
+                                         FROM two_factor_auth_codes_old)));
+
+-- 只搬移尚未使用且尚未過期的驗證碼
+INSERT INTO two_factor_auth_codes (id, user_id, code_hash, expires_at, created_at, used)
+SELECT id, user_id, code_hash, expires_at, created_at, used
+FROM two_factor_auth_codes_old
+WHERE used = false
+  AND expires_at > now();
+
+SELECT setval('two_factor_auth_codes_seq',
+              coalesce((SELECT max(id) FROM two_factor_auth_codes_old), 0) + 1, false);
+
+DROP TABLE two_factor_auth_codes_old;
@@ -0,0 +1,32 @@
+-- users、email_verification_tokens、two_factor_auth_codes、email_outbox 的 id 改由 INCREMENT BY 50 的 sequence 產生，
+-- Hibernate 一次取得 50 個 id (pooled-lo)，INSERT 可延到 flush 時以 JDBC batch 送出。
+-- 欄位 DEFAULT 仍為 nextval：pooled-lo 使用 [nextval, nextval + 49]，直接以 SQL 新增的資料取得的
+-- 是其他區段的起點，不會與 Hibernate 配發的 id 重複。
+-- email_outbox 也必須改用 sequence：identity 實體在 persist 時就會 INSERT，並先送出同一交易中排隊的 INSERT。
+-- dispatcher 依 id 排序，多台 instance 時只是大致依建立順序寄送。
+
+-- users -----------------------------------------------------------------------
+
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE users_seq INCREMENT BY 50 OWNED BY users.id;
+
+SELECT setval('users_seq', coalesce((SELECT max(id) FROM users), 0) + 1, false);
+
+ALTER TABLE users ALTER COLUMN id SET DEFAULT nextval('users_seq');
+
+-- email_outbox -----------------------------------------------------------------
+
+ALTER TABLE email_outbox ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE email_outbox_seq INCREMENT BY 50 OWNED BY email_outbox.id;
+
+SELECT setval('email_outbox_seq', coalesce((SELECT max(id) FROM email_outbox), 0) + 1, false);
+
+ALTER TABLE email_outbox ALTER COLUMN id SET DEFAULT nextval('email_outbox_seq');
+
+-- email_verification_tokens、two_factor_auth_codes (V2 已改用 sequence) -----------
+
+ALTER SEQUENCE email_verification_tokens_seq INCREMENT BY 50;
+
+ALTER SEQUENCE two_factor_auth_codes_seq INCREMENT BY 50;
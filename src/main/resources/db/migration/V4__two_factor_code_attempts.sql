@@ -0,0 +1,2 @@
+-- 2FA 驗證碼 (jpa store) 的錯誤次數；達到 two-factor.max-attempts 時由 LoginVerificationRepository 標記為已使用
+ALTER TABLE two_factor_auth_codes ADD COLUMN attempts integer NOT NULL DEFAULT 0;
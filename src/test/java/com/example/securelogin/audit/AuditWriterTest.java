@@ -0,0 +1,129 @@
+package com.example.securelogin.audit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditWriterTest {
+
+    private static final long START = AuditRecord.toMicros(Instant.parse("2026-01-01T00:00:00Z"));
+    // 檔頭 + 10 筆紀錄
+    private static final long SEGMENT_SIZE = 64 + 10 * AuditRecord.SIZE;
+    private static final String KEY = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final EmailFingerprint FINGERPRINT = EmailFingerprint.of(KEY, null);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rollsOverSegmentsAndReadsEverythingBack() throws Exception {
+        try (AuditWriter writer = new AuditWriter(directory, SEGMENT_SIZE, START)) {
+            for (int i = 0; i < 25; i++) {
+                writer.append(record(i, i % 3, AuditEventType.LOGIN_PASSWORD_ACCEPTED));
+            }
+        }
+        assertEquals(3, AuditSegments.list(directory).size());
+
+        List<AuditRecord> all = read(new AuditLogReader.Query(null, null, null, null, null));
+        assertEquals(25, all.size());
+        for (int i = 0; i < 25; i++) {
+            assertEquals(START + i * 1_000_000L, all.get(i).timestampMicros());
+        }
+    }
+
+    @Test
+    void resumesAfterLastValidRecord() throws Exception {
+        try (AuditWriter writer = new AuditWriter(directory, SEGMENT_SIZE, START)) {
+            for (int i = 0; i < 4; i++) {
+                writer.append(record(i, 1, AuditEventType.REGISTERED));
+            }
+        }
+        try (AuditWriter writer = new AuditWriter(directory, SEGMENT_SIZE, START + 100_000_000L)) {
+            writer.append(record(4, 1, AuditEventType.EMAIL_VERIFIED));
+        }
+        List<AuditRecord> all = read(new AuditLogReader.Query(null, null, null, null, null));
+        assertEquals(5, all.size());
+        assertEquals(1, AuditSegments.list(directory).size());
+        assertEquals(AuditEventType.EMAIL_VERIFIED, all.get(4).type());
+    }
+
+    @Test
+    void filtersByUserEmailTypeAndTimeRange() throws Exception {
+        try (AuditWriter writer = new AuditWriter(directory, SEGMENT_SIZE, START)) {
+            for (int i = 0; i < 30; i++) {
+                writer.append(record(i, i % 3, i % 2 == 0 ? AuditEventType.LOGIN_BAD_PASSWORD
+                        : AuditEventType.TWO_FACTOR_SUCCEEDED));
+            }
+        }
+        assertEquals(10, read(new AuditLogReader.Query(2L, null, null, null, null)).size());
+        assertEquals(10, read(new AuditLogReader.Query(null, "USER1@example.com ", null, null, null)).size());
+        assertEquals(15, read(new AuditLogReader.Query(null, null, null, null,
+                Set.of(AuditEventType.LOGIN_BAD_PASSWORD))).size());
+
+        Instant from = Instant.parse("2026-01-01T00:00:12Z");
+        Instant to = Instant.parse("2026-01-01T00:00:22Z");
+        List<AuditRecord> range = read(new AuditLogReader.Query(null, null, from, to, null));
+        assertEquals(10, range.size());
+        assertEquals(from, range.get(0).timestamp());
+    }
+
+    @Test
+    void cliPrintsMatchingRecords() throws Exception {
+        try (AuditWriter writer = new AuditWriter(directory, SEGMENT_SIZE, START)) {
+            writer.append(record(0, 7, AuditEventType.TWO_FACTOR_FAILED));
+            writer.append(record(1, 8, AuditEventType.TWO_FACTOR_FAILED));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int status = AuditLogCli.run(new String[] { "--dir", directory.toString(), "--user", "7" }, Map.of(),
+                new PrintStream(out, true), System.err);
+
+        assertEquals(0, status);
+        String printed = out.toString();
+        assertTrue(printed.startsWith("2026-01-01T00:00:00Z\tTWO_FACTOR_FAILED\t7\t"), printed);
+        assertEquals(1, printed.lines().count());
+    }
+
+    @Test
+    void cliQueriesByEmailOnlyWithTheWritersKey() throws Exception {
+        try (AuditWriter writer = new AuditWriter(directory, SEGMENT_SIZE, START)) {
+            writer.append(record(0, 7, AuditEventType.LOGIN_BAD_PASSWORD));
+        }
+        String[] byEmail = { "--dir", directory.toString(), "--email", "user7@example.com" };
+
+        assertEquals(1, cli(byEmail, Map.of("AUDIT_FINGERPRINT_KEY", KEY)).lines().count());
+        String otherKey = Base64.getEncoder().encodeToString(new byte[] { 1, 2, 3, 4 });
+        assertEquals(0, cli(byEmail, Map.of("AUDIT_FINGERPRINT_KEY", otherKey)).lines().count());
+        // 沒有金鑰時不能以 email 查詢
+        assertEquals(2, AuditLogCli.run(byEmail, Map.of(), new PrintStream(new ByteArrayOutputStream(), true),
+                new PrintStream(new ByteArrayOutputStream(), true)));
+    }
+
+    private static String cli(String[] args, Map<String, String> env) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(0, AuditLogCli.run(args, env, new PrintStream(out, true), System.err));
+        return out.toString();
+    }
+
+    private List<AuditRecord> read(AuditLogReader.Query query) throws Exception {
+        List<AuditRecord> records = new ArrayList<>();
+        new AuditLogReader(directory, FINGERPRINT).read(query, records::add);
+        return records;
+    }
+
+    private static AuditRecord record(int second, long userId, AuditEventType type) {
+        return new AuditRecord(START + second * 1_000_000L, userId,
+                FINGERPRINT.fingerprint("user" + userId + "@example.com"), type);
+    }
+}
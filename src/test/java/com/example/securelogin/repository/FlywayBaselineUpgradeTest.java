@@ -0,0 +1,106 @@
+package com.example.securelogin.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 既有資料庫 (Flyway 之前由 ddl-auto: update 建立) 以 baseline-on-migrate 標記為 V1 後要能升級到最新版本
+class FlywayBaselineUpgradeTest {
+
+    // 與 Flyway 之前的版本由 Hibernate ddl-auto 產生的 schema 相同
+    private static final String PRE_FLYWAY_SCHEMA = """
+            CREATE TABLE users (
+                id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                email varchar(255) NOT NULL,
+                password varchar(255) NOT NULL,
+                is_email_verified boolean NOT NULL,
+                last_login_at timestamp(6) with time zone,
+                created_at timestamp(6) with time zone NOT NULL,
+                updated_at timestamp(6) with time zone NOT NULL
+            );
+            ALTER TABLE IF EXISTS users ADD CONSTRAINT uk_users_email UNIQUE (email);
+            CREATE TABLE email_verification_tokens (
+                id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                token varchar(255) NOT NULL,
+                user_id bigint NOT NULL,
+                expires_at timestamp(6) with time zone NOT NULL,
+                created_at timestamp(6) with time zone NOT NULL
+            );
+            ALTER TABLE IF EXISTS email_verification_tokens ADD CONSTRAINT uk_evt_token UNIQUE (token);
+            CREATE TABLE two_factor_auth_codes (
+                id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                user_id bigint NOT NULL,
+                code_hash varchar(255) NOT NULL,
+                expires_at timestamp(6) with time zone NOT NULL,
+                created_at timestamp(6) with time zone NOT NULL,
+                used boolean NOT NULL
+            );
+            ALTER TABLE IF EXISTS two_factor_auth_codes
+                ADD CONSTRAINT fk_tfac_user FOREIGN KEY (user_id) REFERENCES users;
+            """;
+
+    private EmbeddedPostgres postgres;
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        dataSource = postgres.getPostgresDatabase();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        postgres.close();
+    }
+
+    @Test
+    void baselinedDatabaseMigratesToHead() {
+        jdbcTemplate.execute(PRE_FLYWAY_SCHEMA);
+        long userId = jdbcTemplate.queryForObject("""
+                INSERT INTO users (email, password, is_email_verified, created_at, updated_at)
+                VALUES ('alice@example.com', 'x', true, now(), now())
+                RETURNING id
+                """, Long.class);
+        jdbcTemplate.update("""
+                INSERT INTO email_verification_tokens (token, user_id, expires_at, created_at)
+                VALUES ('token-1', ?, now() + interval '1 day', now())
+                """, userId);
+
+        // 與 application.yaml 的 spring.flyway 設定相同
+        Flyway flyway = Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+        flyway.migrate();
+
+        assertEquals(0, flyway.info().pending().length);
+        assertTrue(jdbcTemplate.queryForObject("SELECT to_regclass('email_outbox') IS NOT NULL", Boolean.class));
+        assertEquals(userId, jdbcTemplate.queryForObject(
+                "SELECT user_id FROM email_verification_tokens WHERE token = 'token-1'", Long.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM users", Integer.class));
+    }
+
+    @Test
+    void emptyDatabaseMigratesToHead() {
+        Flyway flyway = Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+        flyway.migrate();
+
+        assertEquals(0, flyway.info().pending().length);
+        assertTrue(jdbcTemplate.queryForObject("SELECT to_regclass('email_outbox') IS NOT NULL", Boolean.class));
+    }
+}
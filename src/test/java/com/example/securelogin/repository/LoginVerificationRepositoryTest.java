@@ -0,0 +1,204 @@
+package com.example.securelogin.repository;
+
+import com.example.securelogin.security.AuthenticatedUser;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 以 embedded PostgreSQL 執行 Flyway migration，驗證單一 statement 消耗驗證碼的行為
+@DataJpaTest
+@AutoConfigureEmbeddedDatabase(provider = AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY)
+@Import(LoginVerificationRepository.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // 每個執行緒各自 commit
+class LoginVerificationRepositoryTest {
+
+    private static final String EMAIL = "alice@example.com";
+    private static final String CODE_HASH = "{hmac-sha256}test-code-hash";
+    private static final String WRONG_HASH = "{hmac-sha256}wrong";
+    private static final int MAX_ATTEMPTS = 5;
+
+    @Autowired
+    private LoginVerificationRepository loginVerificationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = jdbcTemplate.queryForObject("""
+                INSERT INTO users (email, password, is_email_verified, created_at, updated_at)
+                VALUES (?, 'x', true, now(), now())
+                RETURNING id
+                """, Long.class, EMAIL);
+        // 已過期的驗證碼可能落在前一天的分區
+        jdbcTemplate.queryForObject("SELECT ensure_daily_partitions('two_factor_auth_codes', "
+                + "(now() AT TIME ZONE 'UTC')::date - 1, (now() AT TIME ZONE 'UTC')::date + 1)", Integer.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM two_factor_auth_codes");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void concurrentVerifiesConsumeCodeOnlyOnce() throws Exception {
+        insertCode(CODE_HASH, OffsetDateTime.now().plusMinutes(5));
+
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Optional<AuthenticatedUser>>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return loginVerificationRepository.consumeCodeAndRecordLogin(EMAIL, CODE_HASH,
+                            OffsetDateTime.now(), MAX_ATTEMPTS).user();
+                }));
+            }
+            start.countDown();
+
+            int succeeded = 0;
+            for (Future<Optional<AuthenticatedUser>> result : results) {
+                Optional<AuthenticatedUser> user = result.get();
+                if (user.isPresent()) {
+                    succeeded++;
+                    assertEquals(userId, user.get().getId());
+                    assertEquals(EMAIL, user.get().getEmail());
+                    assertTrue(user.get().isEmailVerified());
+                }
+            }
+            assertEquals(1, succeeded);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(Boolean.TRUE, jdbcTemplate.queryForObject(
+                "SELECT used FROM two_factor_auth_codes WHERE user_id = ?", Boolean.class, userId));
+        assertNotNull(jdbcTemplate.queryForObject(
+                "SELECT last_login_at FROM users WHERE id = ?", OffsetDateTime.class, userId));
+    }
+
+    @Test
+    void rejectsWrongOrExpiredCode() {
+        insertCode("{hmac-sha256}expired", OffsetDateTime.now().minusSeconds(1));
+        insertCode(CODE_HASH, OffsetDateTime.now().plusMinutes(5));
+
+        assertFalse(consume(EMAIL, WRONG_HASH).isPresent());
+        assertFalse(consume(EMAIL, "{hmac-sha256}expired").isPresent());
+        assertFalse(consume("bob@example.com", CODE_HASH).isPresent());
+        assertNull(jdbcTemplate.queryForObject(
+                "SELECT last_login_at FROM users WHERE id = ?", OffsetDateTime.class, userId));
+
+        assertTrue(consume(EMAIL, CODE_HASH).isPresent());
+    }
+
+    @Test
+    void invalidatesCodeAfterMaxFailedAttempts() {
+        insertCode(CODE_HASH, OffsetDateTime.now().plusMinutes(5));
+
+        for (int i = 1; i < MAX_ATTEMPTS; i++) {
+            assertFalse(loginVerificationRepository
+                    .consumeCodeAndRecordLogin(EMAIL, WRONG_HASH, OffsetDateTime.now(), MAX_ATTEMPTS).invalidated());
+        }
+        LoginVerificationRepository.CodeAttempt last = loginVerificationRepository
+                .consumeCodeAndRecordLogin(EMAIL, WRONG_HASH, OffsetDateTime.now(), MAX_ATTEMPTS);
+        assertTrue(last.invalidated());
+        assertFalse(last.user().isPresent());
+        assertEquals(MAX_ATTEMPTS, attempts());
+
+        // 作廢後正確的驗證碼也無法使用，之後的嘗試不再計數
+        assertFalse(consume(EMAIL, CODE_HASH).isPresent());
+        assertEquals(MAX_ATTEMPTS, attempts());
+    }
+
+    @Test
+    void correctCodeOnLastAttemptSucceeds() {
+        insertCode(CODE_HASH, OffsetDateTime.now().plusMinutes(5));
+
+        for (int i = 1; i < MAX_ATTEMPTS; i++) {
+            loginVerificationRepository.consumeCode(EMAIL, WRONG_HASH, OffsetDateTime.now(), MAX_ATTEMPTS);
+        }
+        LoginVerificationRepository.CodeAttempt last = loginVerificationRepository
+                .consumeCode(EMAIL, CODE_HASH, OffsetDateTime.now(), MAX_ATTEMPTS);
+        assertTrue(last.user().isPresent());
+        assertFalse(last.invalidated());
+    }
+
+    @Test
+    void concurrentWrongGuessesStopAtMaxAttempts() throws Exception {
+        insertCode(CODE_HASH, OffsetDateTime.now().plusMinutes(5));
+
+        int threads = 32;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<LoginVerificationRepository.CodeAttempt>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                String guess = "{hmac-sha256}wrong-" + i;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return loginVerificationRepository.consumeCodeAndRecordLogin(EMAIL, guess,
+                            OffsetDateTime.now(), MAX_ATTEMPTS);
+                }));
+            }
+            start.countDown();
+
+            int invalidated = 0;
+            for (Future<LoginVerificationRepository.CodeAttempt> result : results) {
+                if (result.get().invalidated()) {
+                    invalidated++;
+                }
+            }
+            assertEquals(1, invalidated);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // 只有 MAX_ATTEMPTS 次錯誤嘗試被比對，之後連正確的驗證碼也不能通過
+        assertEquals(MAX_ATTEMPTS, attempts());
+        assertFalse(consume(EMAIL, CODE_HASH).isPresent());
+    }
+
+    private Optional<AuthenticatedUser> consume(String email, String codeHash) {
+        return loginVerificationRepository.consumeCodeAndRecordLogin(email, codeHash, OffsetDateTime.now(),
+                MAX_ATTEMPTS).user();
+    }
+
+    private int attempts() {
+        return jdbcTemplate.queryForObject(
+                "SELECT attempts FROM two_factor_auth_codes WHERE user_id = ?", Integer.class, userId);
+    }
+
+    private void insertCode(String codeHash, OffsetDateTime expiresAt) {
+        jdbcTemplate.update("""
+                INSERT INTO two_factor_auth_codes (user_id, code_hash, expires_at, created_at, used)
+                VALUES (?, ?, ?, now(), false)
+                """, userId, codeHash, expiresAt);
+    }
+}
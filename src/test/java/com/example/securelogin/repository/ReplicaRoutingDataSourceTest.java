@@ -0,0 +1,140 @@
+package com.example.securelogin.repository;
+
+import com.example.securelogin.config.ReadReplicaProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 以兩個獨立的 embedded PostgreSQL 模擬 primary 與 replica，每個資料庫的 node 資料表記錄自己的名稱
+class ReplicaRoutingDataSourceTest {
+
+    private static final String NODE_SQL = "SELECT name FROM node";
+
+    private static EmbeddedPostgres primaryPostgres;
+    private static EmbeddedPostgres replicaPostgres;
+    private static DataSource primary;
+    private static DataSource replica;
+
+    @BeforeAll
+    static void startDatabases() throws Exception {
+        primaryPostgres = EmbeddedPostgres.start();
+        replicaPostgres = EmbeddedPostgres.start();
+        primary = primaryPostgres.getPostgresDatabase();
+        replica = replicaPostgres.getPostgresDatabase();
+        new JdbcTemplate(primary).execute("CREATE TABLE node (name text); INSERT INTO node VALUES ('primary')");
+        new JdbcTemplate(replica).execute("CREATE TABLE node (name text); INSERT INTO node VALUES ('replica')");
+    }
+
+    @AfterAll
+    static void stopDatabases() throws Exception {
+        primaryPostgres.close();
+        replicaPostgres.close();
+    }
+
+    @Test
+    void readOnlyTransactionsUseHealthyReplica() {
+        Routing routing = new Routing(replica);
+        routing.monitor.check();
+
+        assertTrue(routing.monitor.isHealthy("replica-1"));
+        assertEquals("replica", routing.node(true));
+        assertEquals("primary", routing.node(false));
+        assertEquals("primary", routing.jdbcTemplate.queryForObject(NODE_SQL, String.class)); // 沒有交易
+    }
+
+    @Test
+    void usesPrimaryUntilFirstLagCheck() {
+        Routing routing = new Routing(replica);
+
+        assertFalse(routing.monitor.isHealthy("replica-1"));
+        assertEquals("primary", routing.node(true));
+    }
+
+    @Test
+    void onPrimaryOverridesReadOnlyTransaction() {
+        Routing routing = new Routing(replica);
+        routing.monitor.check();
+
+        String node = routing.readOnly.execute(status -> ReplicaRoutingDataSource.onPrimary(
+                () -> routing.jdbcTemplate.queryForObject(NODE_SQL, String.class)));
+        assertEquals("primary", node);
+    }
+
+    @Test
+    void databaseNotInRecoveryIsNotUsedAsReplica() {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(primary, Map.of("replica-1", replica),
+                Duration.ofSeconds(1), new SimpleMeterRegistry());
+        monitor.check();
+
+        assertFalse(monitor.isHealthy("replica-1"));
+    }
+
+    @Test
+    void unreachableReplicaFallsBackToPrimary() {
+        PGSimpleDataSource unreachable = new PGSimpleDataSource();
+        unreachable.setServerNames(new String[] {"localhost"});
+        unreachable.setPortNumbers(new int[] {1});
+        unreachable.setConnectTimeout(1);
+        Routing routing = new Routing(unreachable);
+        routing.monitor.check();
+
+        assertFalse(routing.monitor.isHealthy("replica-1"));
+        assertEquals("primary", routing.node(true));
+    }
+
+    @Test
+    void recentlyWrittenUsersAreReadFromPrimary() {
+        Routing routing = new Routing(replica);
+        routing.monitor.check();
+        ReadReplicaProperties properties = new ReadReplicaProperties();
+        properties.setEnabled(true);
+        ReadYourWritesGuard guard = new ReadYourWritesGuard(properties);
+        guard.markWritten(42L, "alice@example.com");
+
+        assertEquals("primary", routing.readOnly.execute(status -> guard.read("alice@example.com",
+                () -> routing.jdbcTemplate.queryForObject(NODE_SQL, String.class))));
+        assertEquals("primary", routing.readOnly.execute(status -> guard.read(42L,
+                () -> routing.jdbcTemplate.queryForObject(NODE_SQL, String.class))));
+        assertEquals("replica", routing.readOnly.execute(status -> guard.read("bob@example.com",
+                () -> routing.jdbcTemplate.queryForObject(NODE_SQL, String.class))));
+    }
+
+    // 與 ReadReplicaDataSourceConfig 相同的組合：LazyConnectionDataSourceProxy 包住 routing DataSource
+    private static final class Routing {
+        private final ReplicaLagMonitor monitor;
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate readOnly;
+        private final TransactionTemplate readWrite;
+
+        private Routing(DataSource replicaDataSource) {
+            monitor = new ReplicaLagMonitor(primary, Map.of("replica-1", replicaDataSource), Duration.ofSeconds(1),
+                    true, new SimpleMeterRegistry()); // 兩個獨立的資料庫都不在 recovery 中
+            DataSource dataSource = new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, monitor));
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+            jdbcTemplate = new JdbcTemplate(dataSource);
+            readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            readWrite = new TransactionTemplate(transactionManager);
+        }
+
+        private String node(boolean readOnlyTransaction) {
+            return (readOnlyTransaction ? readOnly : readWrite)
+                    .execute(status -> jdbcTemplate.queryForObject(NODE_SQL, String.class));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.securelogin.security;
+
+import com.example.securelogin.config.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RateLimitFilterTest {
+
+    private static final String PATH = "/api/login-verify";
+    private static final int ACCOUNT_CAPACITY = 2;
+
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties.Limit perAccount = new RateLimitProperties.Limit();
+        perAccount.setCapacity(ACCOUNT_CAPACITY);
+        perAccount.setPeriod(Duration.ofHours(1));
+        RateLimitProperties.Endpoint endpoint = new RateLimitProperties.Endpoint();
+        endpoint.setPerAccount(perAccount);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getEndpoints().put(PATH, endpoint);
+        // 被拒絕時只設定 429 (實際由 GlobalExceptionHandler 產生回應)
+        filter = new RateLimitFilter(properties, new SimpleMeterRegistry(), (request, response, handler, ex) -> {
+            response.setStatus(429);
+            return new ModelAndView();
+        });
+    }
+
+    @Test
+    void limitsEachAccountSeparately() throws Exception {
+        for (int i = 0; i < ACCOUNT_CAPACITY; i++) {
+            assertEquals(200, post("{\"email\":\"Victim@Example.com\",\"code\":\"000000\"}"));
+        }
+        assertEquals(429, post("{\"email\":\" victim@example.com \",\"code\":\"000000\"}"));
+        assertEquals(200, post("{\"email\":\"other@example.com\",\"code\":\"000000\"}"));
+    }
+
+    @Test
+    void emailBeyondBodyLimitIsChargedToSharedBucket() throws Exception {
+        String padding = "x".repeat(new RateLimitProperties().getMaxBodyBytes());
+        for (int i = 0; i < ACCOUNT_CAPACITY; i++) {
+            assertEquals(200, post("{\"padding\":\"" + padding + "\",\"email\":\"victim@example.com\","
+                    + "\"code\":\"00000" + i + "\"}"));
+        }
+        assertEquals(429, post("{\"padding\":\"" + padding + "\",\"email\":\"victim@example.com\","
+                + "\"code\":\"000009\"}"));
+    }
+
+    @Test
+    void duplicateEmailIsChargedToSharedBucket() throws Exception {
+        byte[] duplicate = bytes("{\"email\":\"a@example.com\",\"email\":\"b@example.com\"}");
+        assertNull(RateLimitFilter.extractEmail(duplicate, duplicate.length));
+
+        // 每次換一個第一個值，最後一個值 (controller 綁定的) 都是同一個帳號
+        for (int i = 0; i < ACCOUNT_CAPACITY; i++) {
+            assertEquals(200, post("{\"email\":\"attacker" + i + "@example.com\","
+                    + "\"email\":\"victim@example.com\",\"code\":\"000000\"}"));
+        }
+        assertEquals(429, post("{\"email\":\"attacker9@example.com\","
+                + "\"email\":\"victim@example.com\",\"code\":\"000000\"}"));
+    }
+
+    @Test
+    void forwardsTheFullBodyToTheController() throws Exception {
+        String body = "{\"padding\":\"" + "y".repeat(10_000) + "\",\"email\":\"a@example.com\"}";
+        MockHttpServletRequest request = request(body);
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertEquals(body, new String(chain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    private int post(String body) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(body), response, new MockFilterChain());
+        return response.getStatus();
+    }
+
+    private static MockHttpServletRequest request(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", PATH);
+        request.setContentType("application/json");
+        request.setContent(bytes(body));
+        return request;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
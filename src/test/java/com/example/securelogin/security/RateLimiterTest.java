@@ -0,0 +1,99 @@
+package com.example.securelogin.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void allowsBurstThenRefillsOneTokenPerInterval() {
+        RateLimiter limiter = new RateLimiter(100, 4);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("a", SECOND, 3, 0));
+        }
+        assertEquals(SECOND, limiter.tryAcquire("a", SECOND, 3, 0));
+        assertEquals(SECOND / 2, limiter.tryAcquire("a", SECOND, 3, SECOND / 2));
+
+        assertEquals(0, limiter.tryAcquire("a", SECOND, 3, SECOND));
+        assertTrue(limiter.tryAcquire("a", SECOND, 3, SECOND) > 0);
+        // 其他 key 不受影響
+        assertEquals(0, limiter.tryAcquire("b", SECOND, 3, SECOND));
+    }
+
+    @Test
+    void sweepRemovesOnlyRefilledBuckets() {
+        RateLimiter limiter = new RateLimiter(100, 4);
+        limiter.tryAcquire("idle", SECOND, 2, 0);
+        limiter.tryAcquire("busy", SECOND, 2, 0);
+        limiter.tryAcquire("busy", SECOND, 2, 0);
+
+        assertEquals(1, limiter.sweep(SECOND));
+        assertEquals(1, limiter.size());
+        assertTrue(limiter.tryAcquire("busy", SECOND, 2, SECOND) == 0);
+        assertTrue(limiter.tryAcquire("busy", SECOND, 2, SECOND) > 0);
+    }
+
+    @Test
+    void evictsOldestBucketWhenFullOfActiveBuckets() {
+        RateLimiter limiter = new RateLimiter(2, 1);
+        limiter.tryAcquire("a", SECOND, 1, 0);
+        limiter.tryAcquire("b", SECOND, 1, SECOND / 2);
+
+        // 表滿了也不拒絕新的 key，淘汰最接近補滿的 a
+        assertEquals(0, limiter.tryAcquire("c", SECOND, 1, SECOND / 2));
+        assertEquals(2, limiter.size());
+        assertEquals(1, limiter.evictions());
+        assertTrue(limiter.tryAcquire("b", SECOND, 1, SECOND / 2) > 0);
+        assertEquals(0, limiter.tryAcquire("a", SECOND, 1, SECOND / 2));
+        assertEquals(2, limiter.evictions());
+    }
+
+    @Test
+    void concurrentAcquiresNeverExceedCapacity() throws Exception {
+        RateLimiter limiter = new RateLimiter(100, 4);
+        int threads = 8;
+        AtomicInteger allowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 1000; i++) {
+                    if (limiter.tryAcquire("shared", SECOND, 50, 0) == 0) {
+                        allowed.incrementAndGet();
+                    }
+                    if (i % 100 == 0) {
+                        limiter.sweep(0);
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(50, allowed.get());
+    }
+
+    @Test
+    void extractsNormalizedEmailFromJsonBody() {
+        byte[] body = "{\"password\":{\"x\":[1]},\"email\":\" User@Example.COM \"}".getBytes();
+        assertEquals("user@example.com", RateLimitFilter.extractEmail(body, body.length));
+
+        byte[] noEmail = "{\"password\":\"secret\"}".getBytes();
+        assertNull(RateLimitFilter.extractEmail(noEmail, noEmail.length));
+        byte[] notJson = "email=a@b.c".getBytes();
+        assertNull(RateLimitFilter.extractEmail(notJson, notJson.length));
+    }
+}
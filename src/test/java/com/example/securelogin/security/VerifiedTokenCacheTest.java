@@ -0,0 +1,48 @@
+package com.example.securelogin.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class VerifiedTokenCacheTest {
+
+    private final VerifiedTokenCache cache = new VerifiedTokenCache(100, Duration.ofMinutes(15));
+    private final Instant expiresAt = Instant.now().plus(Duration.ofMinutes(5));
+
+    @Test
+    void evictUserHidesOnlyThatUsersTokens() {
+        cache.put("alice-1", authentication("alice@example.com"), expiresAt);
+        cache.put("alice-2", authentication("alice@example.com"), expiresAt);
+        Authentication bob = authentication("bob@example.com");
+        cache.put("bob-1", bob, expiresAt);
+
+        cache.evictUser("alice@example.com");
+
+        assertNull(cache.get("alice-1"));
+        assertNull(cache.get("alice-2"));
+        assertSame(bob, cache.get("bob-1"));
+    }
+
+    @Test
+    void tokenCachedAfterEvictIsServed() {
+        cache.put("alice-1", authentication("alice@example.com"), expiresAt);
+        cache.evictUser("alice@example.com");
+
+        cache.put("alice-2", authentication("alice@example.com"), expiresAt);
+
+        assertNull(cache.get("alice-1"));
+        assertNotNull(cache.get("alice-2"));
+    }
+
+    private static Authentication authentication(String username) {
+        return new UsernamePasswordAuthenticationToken(username, null, List.of());
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.securelogin.service;
+
+import com.mailjet.client.ClientOptions;
+import com.mailjet.client.MailjetClient;
+import com.mailjet.client.resource.Emailv31;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// 以本機 stub HTTP server 模擬 Mailjet Send API v3.1
+class MailjetBatchSenderTest {
+
+    private HttpServer server;
+    private final List<JSONArray> receivedBatches = new CopyOnWriteArrayList<>();
+    // 有郵件被拒時回傳的 HTTP 狀態 (實際的 Mailjet 回 400，回應中仍有每封郵件的結果)
+    private volatile int partialFailureStatus = 200;
+    private MailjetBatchSender sender;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v3.1/send", exchange -> {
+            JSONArray messages = new JSONObject(new String(exchange.getRequestBody().readAllBytes(),
+                    StandardCharsets.UTF_8)).getJSONArray("Messages");
+            receivedBatches.add(messages);
+
+            // bad@example.com 模擬單封郵件被拒，其餘成功
+            JSONArray results = new JSONArray();
+            boolean rejected = false;
+            for (int i = 0; i < messages.length(); i++) {
+                JSONObject message = messages.getJSONObject(i);
+                String to = message.getJSONArray("To").getJSONObject(0).getString("Email");
+                JSONObject result = new JSONObject().put("CustomID", message.getString("CustomID"));
+                if (to.startsWith("bad@")) {
+                    rejected = true;
+                    result.put("Status", "error").put("Errors", new JSONArray()
+                            .put(new JSONObject().put("ErrorMessage", "Invalid recipient")));
+                } else {
+                    result.put("Status", "success");
+                }
+                results.put(result);
+            }
+            byte[] body = new JSONObject().put("Messages", results).toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(rejected ? partialFailureStatus : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        MailjetClient client = new MailjetClient(ClientOptions.builder()
+                .apiKey("test-key")
+                .apiSecretKey("test-secret")
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+                .build());
+        sender = new MailjetBatchSender(client, Duration.ofMillis(200), 50, Duration.ofSeconds(5),
+                new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        sender.close();
+        server.stop(0);
+    }
+
+    @Test
+    void messagesWithinWindowAreSentAsOneRequestAndResultsMappedPerMessage() throws Exception {
+        CompletableFuture<Void> first = sender.submit(message("alice@example.com"));
+        CompletableFuture<Void> second = sender.submit(message("bad@example.com"));
+        CompletableFuture<Void> third = sender.submit(message("bob@example.com"));
+
+        first.get(5, TimeUnit.SECONDS);
+        third.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("bad@example.com");
+
+        assertThat(receivedBatches).hasSize(1);
+        assertThat(receivedBatches.get(0).length()).isEqualTo(3);
+    }
+
+    @Test
+    void partialFailureWithHttp400FailsOnlyTheRejectedMessage() throws Exception {
+        partialFailureStatus = 400;
+
+        CompletableFuture<Void> first = sender.submit(message("alice@example.com"));
+        CompletableFuture<Void> second = sender.submit(message("bad@example.com"));
+        CompletableFuture<Void> third = sender.submit(message("bob@example.com"));
+
+        first.get(5, TimeUnit.SECONDS);
+        third.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("bad@example.com");
+        assertThat(receivedBatches).hasSize(1);
+    }
+
+    @Test
+    void batchIsCappedAtMaxBatchSize() throws Exception {
+        sender.close();
+        MailjetClient client = new MailjetClient(ClientOptions.builder()
+                .apiKey("test-key")
+                .apiSecretKey("test-secret")
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+                .build());
+        sender = new MailjetBatchSender(client, Duration.ofMillis(200), 2, Duration.ofSeconds(5),
+                new SimpleMeterRegistry());
+
+        CompletableFuture<?>[] results = new CompletableFuture<?>[5];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = sender.submit(message("user" + i + "@example.com"));
+        }
+        CompletableFuture.allOf(results).get(5, TimeUnit.SECONDS);
+
+        assertThat(receivedBatches).hasSize(3);
+        assertThat(receivedBatches).allSatisfy(batch -> assertThat(batch.length()).isLessThanOrEqualTo(2));
+    }
+
+    @Test
+    void sendAllSendsTheWholeListWithoutWaitingForTheWindow() throws Exception {
+        sender.close();
+        MailjetClient client = new MailjetClient(ClientOptions.builder()
+                .apiKey("test-key")
+                .apiSecretKey("test-secret")
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+                .build());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        sender = new MailjetBatchSender(client, Duration.ofMinutes(1), 50, Duration.ofSeconds(5), registry);
+
+        List<JSONObject> messages = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            messages.add(message((i == 7 ? "bad" : "user" + i) + "@example.com"));
+        }
+        List<CompletableFuture<Void>> results = sender.sendAll(messages);
+
+        assertThat(results).hasSize(60).allMatch(CompletableFuture::isDone);
+        assertThat(results.get(7)).isCompletedExceptionally();
+        assertThat(results.stream().filter(CompletableFuture::isCompletedExceptionally)).hasSize(1);
+        assertThat(receivedBatches).extracting(JSONArray::length).containsExactly(50, 10);
+        DistributionSummary batchSizes = registry.get("email.mailjet.batch.size").summary();
+        assertThat(batchSizes.count()).isEqualTo(2);
+        assertThat(batchSizes.max()).isEqualTo(50);
+    }
+
+    @Test
+    void sendThrowsWhenMailjetRejectsTheMessage() {
+        assertThatThrownBy(() -> sender.send(message("bad@example.com")))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Failed to send email to bad@example.com");
+    }
+
+    private static JSONObject message(String recipient) {
+        return new JSONObject()
+                .put(Emailv31.Message.FROM, new JSONObject().put("Email", "noreply@example.com"))
+                .put(Emailv31.Message.TO, new JSONArray().put(new JSONObject().put("Email", recipient)))
+                .put(Emailv31.Message.SUBJECT, "Test")
+                .put(Emailv31.Message.TEXTPART, "Hello");
+    }
+}
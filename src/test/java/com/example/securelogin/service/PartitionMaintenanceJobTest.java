@@ -0,0 +1,80 @@
+package com.example.securelogin.service;
+
+import com.example.securelogin.config.PartitionMaintenanceProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 關閉 partition-maintenance.enabled 只停止 DROP，未來的分區仍要建立
+@DataJpaTest
+@AutoConfigureEmbeddedDatabase(provider = AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY)
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // job 自己開交易並 DROP 分區
+class PartitionMaintenanceJobTest {
+
+    private static final String TABLE = "email_verification_tokens";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final PartitionMaintenanceProperties properties = new PartitionMaintenanceProperties();
+    private final LocalDate today = LocalDate.now(ZoneOffset.UTC);
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.queryForObject("SELECT ensure_daily_partitions(?, ?, ?)", Integer.class,
+                TABLE, today.minusDays(10), today.minusDays(9));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition(today.minusDays(10)));
+    }
+
+    @Test
+    void disabledStillCreatesFuturePartitionsButKeepsExpiredOnes() {
+        properties.setEnabled(false);
+        job().run();
+
+        assertTrue(exists(partition(today.plusDays(properties.getPremakeDays()))));
+        assertTrue(exists(partition(today.minusDays(10))));
+    }
+
+    @Test
+    void enabledDropsExpiredPartitions() {
+        job().run();
+
+        assertTrue(exists(partition(today.plusDays(properties.getPremakeDays()))));
+        assertFalse(exists(partition(today.minusDays(10))));
+    }
+
+    private PartitionMaintenanceJob job() {
+        return new PartitionMaintenanceJob(jdbcTemplate, transactionManager, properties, new SimpleMeterRegistry());
+    }
+
+    private boolean exists(String partition) {
+        return jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition);
+    }
+
+    private static String partition(LocalDate day) {
+        return TABLE + "_p" + day.format(SUFFIX);
+    }
+}
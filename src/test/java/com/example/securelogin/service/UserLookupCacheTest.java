@@ -0,0 +1,108 @@
+package com.example.securelogin.service;
+
+import com.example.securelogin.config.ReadReplicaProperties;
+import com.example.securelogin.config.UserCacheProperties;
+import com.example.securelogin.entity.User;
+import com.example.securelogin.repository.ReadYourWritesGuard;
+import com.example.securelogin.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 查詢進行中被 evict 時，舊資料不能留在快取裡
+class UserLookupCacheTest {
+
+    private static final String EMAIL = "alice@example.com";
+    private static final long ID = 42L;
+
+    // 第一次查詢停在 loading/release 之間，模擬還在等資料庫
+    private final CountDownLatch loading = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger queries = new AtomicInteger();
+    private final AtomicReference<User> row = new AtomicReference<>(user(false));
+
+    private ExecutorService executor;
+    private UserLookupCache cache;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+        cache = new UserLookupCache(repository(), new UserCacheProperties(),
+                new ReadYourWritesGuard(new ReadReplicaProperties()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void loadStartedBeforeEvictIsNotCached() throws Exception {
+        Future<Optional<User>> stale = executor.submit(() -> cache.findByEmail(EMAIL));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        row.set(user(true));
+        cache.evict(ID, EMAIL);
+        release.countDown();
+        assertFalse(stale.get(5, TimeUnit.SECONDS).orElseThrow().isEmailVerified());
+
+        assertTrue(cache.findByEmail(EMAIL).orElseThrow().isEmailVerified());
+        assertTrue(cache.findById(ID).orElseThrow().isEmailVerified());
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    void lookupAfterEvictDoesNotWaitForOlderLoad() throws Exception {
+        Future<Optional<User>> stale = executor.submit(() -> cache.findByEmail(EMAIL));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        row.set(user(true));
+        cache.evict(ID, EMAIL);
+        // 第一次查詢仍在進行中，這次查詢自己查資料庫
+        assertTrue(cache.findByEmail(EMAIL).orElseThrow().isEmailVerified());
+
+        release.countDown();
+        stale.get(5, TimeUnit.SECONDS);
+        assertTrue(cache.findByEmail(EMAIL).orElseThrow().isEmailVerified());
+        assertEquals(2, queries.get());
+    }
+
+    private UserRepository repository() {
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[] {UserRepository.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("findByEmail") && !method.getName().equals("findById")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    User current = row.get();
+                    if (queries.incrementAndGet() == 1) {
+                        loading.countDown();
+                        release.await();
+                    }
+                    return Optional.of(current);
+                });
+    }
+
+    private static User user(boolean emailVerified) {
+        User user = new User();
+        user.setId(ID);
+        user.setEmail(EMAIL);
+        user.setPassword("{bcrypt}hash");
+        user.setEmailVerified(emailVerified);
+        return user;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.securelogin.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest {
+
+    private static final long TICK = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    void firesOnlyAfterDeadline() {
+        TimerWheel<String> wheel = new TimerWheel<>(Duration.ofSeconds(1), 0);
+        wheel.schedule("a", 5 * TICK);
+        List<String> fired = new ArrayList<>();
+
+        wheel.advance(4 * TICK, fired::add);
+        assertTrue(fired.isEmpty());
+
+        wheel.advance(5 * TICK, fired::add);
+        assertEquals(List.of("a"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelledTimerNeverFires() {
+        TimerWheel<String> wheel = new TimerWheel<>(Duration.ofSeconds(1), 0);
+        TimerWheel.Timer<String> timer = wheel.schedule("a", 3 * TICK);
+        wheel.schedule("b", 3 * TICK);
+        wheel.cancel(timer);
+        wheel.cancel(timer); // 重複取消不影響
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(10 * TICK, fired::add);
+        assertEquals(List.of("b"), fired);
+    }
+
+    @Test
+    void cascadesDistantTimersAcrossLevels() {
+        TimerWheel<Long> wheel = new TimerWheel<>(Duration.ofSeconds(1), 0);
+        Random random = new Random(42);
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            long deadline = (long) (Math.pow(random.nextDouble(), 3) * 20_000_000) * TICK;
+            deadlines.add(deadline);
+            wheel.schedule(deadline, deadline);
+        }
+
+        long now = 0;
+        int fired = 0;
+        while (wheel.size() > 0) {
+            now += (1 + random.nextInt(5_000)) * TICK;
+            long current = now;
+            List<Long> expired = new ArrayList<>();
+            wheel.advance(now, expired::add);
+            for (long deadline : expired) {
+                assertTrue(deadline <= current, "fired before deadline");
+                assertTrue(deadline > current - 5_001 * TICK - TICK, "fired too late");
+            }
+            fired += expired.size();
+        }
+        assertEquals(deadlines.size(), fired);
+    }
+}